@@ -0,0 +1,90 @@
+package com.grq.rezero.benchmark;
+
+import com.googlecode.aviator.AviatorEvaluator;
+import com.googlecode.aviator.runtime.function.AbstractFunction;
+import com.grq.rezero.dimension.util.DimensionUnitBuilder;
+import com.grq.rezero.executor.DimenStreamExecutor;
+import com.grq.rezero.executor.SummaryExecutor;
+import com.grq.rezero.expression.AviatorExpressionCache;
+import com.grq.rezero.expression.ExpressionParser;
+import com.grq.rezero.function.FunctionFactory;
+import com.grq.rezero.function.calculate.ClassifiedSummaryPlan;
+import com.grq.rezero.function.filter.ClassifyFilterFunction;
+import com.grq.rezero.function.other.RelationInfoFunction;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * <pre>
+ *     性能测试环境：每个 JVM 初始化一次；
+ *
+ *     1. 使用 Spring 容器创建方法工厂、执行器与维度单元构建器，依赖注入与正式环境相同；
+ *     2. 按 function-info.properties 中的方法列表向 AviatorEvaluator 添加自定义方法（与 ExpressionInitializer 相同）；
+ * </pre>
+ */
+public class BenchmarkEnvironment {
+    /**
+     * 自定义方法列表配置
+     */
+    private static final String FUNCTION_INFO_PROPERTIES = "properties/function/function-info.properties";
+    private static final String FUNCTION_LIST_KEY = "AVIATOR_CUSTOM_FUNCTION_LIST";
+
+    private static BenchmarkEnvironment instance;
+
+    private final AnnotationConfigApplicationContext context;
+
+    private BenchmarkEnvironment() {
+        context = new AnnotationConfigApplicationContext(RelationInfoFunction.class, ClassifyFilterFunction.class,
+                FunctionFactory.class, ExpressionParser.class, DimenStreamExecutor.class, SummaryExecutor.class,
+                DimensionUnitBuilder.class);
+        FunctionFactory functionFactory = context.getBean(FunctionFactory.class);
+        for (String functionName : loadFunctionNames()) {
+            AbstractFunction function = functionFactory.buildFunction(functionName.trim());
+            if (function != null) {
+                AviatorEvaluator.addFunction(function);
+            }
+        }
+        AviatorExpressionCache.getInstance().clear();
+        ClassifiedSummaryPlan.getPlanCache().clear();
+    }
+
+    public static synchronized BenchmarkEnvironment getInstance() {
+        if (instance == null) {
+            instance = new BenchmarkEnvironment();
+        }
+        return instance;
+    }
+
+    private static String[] loadFunctionNames() {
+        Properties properties = new Properties();
+        try (InputStream in = BenchmarkEnvironment.class.getClassLoader().getResourceAsStream(FUNCTION_INFO_PROPERTIES)) {
+            if (in == null) {
+                throw new IllegalStateException("找不到自定义方法列表配置：" + FUNCTION_INFO_PROPERTIES);
+            }
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("读取自定义方法列表配置失败：" + FUNCTION_INFO_PROPERTIES, e);
+        }
+        String functions = properties.getProperty(FUNCTION_LIST_KEY);
+        return StringUtils.isEmpty(functions) ? new String[0] : functions.split(",");
+    }
+
+    public SummaryExecutor getSummaryExecutor() {
+        return context.getBean(SummaryExecutor.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public DimenStreamExecutor<com.alibaba.fastjson.JSON> getDimenStreamExecutor() {
+        return context.getBean(DimenStreamExecutor.class);
+    }
+
+    public DimensionUnitBuilder getDimensionUnitBuilder() {
+        return context.getBean(DimensionUnitBuilder.class);
+    }
+}
@@ -0,0 +1,25 @@
+package com.grq.rezero.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * <pre>
+ *     性能测试入口：参数与 JMH 命令行相同，默认附加 GC 分析（等同于 -prof gc），
+ *     输出每次调用的内存分配量 (gc.alloc.rate.norm) 与 GC 次数；
+ *
+ *     例如：java -jar target/benchmarks.jar FunctionBenchmark.classify -p rows=1000000 -p skew=1.5
+ * </pre>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
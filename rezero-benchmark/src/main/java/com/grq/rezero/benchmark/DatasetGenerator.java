@@ -0,0 +1,153 @@
+package com.grq.rezero.benchmark;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <pre>
+ *     合成数据集生成器，数据格式与 BaseJsonArrayConvertor 的转换结果相同（Key 带 "student." 前缀）；
+ *
+ *     可控制的数据特征：
+ *     1. rows：数据条数；
+ *     2. cardinality：分类字段 student.class 与关联信息字段 location 的不同值数量；
+ *     3. skew：分类字段的倾斜程度，按 Zipf 分布取值，0 为均匀分布，越大热点值越集中；
+ *     4. relationDepth：关联信息的嵌套层数，1 层时字段表达式为 student@college.location，
+ *        n 层时为 student@college.level1....level(n-1).location；
+ *     其余字段：student.name 各不相同，student.score 为整数或一位小数，student.age 为数字字符串（部分缺失），
+ *     约三分之一的数据没有关联信息；相同参数与种子生成的数据相同；
+ * </pre>
+ */
+public class DatasetGenerator {
+    public static final String PREFIX = "student";
+    public static final String NAME_FIELD = PREFIX + ".name";
+    public static final String CLASS_FIELD = PREFIX + ".class";
+    public static final String SCORE_FIELD = PREFIX + ".score";
+    public static final String AGE_FIELD = PREFIX + ".age";
+    public static final String RELATION_INFO_FIELD = PREFIX + ".relationInfo";
+
+    private final int rows;
+    private final int cardinality;
+    private final double skew;
+    private final int relationDepth;
+    private long seed = 42;
+
+    public DatasetGenerator(int rows, int cardinality, double skew, int relationDepth) {
+        if (rows < 0 || cardinality < 1 || skew < 0 || relationDepth < 1) {
+            throw new IllegalArgumentException(String.format("数据集参数错误：rows=%d, cardinality=%d, skew=%s, relationDepth=%d",
+                    rows, cardinality, skew, relationDepth));
+        }
+        this.rows = rows;
+        this.cardinality = cardinality;
+        this.skew = skew;
+        this.relationDepth = relationDepth;
+    }
+
+    /**
+     * 生成数据集
+     */
+    public JSONArray generate() {
+        Random random = new Random(seed);
+        double[] cumulative = zipfCumulative();
+        JSONArray result = new JSONArray(rows);
+        for (int i = 0; i < rows; i++) {
+            JSONObject entity = new JSONObject();
+            entity.put(NAME_FIELD, "s" + i);
+            entity.put(CLASS_FIELD, classValue(sample(cumulative, random)));
+            entity.put(SCORE_FIELD, random.nextBoolean() ? (Object) random.nextInt(100) : (Object) (random.nextInt(1000) / 10.0));
+            if (random.nextInt(8) > 0) {
+                entity.put(AGE_FIELD, String.valueOf(15 + random.nextInt(10)));
+            }
+            if (random.nextInt(3) > 0) {
+                entity.put(RELATION_INFO_FIELD, relationInfo(locationValue(sample(cumulative, random))));
+            }
+            result.add(entity);
+        }
+        return result;
+    }
+
+    /**
+     * 嵌套的关联信息：{"college": {"level1": {... {"location": value}}}}
+     */
+    private JSONObject relationInfo(String location) {
+        JSONObject inner = new JSONObject();
+        inner.put("location", location);
+        for (int level = relationDepth - 1; level >= 1; level--) {
+            JSONObject outer = new JSONObject();
+            outer.put("level" + level, inner);
+            inner = outer;
+        }
+        JSONObject relationInfo = new JSONObject();
+        relationInfo.put("college", inner);
+        return relationInfo;
+    }
+
+    /**
+     * Zipf 分布的累积概率，第 k 个值的权重为 1 / (k + 1)^skew
+     */
+    private double[] zipfCumulative() {
+        double[] cumulative = new double[cardinality];
+        double sum = 0;
+        for (int k = 0; k < cardinality; k++) {
+            sum += 1.0 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < cardinality; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min((index >= 0) ? index : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * 分类字段的第 k 个值
+     */
+    public static String classValue(int k) {
+        return "C" + k;
+    }
+
+    public static String locationValue(int k) {
+        return "L" + k;
+    }
+
+    /**
+     * 关联信息字段表达式
+     */
+    public String relationField() {
+        StringBuilder field = new StringBuilder(PREFIX).append("@college.");
+        for (int level = 1; level < relationDepth; level++) {
+            field.append("level").append(level).append('.');
+        }
+        return field.append("location").toString();
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public double getSkew() {
+        return skew;
+    }
+
+    public int getRelationDepth() {
+        return relationDepth;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
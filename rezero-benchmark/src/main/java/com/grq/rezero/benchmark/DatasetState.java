@@ -0,0 +1,41 @@
+package com.grq.rezero.benchmark;
+
+import com.alibaba.fastjson.JSONArray;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * <pre>
+ *     各性能测试共用的数据集参数，可在命令行中通过 -p 覆盖，例如 -p rows=1000000 -p skew=1.5；
+ *     数据集在每次试验 (Trial) 前生成一次，测试方法不能修改数据集；
+ * </pre>
+ *
+ * @see DatasetGenerator
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"16", "4096"})
+    public int cardinality;
+
+    @Param({"0", "1.1"})
+    public double skew;
+
+    @Param({"1"})
+    public int relationDepth;
+
+    public DatasetGenerator generator;
+    public JSONArray src;
+
+    @Setup(Level.Trial)
+    public void setUpDataset() {
+        BenchmarkEnvironment.getInstance();
+        generator = new DatasetGenerator(rows, cardinality, skew, relationDepth);
+        src = generator.generate();
+    }
+}
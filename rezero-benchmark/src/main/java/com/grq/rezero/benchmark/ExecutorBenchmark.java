@@ -0,0 +1,124 @@
+package com.grq.rezero.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.dimension.units.OutputStringChainUnit;
+import com.grq.rezero.dimension.util.DimensionUnitBuilder;
+import com.grq.rezero.executor.DimenStreamExecutor;
+import com.grq.rezero.executor.SummaryExecutor;
+import com.grq.rezero.function.FunctionType;
+import com.grq.rezero.summary.SummaryUnit;
+import com.grq.rezero.summary.SummaryUnitChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     执行器性能测试：
+ *     1. summary：SummaryExecutor#summary 执行完整的统计单元链（逐行、并发、列式三种模式）；
+ *     2. dimenChain：DimenStreamExecutor#doProcessDimenChainUnits 执行单个维度单元链
+ *        fieldEqual → classify → classifiedSummary → join；
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecutorBenchmark {
+    private SummaryExecutor summaryExecutor;
+    private SummaryExecutor parallelExecutor;
+    private SummaryExecutor columnarExecutor;
+    private DimenStreamExecutor<JSON> dimenStreamExecutor;
+    private SummaryUnitChain summaryUnitChain;
+    private List<AbstractDimensionChainUnit> dimenUnits;
+
+    @Setup(Level.Trial)
+    public void setUp(DatasetState dataset) {
+        BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        dimenStreamExecutor = environment.getDimenStreamExecutor();
+        summaryExecutor = environment.getSummaryExecutor();
+        parallelExecutor = newExecutor();
+        parallelExecutor.setParallel(true);
+        columnarExecutor = newExecutor();
+        columnarExecutor.setColumnar(true);
+
+        DimensionUnitBuilder builder = environment.getDimensionUnitBuilder();
+        String relationField = dataset.generator.relationField();
+        String fieldEqual = String.format("[%s=%s][%s=%s|%s]", DatasetGenerator.CLASS_FIELD, DatasetGenerator.classValue(0),
+                DatasetGenerator.CLASS_FIELD, DatasetGenerator.classValue(1), DatasetGenerator.classValue(2));
+        dimenUnits = Arrays.asList(
+                builder.buildDimenUnit(FunctionType.LISTADVANCED_FIELDEQUAL, fieldEqual),
+                builder.buildDimenUnit(FunctionType.LIST2ENTITY_CLASSIFY, relationField),
+                builder.buildDimenUnit(FunctionType.ENTITY2LIST_CLASSIFIED_SUMMARY,
+                        "_%KEY%_：人数 #{classifiedSize(list,aviatorArgs)}#，总分 #{sumByField(list,aviatorArgs)}#",
+                        "", DatasetGenerator.SCORE_FIELD),
+                builder.buildDimenUnit(FunctionType.LIST2STRING_JOIN, "；"));
+
+        List<SummaryUnit> units = new ArrayList<>();
+        units.add(new SummaryUnit(new OutputStringChainUnit(null, "班级数：")));
+        units.add(new SummaryUnit(builder.buildDimenUnit(FunctionType.LIST2STRING_CLASSIFIED_SIZE, DatasetGenerator.CLASS_FIELD)));
+        units.add(new SummaryUnit(new OutputStringChainUnit(null, "\n")));
+        units.add(new SummaryUnit(
+                builder.buildDimenUnit(FunctionType.LIST2ENTITY_CLASSIFY, DatasetGenerator.CLASS_FIELD),
+                builder.buildDimenUnit(FunctionType.ENTITY2LIST_CLASSIFIED_SUMMARY,
+                        "_%KEY%_：人数 #{classifiedSize(list,aviatorArgs)}#，总分 #{sumByField(list,aviatorArgs)}#，地点数 #{classifiedSize(list,aviatorArgs)}#",
+                        "", DatasetGenerator.SCORE_FIELD, relationField),
+                builder.buildDimenUnit(FunctionType.LIST2STRING_JOIN, "；")));
+        units.add(new SummaryUnit(new OutputStringChainUnit(null, "\n")));
+        units.add(new SummaryUnit(dimenUnits));
+        units.add(new SummaryUnit(new OutputStringChainUnit(null, "\n")));
+        units.add(new SummaryUnit(
+                builder.buildDimenUnit(FunctionType.LISTADVANCED_FIELDEQUAL, fieldEqual),
+                builder.buildDimenUnit(FunctionType.LIST2STRING_SUMMARYBYFIELD, DatasetGenerator.SCORE_FIELD)));
+        units.add(new SummaryUnit(new OutputStringChainUnit(null, "\n")));
+        units.add(new SummaryUnit(
+                builder.buildDimenUnit(FunctionType.LISTADVANCED_FIELDEQUAL, fieldEqual),
+                builder.buildDimenUnit(FunctionType.LISTADVANCED_FIELDSORT, DatasetGenerator.AGE_FIELD),
+                builder.buildDimenUnit(FunctionType.LISTADVANCED_EXTRACTOR, "${student.name}$:${student.age}$"),
+                builder.buildDimenUnit(FunctionType.LIST2STRING_JOIN, ",")));
+        summaryUnitChain = new SummaryUnitChain();
+        summaryUnitChain.setSummaryUnits(units);
+    }
+
+    private SummaryExecutor newExecutor() {
+        SummaryExecutor executor = new SummaryExecutor();
+        executor.setDimenStreamExecutor(dimenStreamExecutor);
+        return executor;
+    }
+
+    @Benchmark
+    public String summary(DatasetState dataset) {
+        return summaryExecutor.summary(dataset.src, summaryUnitChain);
+    }
+
+    @Benchmark
+    public String summaryParallel(DatasetState dataset) {
+        return parallelExecutor.summary(dataset.src, summaryUnitChain);
+    }
+
+    @Benchmark
+    public String summaryColumnar(DatasetState dataset) {
+        return columnarExecutor.summary(dataset.src, summaryUnitChain);
+    }
+
+    @Benchmark
+    public String dimenChain(DatasetState dataset) {
+        return dimenStreamExecutor.doProcessDimenChainUnits(dataset.src, dimenUnits);
+    }
+}
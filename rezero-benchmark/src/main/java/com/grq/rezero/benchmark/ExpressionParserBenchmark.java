@@ -0,0 +1,60 @@
+package com.grq.rezero.benchmark;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.expression.ExpressionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     表达式解析性能测试：ExpressionParser#executeExpression 对数据集的每条数据执行一次；
+ *     1. fields：只包含字段单元（普通字段与关联信息字段）；
+ *     2. functions：包含 Aviator 方法单元；
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionParserBenchmark {
+    private String fieldExpression;
+    private String functionExpression;
+
+    @Setup(Level.Trial)
+    public void setUp(DatasetState dataset) {
+        String relationField = dataset.generator.relationField();
+        fieldExpression = "${student.name}$(${student.age}$,${" + relationField + "}$)";
+        functionExpression = "${student.name}$:#{${student.score}$ * 2}#,#{'${" + relationField + "}$'}#";
+    }
+
+    @Benchmark
+    public void fields(DatasetState dataset, Blackhole blackhole) {
+        execute(dataset.src, fieldExpression, blackhole);
+    }
+
+    @Benchmark
+    public void functions(DatasetState dataset, Blackhole blackhole) {
+        execute(dataset.src, functionExpression, blackhole);
+    }
+
+    private static void execute(JSONArray src, String expression, Blackhole blackhole) {
+        for (Object obj : src) {
+            blackhole.consume(ExpressionParser.executeExpression((JSONObject) obj, expression));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.grq.rezero.benchmark;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.dimension.util.DimensionUnitBuilder;
+import com.grq.rezero.executor.DimenStreamExecutor;
+import com.grq.rezero.function.FunctionType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     Aviator 方法性能测试：每个方法通过对应的维度单元执行（与统计单元链中的调用方式相同）；
+ *     classifiedSummary 的输入为 classify 的结果，join 的输入为 extractor 的结果，均在准备阶段生成；
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FunctionBenchmark {
+    private DimenStreamExecutor<JSON> executor;
+
+    private AbstractDimensionChainUnit classifyUnit;
+    private AbstractDimensionChainUnit fieldEqualUnit;
+    private AbstractDimensionChainUnit fieldSortUnit;
+    private AbstractDimensionChainUnit topNUnit;
+    private AbstractDimensionChainUnit sumByFieldUnit;
+    private AbstractDimensionChainUnit classifiedSizeUnit;
+    private AbstractDimensionChainUnit classifiedSummaryUnit;
+    private AbstractDimensionChainUnit extractorUnit;
+    private AbstractDimensionChainUnit joinUnit;
+
+    private JSONObject classified;
+    private JSONArray extracted;
+
+    @Setup(Level.Trial)
+    public void setUp(DatasetState dataset) {
+        BenchmarkEnvironment environment = BenchmarkEnvironment.getInstance();
+        executor = environment.getDimenStreamExecutor();
+        DimensionUnitBuilder builder = environment.getDimensionUnitBuilder();
+        String relationField = dataset.generator.relationField();
+
+        classifyUnit = builder.buildDimenUnit(FunctionType.LIST2ENTITY_CLASSIFY, DatasetGenerator.CLASS_FIELD);
+        fieldEqualUnit = builder.buildDimenUnit(FunctionType.LISTADVANCED_FIELDEQUAL,
+                String.format("[%s=%s|%s][%s=%s]", DatasetGenerator.CLASS_FIELD, DatasetGenerator.classValue(0),
+                        DatasetGenerator.classValue(1), relationField, DatasetGenerator.locationValue(2)));
+        fieldSortUnit = builder.buildDimenUnit(FunctionType.LISTADVANCED_FIELDSORT, DatasetGenerator.AGE_FIELD);
+        topNUnit = builder.buildDimenUnit(FunctionType.LISTADVANCED_TOPN, "10;" + DatasetGenerator.SCORE_FIELD + ":double:desc");
+        sumByFieldUnit = builder.buildDimenUnit(FunctionType.LIST2STRING_SUMMARYBYFIELD, DatasetGenerator.SCORE_FIELD);
+        classifiedSizeUnit = builder.buildDimenUnit(FunctionType.LIST2STRING_CLASSIFIED_SIZE, DatasetGenerator.NAME_FIELD);
+        classifiedSummaryUnit = builder.buildDimenUnit(FunctionType.ENTITY2LIST_CLASSIFIED_SUMMARY,
+                "_%KEY%_：人数 #{classifiedSize(list,aviatorArgs)}#，总分 #{sumByField(list,aviatorArgs)}#，地点数 #{classifiedSize(list,aviatorArgs)}#",
+                "", DatasetGenerator.SCORE_FIELD, relationField);
+        extractorUnit = builder.buildDimenUnit(FunctionType.LISTADVANCED_EXTRACTOR,
+                "${student.name}$(${student.age}$,${" + relationField + "}$)");
+        joinUnit = builder.buildDimenUnit(FunctionType.LIST2STRING_JOIN, ",");
+
+        classified = (JSONObject) executor.doProcessDimenChainUnit(dataset.src, classifyUnit, 0);
+        extracted = (JSONArray) executor.doProcessDimenChainUnit(dataset.src, extractorUnit, 0);
+    }
+
+    @Benchmark
+    public Object classify(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, classifyUnit, 0);
+    }
+
+    @Benchmark
+    public Object fieldEqual(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, fieldEqualUnit, 0);
+    }
+
+    @Benchmark
+    public Object fieldSort(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, fieldSortUnit, 0);
+    }
+
+    @Benchmark
+    public Object topN(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, topNUnit, 0);
+    }
+
+    @Benchmark
+    public Object sumByField(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, sumByFieldUnit, 0);
+    }
+
+    @Benchmark
+    public Object classifiedSize(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, classifiedSizeUnit, 0);
+    }
+
+    @Benchmark
+    public Object classifiedSummary() {
+        return executor.doProcessDimenChainUnit(classified, classifiedSummaryUnit, 0);
+    }
+
+    @Benchmark
+    public Object extractor(DatasetState dataset) {
+        return executor.doProcessDimenChainUnit(dataset.src, extractorUnit, 0);
+    }
+
+    @Benchmark
+    public Object join() {
+        return executor.doProcessDimenChainUnit(extracted, joinUnit, 0);
+    }
+}
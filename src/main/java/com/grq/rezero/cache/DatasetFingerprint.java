@@ -0,0 +1,127 @@
+package com.grq.rezero.cache;
+
+import com.alibaba.fastjson.JSONArray;
+import com.grq.rezero.columnar.ColumnarFile;
+import com.grq.rezero.columnar.ColumnarJSONArray;
+import com.grq.rezero.function.calculate.DistinctCounter;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     数据集指纹：遍历一次数据集，计算内容的 64 位哈希，用于判断两次统计的数据集内容是否相同；
+ *
+ *     1. 数据行按顺序累加（分类顺序等统计结果与数据行顺序有关），JSONObject 中的字段与顺序无关；
+ *     2. 值的类型参与计算：数值 1 与字符串 "1" 的指纹不同；数值只区分整数（Integer 与 Long 相同）、BigDecimal 与浮点数；
+ *     3. 不创建中间对象，不序列化为 JSON 字符串，开销与数据集的字段数量成正比，远小于统计本身；
+ *     内容不同的数据集指纹相同的概率约为 2^-64；无法识别的值使用 String.valueOf 计算；
+ *     列式数据文件中的全部数据直接使用写入时计算的指纹，不解析数据（见 ColumnarFile#getFingerprint）；
+ * </pre>
+ *
+ * @see SummaryResultCache
+ */
+public class DatasetFingerprint {
+    private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+
+    private DatasetFingerprint() {
+    }
+
+    /**
+     * 计算数据集指纹
+     *
+     * @param src 数据集，为 null 时返回固定值
+     * @return 64 位指纹
+     */
+    public static long of(JSONArray src) {
+        if (src == null) {
+            return NULL_HASH;
+        }
+        if (src instanceof ColumnarJSONArray && ((ColumnarJSONArray) src).isFullBatch()) {
+            ColumnarFile file = ((ColumnarJSONArray) src).getBatch().getFile();
+            if (file != null) {
+                return file.getFingerprint();
+            }
+        }
+        return hash(src);
+    }
+
+    /**
+     * 计算单条数据的指纹，规则与数据集指纹相同
+     *
+     * @param row 数据，可以为 null
+     * @return 64 位指纹
+     * @see com.grq.rezero.executor.MaterializedSummary
+     */
+    public static long ofRow(Object row) {
+        return hash(row);
+    }
+
+    private static long hash(Object value) {
+        if (value == null) {
+            return NULL_HASH;
+        }
+        if (value instanceof String) {
+            return mix(DistinctCounter.hash64((String) value) ^ 0x1L);
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return mix(((Number) value).longValue() * 0x100000001b3L ^ 0x2L);
+        }
+        if (value instanceof BigDecimal) {
+            return mix(DistinctCounter.hash64(((BigDecimal) value).toString()) ^ 0x3L);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return mix(Double.doubleToLongBits(((Number) value).doubleValue()) ^ 0x4L);
+        }
+        if (value instanceof Boolean) {
+            return mix((Boolean) value ? 0x5L : 0x6L);
+        }
+        if (value instanceof Map) {
+            // 字段之间与顺序无关，每个字段的 Key 与值先混合，再求和
+            long h = 0x7L;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                h += mix(hash(entry.getKey()) * 31 + hash(entry.getValue()));
+            }
+            return mix(h ^ ((Map<?, ?>) value).size());
+        }
+        if (value instanceof Collection) {
+            Accumulator accumulator = new Accumulator();
+            for (Object element : (Collection<?>) value) {
+                accumulator.add(element);
+            }
+            return accumulator.finish();
+        }
+        return mix(DistinctCounter.hash64(value.getClass().getName() + ':' + value) ^ 0x9L);
+    }
+
+    /**
+     * 逐条累加数据行的指纹，结果与 of(整个数据集) 相同；
+     * 用于不在内存中同时保存所有数据行的场景（例如写入列式数据文件）
+     */
+    public static final class Accumulator {
+        private long hash = 0x8L;
+        private int size;
+
+        public void add(Object row) {
+            hash = (hash ^ DatasetFingerprint.hash(row)) * 0x100000001b3L;
+            size++;
+        }
+
+        public long finish() {
+            return mix(hash ^ size);
+        }
+    }
+
+    /**
+     * MurmurHash3 的 64 位混合
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,251 @@
+package com.grq.rezero.cache;
+
+import com.grq.rezero.metrics.MetricsContext;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * <pre>
+ *     有界 LRU 缓存，内部使用按访问顺序排序的 LinkedHashMap 实现；
+ *
+ *     1. 缓存数量超过 maxSize 时，淘汰最久未被访问的元素；
+ *     2. 记录命中、未命中、淘汰次数，用于观察缓存效果；命中情况同时记在当前线程正在执行的维度单元上（见 MetricsContext）；
+ *     3. 所有读写操作均加锁，可在多线程环境下使用；加载方法 loader 在锁外执行，避免耗时加载阻塞其他线程；
+ * </pre>
+ *
+ * @param <K> Key 类型
+ * @param <V> Value 类型
+ */
+public class LruCache<K, V> {
+    /**
+     * 默认缓存数量上限
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /**
+     * 缓存名称，用于日志与统计信息
+     */
+    private final String name;
+    /**
+     * 缓存数量上限
+     */
+    private volatile int maxSize;
+
+    private final LinkedHashMap<K, V> map;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public LruCache(String name) {
+        this(name, DEFAULT_MAX_SIZE);
+    }
+
+    public LruCache(String name, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(String.format("缓存 [%s] 数量上限必须大于 0，当前值为 [%d]", name, maxSize));
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictionCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存内容，并记录命中情况
+     *
+     * @param key Key
+     * @return 缓存内容，不存在时返回 null
+     */
+    public V get(K key) {
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        MetricsContext.recordCacheAccess(value != null);
+        return value;
+    }
+
+    /**
+     * 获取缓存内容，如果不存在则使用 loader 加载并放入缓存
+     * <pre>
+     *     loader 在锁外执行，并发情况下同一个 Key 可能被加载多次，但只保留最先放入的结果；
+     *     loader 返回 null 时不放入缓存；
+     * </pre>
+     *
+     * @param key    Key
+     * @param loader 加载方法
+     * @return 缓存内容
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+        synchronized (map) {
+            V existed = map.get(key);
+            if (existed != null) {
+                return existed;
+            }
+            map.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * 在锁内根据当前缓存内容原子地计算新的缓存内容，用于需要检查后再替换的场景
+     * <pre>
+     *     remapping 在锁内执行，会阻塞其他线程访问本缓存，只应做轻量的判断与创建，耗时的加载应在锁外进行；
+     *     remapping 返回当前缓存内容时记为命中，否则记为未命中；返回 null 时移除该 Key；
+     * </pre>
+     *
+     * @param key       Key
+     * @param remapping 根据 Key 与当前缓存内容（不存在时为 null）计算新的缓存内容
+     * @return 新的缓存内容
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remapping) {
+        V existed;
+        V value;
+        synchronized (map) {
+            existed = map.get(key);
+            value = remapping.apply(key, existed);
+            if (value == null) {
+                map.remove(key);
+            } else if (value != existed) {
+                map.put(key, value);
+            }
+        }
+        boolean hit = (existed != null && value == existed);
+        if (hit) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        MetricsContext.recordCacheAccess(hit);
+        return value;
+    }
+
+    public void put(K key, V value) {
+        synchronized (map) {
+            map.put(key, value);
+        }
+    }
+
+    public V invalidate(K key) {
+        synchronized (map) {
+            return map.remove(key);
+        }
+    }
+
+    /**
+     * 移除所有满足条件的元素
+     *
+     * @param predicate 对 Key 的判断条件
+     * @return 移除的元素个数
+     */
+    public int invalidateAll(Predicate<? super K> predicate) {
+        int removed = 0;
+        synchronized (map) {
+            Iterator<K> iterator = map.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (predicate.test(iterator.next())) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    /**
+     * 命中率，没有访问记录时返回 0
+     *
+     * @return 命中率 [0, 1]
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return (total == 0) ? 0.0 : (double) hits / total;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 修改缓存数量上限；数量缩小时，立即淘汰多出的最久未访问元素
+     *
+     * @param maxSize 缓存数量上限
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(String.format("缓存 [%s] 数量上限必须大于 0，当前值为 [%d]", name, maxSize));
+        }
+        synchronized (map) {
+            this.maxSize = maxSize;
+            Iterator<K> iterator = map.keySet().iterator();
+            while (map.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LruCache[%s] size=%d/%d, hit=%d, miss=%d, eviction=%d",
+                name, size(), maxSize, hitCount.get(), missCount.get(), evictionCount.get());
+    }
+}
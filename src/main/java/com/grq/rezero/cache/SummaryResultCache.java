@@ -0,0 +1,238 @@
+package com.grq.rezero.cache;
+
+import com.alibaba.fastjson.JSONArray;
+import com.grq.rezero.function.calculate.DistinctCounter;
+import com.grq.rezero.summary.SummaryUnitChain;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     统计结果缓存：相同数据集内容与相同统计单元链的统计结果只计算一次；
+ *
+ *     1. Key 由数据集标识、数据集指纹 (DatasetFingerprint)、数据条数与统计单元链签名组成：
+ *        数据集内容变化后指纹不同，不会命中旧的结果；数据集标识只用于按数据集失效，可以为 null；
+ *     2. 缓存数量上限为 maxSize，超出时淘汰最久未访问的结果 (LRU)；
+ *        结果放入缓存超过 ttl 后视为过期，下次访问时移除并重新统计；ttl 不大于 0 时不过期；
+ *     3. invalidate(datasetId) 移除该数据集的所有结果，clear() 移除所有结果；
+ *     4. 记录命中、未命中、过期次数，getHitRatio 返回命中率；
+ *
+ *     注：缓存假设统计结果只由数据集与统计单元链决定，修改自定义方法、全局配置（例如近似计数的默认精度）后需要 clear()；
+ *     只缓存所有统计单元都执行成功的结果；
+ * </pre>
+ *
+ * @see com.grq.rezero.executor.SummaryExecutor#summary(String, JSONArray, SummaryUnitChain)
+ */
+public class SummaryResultCache {
+    /**
+     * 默认缓存数量上限
+     */
+    public static final int DEFAULT_MAX_SIZE = 256;
+    /**
+     * 默认过期时间：1 分钟
+     */
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final LruCache<Key, Entry> cache;
+    /**
+     * 过期时间（纳秒），不大于 0 时不过期
+     */
+    private final long ttlNanos;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    public SummaryResultCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_TTL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param maxSize 缓存数量上限
+     * @param ttl     过期时间，不大于 0 时不过期
+     * @param unit    过期时间单位
+     */
+    public SummaryResultCache(int maxSize, long ttl, TimeUnit unit) {
+        this.cache = new LruCache<>("summaryResult", maxSize);
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * 计算缓存 Key：遍历一次数据集计算指纹
+     *
+     * @param datasetId        数据集标识，可以为 null
+     * @param src              数据集
+     * @param summaryUnitChain 统计单元链
+     * @return 缓存 Key
+     */
+    public static Key key(String datasetId, JSONArray src, SummaryUnitChain summaryUnitChain) {
+        return new Key(datasetId, DatasetFingerprint.of(src), (src == null) ? -1 : src.size(),
+                summaryUnitChain.getSignature());
+    }
+
+    /**
+     * 获取统计结果，过期时移除
+     *
+     * @param key 缓存 Key
+     * @return 统计结果，不存在或已过期时返回 null
+     */
+    public String get(Key key) {
+        Entry entry = cache.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.createdNanos > ttlNanos) {
+            cache.invalidate(key);
+            expiredCount.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.result;
+    }
+
+    public void put(Key key, String result) {
+        cache.put(key, new Entry(result, System.nanoTime()));
+    }
+
+    /**
+     * 移除数据集的所有统计结果
+     *
+     * @param datasetId 数据集标识
+     * @return 移除的结果个数
+     */
+    public int invalidate(String datasetId) {
+        return cache.invalidateAll(key -> Objects.equals(key.datasetId, datasetId));
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return cache.getMaxSize();
+    }
+
+    public void setMaxSize(int maxSize) {
+        cache.setMaxSize(maxSize);
+    }
+
+    public long getTtlMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+    }
+
+    /**
+     * 命中率，没有访问记录时返回 0
+     *
+     * @return 命中率 [0, 1]
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return (total == 0) ? 0.0 : (double) hits / total;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 未命中次数，包括过期的访问
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SummaryResultCache size=%d/%d, hit=%d, miss=%d, expired=%d, eviction=%d, hitRatio=%.3f",
+                size(), getMaxSize(), hitCount.get(), missCount.get(), expiredCount.get(), getEvictionCount(),
+                getHitRatio());
+    }
+
+    /**
+     * 缓存 Key
+     */
+    public static final class Key {
+        private final String datasetId;
+        private final long datasetFingerprint;
+        private final int rows;
+        /**
+         * 统计单元链签名，与其哈希一起保存，比较时先比较哈希
+         */
+        private final String chainSignature;
+        private final long chainFingerprint;
+
+        private Key(String datasetId, long datasetFingerprint, int rows, String chainSignature) {
+            this.datasetId = datasetId;
+            this.datasetFingerprint = datasetFingerprint;
+            this.rows = rows;
+            this.chainSignature = chainSignature;
+            this.chainFingerprint = DistinctCounter.hash64(chainSignature);
+        }
+
+        public String getDatasetId() {
+            return datasetId;
+        }
+
+        public long getDatasetFingerprint() {
+            return datasetFingerprint;
+        }
+
+        public long getChainFingerprint() {
+            return chainFingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return datasetFingerprint == key.datasetFingerprint && chainFingerprint == key.chainFingerprint
+                    && rows == key.rows && Objects.equals(datasetId, key.datasetId)
+                    && chainSignature.equals(key.chainSignature);
+        }
+
+        @Override
+        public int hashCode() {
+            long h = datasetFingerprint * 31 + chainFingerprint;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s#%016x#%016x", datasetId, datasetFingerprint, chainFingerprint);
+        }
+    }
+
+    /**
+     * 缓存内容：统计结果与放入时间
+     */
+    private static class Entry {
+        private final String result;
+        private final long createdNanos;
+
+        private Entry(String result, long createdNanos) {
+            this.result = result;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
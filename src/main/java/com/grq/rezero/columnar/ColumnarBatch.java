@@ -0,0 +1,183 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.expression.FieldAccessor;
+import com.grq.rezero.metrics.MetricsContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ *     列式数据批：由 JSONArray 构建一次，按需将字段值转换为列，供列式实现的列表方法使用；
+ *
+ *     1. 构建时复制数据行的引用，之后对原 JSONArray 的修改不影响数据批；
+ *     2. 列在第一次使用时构建并缓存，覆盖数据批中的全部数据行，所有筛选结果、分类结果共用同一份列；
+ *        (1) 数值列 (NumericColumn)：按字段名直接取值，与 sumByField 的取值方式相同；
+ *        (2) 字典编码列 (DictionaryColumn)：按 FieldAccessor 取字符串值，与 fieldEqual / fieldSort / classify / classifiedSize 的取值方式相同；
+ *        (3) 字段索引 (FieldIndex)：由字典编码列构建的 值 → 行号 索引，对整个数据批的分类、筛选不需要再遍历数据；
+ *     3. 数据批中存在不是 JSONObject 的数据、或者构建列时抛出异常时，该列不可用，返回 null，由调用方回退到逐行实现，
+ *        保证抛出的异常与原方法相同；
+ *
+ *     4. 由列式数据文件 (ColumnarFile) 打开的数据批不在堆内保存数据行：列直接使用文件中已保存的列，
+ *        文件中没有保存的列不可用；数据行只在逐行处理时按需从文件中解析，不缓存；
+ *
+ *     列可能被多个统计单元并发构建，列缓存使用 ConcurrentHashMap，构建完成后的列只读；
+ *     每次获取列时记录是否已构建（见 MetricsContext#recordIndexAccess）；
+ * </pre>
+ *
+ * @see ColumnarJSONArray
+ * @see ColumnarOperators
+ */
+public class ColumnarBatch {
+    private static Logger LOG = LoggerFactory.getLogger(ColumnarBatch.class);
+
+    /**
+     * 列缓存中的占位值，表示该列不可用
+     */
+    private static final Object UNAVAILABLE = new Object();
+
+    private static final String NUMERIC_PREFIX = "n:";
+    private static final String DICTIONARY_PREFIX = "d:";
+    private static final String INDEX_PREFIX = "i:";
+
+    /**
+     * 数据行，由列式数据文件打开时为 null
+     */
+    private final Object[] rows;
+    /**
+     * 列式数据文件，由 JSONArray 构建时为 null
+     */
+    private final ColumnarFile file;
+    private final int size;
+    /**
+     * 是否所有数据行都是 JSONObject
+     */
+    private final boolean allEntities;
+    /**
+     * 已构建的列，Key 为列类型前缀 + 字段表达式
+     */
+    private final Map<String, Object> columns = new ConcurrentHashMap<>();
+
+    public ColumnarBatch(JSONArray src) {
+        this.rows = (src == null) ? new Object[0] : src.toArray();
+        this.file = null;
+        this.size = rows.length;
+        boolean entities = true;
+        for (Object row : rows) {
+            if (!(row instanceof JSONObject)) {
+                entities = false;
+                break;
+            }
+        }
+        this.allEntities = entities;
+    }
+
+    ColumnarBatch(ColumnarFile file) {
+        this.rows = null;
+        this.file = file;
+        this.size = file.size();
+        this.allEntities = file.isAllEntities();
+    }
+
+    /**
+     * 获取数值列
+     *
+     * @param field 字段名
+     * @return 数值列，不可用时返回 null
+     */
+    public NumericColumn numericColumn(String field) {
+        if (!allEntities || field == null) {
+            return null;
+        }
+        Object column = column(NUMERIC_PREFIX + field, key -> {
+            try {
+                return (file == null) ? NumericColumn.build(rows, field) : available(file.numericColumn(field));
+            } catch (RuntimeException e) {
+                LOG.debug("数值列 [{}] 构建失败，回退到逐行计算：[{}]", field, e.getMessage());
+                return UNAVAILABLE;
+            }
+        });
+        return (column == UNAVAILABLE) ? null : (NumericColumn) column;
+    }
+
+    /**
+     * 获取字典编码列
+     *
+     * @param expression 字段表达式，支持关联信息字段
+     * @return 字典编码列，不可用时返回 null
+     */
+    public DictionaryColumn dictionaryColumn(String expression) {
+        if (!allEntities || expression == null) {
+            return null;
+        }
+        Object column = column(DICTIONARY_PREFIX + expression, key -> {
+            try {
+                return (file == null) ? DictionaryColumn.build(rows, FieldAccessor.compile(expression))
+                        : available(file.dictionaryColumn(expression));
+            } catch (RuntimeException e) {
+                LOG.debug("字典编码列 [{}] 构建失败，回退到逐行计算：[{}]", expression, e.getMessage());
+                return UNAVAILABLE;
+            }
+        });
+        return (column == UNAVAILABLE) ? null : (DictionaryColumn) column;
+    }
+
+    /**
+     * 获取字段索引
+     *
+     * @param expression 字段表达式，支持关联信息字段
+     * @return 字段索引，不可用时返回 null
+     */
+    public FieldIndex index(String expression) {
+        // 先获取字典编码列，不在 computeIfAbsent 中嵌套修改列缓存
+        DictionaryColumn column = dictionaryColumn(expression);
+        if (column == null) {
+            return null;
+        }
+        return (FieldIndex) column(INDEX_PREFIX + expression, key -> FieldIndex.build(column));
+    }
+
+    /**
+     * 获取已构建的列，不存在时构建并缓存
+     */
+    private Object column(String key, Function<String, Object> builder) {
+        Object column = columns.get(key);
+        MetricsContext.recordIndexAccess(column != null);
+        return (column != null) ? column : columns.computeIfAbsent(key, builder);
+    }
+
+    private static Object available(Object column) {
+        return (column == null) ? UNAVAILABLE : column;
+    }
+
+    Object getRow(int index) {
+        return (rows != null) ? rows[index] : file.readRow(index);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 数据批所在的列式数据文件，由 JSONArray 构建时返回 null
+     */
+    public ColumnarFile getFile() {
+        return file;
+    }
+
+    public boolean isAllEntities() {
+        return allEntities;
+    }
+
+    /**
+     * 已构建（包括不可用）的列数量
+     */
+    public int getColumnCount() {
+        return columns.size();
+    }
+}
@@ -0,0 +1,326 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSON;
+import com.grq.rezero.exception.DynamicSummaryException;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ *     列式数据文件：由 ColumnarFileWriter 写入，打开时将文件映射到内存 (FileChannel#map)，不解析数据；
+ *
+ *     1. 打开时只读取文件头与目录，各列与数据行所在的区域直接映射，加载时间与数据量无关；
+ *     2. toJSONArray 返回包含所有数据的列式 JSONArray，sumByField / fieldEqual / fieldSort / classify / classifiedSize
+ *        直接在映射的列上计算，不构建 JSONObject；字典编码列的字典在第一次使用时解码到堆内；
+ *     3. 其他方法逐行处理时，按需从文件中解析单条数据（与解析 JSON 文本的结果相同），解析结果不缓存；
+ *     4. 文件中没有保存的列（例如写入时未指定的关联信息字段）不可用，由逐行实现计算；
+ *     数据量可以大于堆内存，映射的内存由操作系统按需换入换出；映射在 ColumnarFile 不再被引用后随垃圾回收释放，
+ *     文件打开后不能被修改，更新数据时写入新文件后替换（ColumnarFileWriter 写入临时文件后原子替换）；
+ *
+ *     文件格式（大端序）：
+ *     文件头：magic (int)、版本 (int)、数据条数 (int)、保留 (int)；
+ *     数据区：各条数据的 UTF-8 JSON 文本依次拼接；
+ *     行偏移：long[数据条数 + 1]，各条数据在数据区中的起始位置；
+ *     列区域：字典编码列为 int[数据条数] 的编码与字典（个数 + 各值的长度与 UTF-8 内容）；
+ *            数值列为 long[] 或 double[] 的数值，以及 null 与非数值数据的位图 (long[])；
+ *     目录：标志位 (int，bit0：所有数据都是 JSONObject)、数据集指纹 (long)、数据区与行偏移的位置、各列的名称与区域位置；
+ *     文件尾：目录位置 (long)、magic (int)；
+ * </pre>
+ *
+ * @see ColumnarFileWriter
+ * @see ColumnarBatch
+ */
+public class ColumnarFile {
+    static final int MAGIC = 0x525A4346;
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+    static final int FOOTER_LENGTH = 12;
+    static final int FLAG_ALL_ENTITIES = 1;
+    static final byte DICTIONARY_COLUMN = 'd';
+    static final byte NUMERIC_COLUMN = 'n';
+
+    /**
+     * 数据区每段映射的大小，单次映射不能超过 2GB
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final Path path;
+    private final int size;
+    private final boolean allEntities;
+    private final long fingerprint;
+    /**
+     * 数据区，按 SEGMENT_SIZE 分段映射
+     */
+    private final ByteBuffer[] rowSegments;
+    private final LongBuffer rowOffsets;
+    private final Map<String, DictionaryEntry> dictionaryEntries = new LinkedHashMap<>();
+    private final Map<String, NumericEntry> numericEntries = new LinkedHashMap<>();
+    /**
+     * 包含所有数据的数据批，各次统计共用其中的列与字段索引
+     */
+    private final ColumnarBatch batch;
+
+    private ColumnarFile(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        long fileSize = channel.size();
+        if (fileSize < HEADER_LENGTH + FOOTER_LENGTH) {
+            throw new IOException(String.format("[%s] 不是列式数据文件：文件长度为 [%d]", path, fileSize));
+        }
+        ByteBuffer header = read(channel, 0, HEADER_LENGTH);
+        ByteBuffer footer = read(channel, fileSize - FOOTER_LENGTH, FOOTER_LENGTH);
+        long directoryPosition = footer.getLong();
+        if (header.getInt() != MAGIC || footer.getInt() != MAGIC) {
+            throw new IOException(String.format("[%s] 不是列式数据文件", path));
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException(String.format("列式数据文件 [%s] 的版本 [%d] 不支持，当前版本为 [%d]", path, version, VERSION));
+        }
+        this.size = header.getInt();
+
+        try {
+            ByteBuffer directory = read(channel, directoryPosition, fileSize - FOOTER_LENGTH - directoryPosition);
+            this.allEntities = (directory.getInt() & FLAG_ALL_ENTITIES) != 0;
+            this.fingerprint = directory.getLong();
+            long rowDataPosition = directory.getLong();
+            long rowDataLength = directory.getLong();
+            long rowOffsetsPosition = directory.getLong();
+            int segmentCount = (int) ((rowDataLength + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            this.rowSegments = new ByteBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long offset = (long) i << SEGMENT_SHIFT;
+                rowSegments[i] = map(channel, rowDataPosition + offset, Math.min(SEGMENT_SIZE, rowDataLength - offset));
+            }
+            this.rowOffsets = map(channel, rowOffsetsPosition, (size + 1L) * Long.BYTES).asLongBuffer();
+
+            int columnCount = directory.getInt();
+            for (int i = 0; i < columnCount; i++) {
+                byte kind = directory.get();
+                String name = readString(directory);
+                if (kind == DICTIONARY_COLUMN) {
+                    long codesPosition = directory.getLong();
+                    long dictionaryPosition = directory.getLong();
+                    long dictionaryLength = directory.getLong();
+                    dictionaryEntries.put(name, new DictionaryEntry(map(channel, codesPosition, (long) size * Integer.BYTES),
+                            map(channel, dictionaryPosition, dictionaryLength)));
+                } else if (kind == NUMERIC_COLUMN) {
+                    boolean integral = directory.get() != 0;
+                    long valuesPosition = directory.getLong();
+                    ByteBuffer nulls = map(channel, directory.getLong(), directory.getInt() * (long) Long.BYTES);
+                    ByteBuffer invalid = map(channel, directory.getLong(), directory.getInt() * (long) Long.BYTES);
+                    numericEntries.put(name, new NumericEntry(integral,
+                            map(channel, valuesPosition, (long) size * Long.BYTES), nulls, invalid));
+                } else {
+                    throw new IOException(String.format("列式数据文件 [%s] 中的列 [%s] 类型 [%d] 不支持", path, name, kind));
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(String.format("列式数据文件 [%s] 的目录已损坏", path), e);
+        }
+        this.batch = new ColumnarBatch(this);
+    }
+
+    /**
+     * 打开列式数据文件，只读取文件头与目录
+     *
+     * @param path 文件路径
+     * @return 列式数据文件
+     * @throws IOException 文件不存在、不是列式数据文件或已损坏时抛出异常
+     */
+    public static ColumnarFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            return new ColumnarFile(path, channel);
+        }
+    }
+
+    /**
+     * 包含所有数据的列式 JSONArray，可以直接作为 SummaryExecutor 的数据源；
+     * 每次返回新的视图，共用同一个数据批
+     *
+     * @return 列式 JSONArray
+     */
+    public ColumnarJSONArray toJSONArray() {
+        return ColumnarJSONArray.fullBatch(batch);
+    }
+
+    /**
+     * 获取文件中保存的数值列
+     *
+     * @param field 字段名
+     * @return 数值列，文件中没有保存时返回 null
+     */
+    NumericColumn numericColumn(String field) {
+        NumericEntry entry = numericEntries.get(field);
+        if (entry == null) {
+            return null;
+        }
+        BitSet nulls = BitSet.valueOf(entry.nulls.asLongBuffer());
+        BitSet invalid = BitSet.valueOf(entry.invalid.asLongBuffer());
+        return entry.integral ? NumericColumn.mapped(entry.values.asLongBuffer(), nulls, invalid)
+                : NumericColumn.mapped(entry.values.asDoubleBuffer(), nulls, invalid);
+    }
+
+    /**
+     * 获取文件中保存的字典编码列，解码字典
+     *
+     * @param expression 字段表达式
+     * @return 字典编码列，文件中没有保存时返回 null
+     */
+    DictionaryColumn dictionaryColumn(String expression) {
+        DictionaryEntry entry = dictionaryEntries.get(expression);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer buffer = entry.dictionary.duplicate();
+        String[] dictionary = new String[buffer.getInt()];
+        for (int code = 0; code < dictionary.length; code++) {
+            dictionary[code] = readString(buffer);
+        }
+        return DictionaryColumn.mapped(entry.codes.asIntBuffer(), dictionary);
+    }
+
+    /**
+     * 从数据区解析单条数据
+     *
+     * @param index 数据下标
+     * @return 解析结果，与解析该条数据的 JSON 文本相同
+     */
+    Object readRow(int index) {
+        long start = rowOffsets.get(index);
+        int length = (int) (rowOffsets.get(index + 1) - start);
+        byte[] bytes = new byte[length];
+        int filled = 0;
+        while (filled < length) {
+            long position = start + filled;
+            ByteBuffer segment = rowSegments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & (SEGMENT_SIZE - 1)));
+            int count = Math.min(length - filled, segment.remaining());
+            segment.get(bytes, filled, count);
+            filled += count;
+        }
+        try {
+            return JSON.parse(new String(bytes, StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new DynamicSummaryException(String.format("列式数据文件 [%s] 中第 %d 条数据解析失败：[%s]",
+                    path, index, e.getMessage()), e);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, long length) throws IOException {
+        if (position < 0 || length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException(String.format("列式数据文件区域错误：位置 [%d]，长度 [%d]", position, length));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(String.format("列式数据文件区域超出文件长度：位置 [%d]，长度 [%d]", position, length));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (position < 0 || length < 0 || position + length > channel.size()) {
+            throw new IOException(String.format("列式数据文件区域超出文件长度：位置 [%d]，长度 [%d]", position, length));
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * 读取 "长度 (int) + UTF-8 内容" 形式的字符串
+     */
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 数据条数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isAllEntities() {
+        return allEntities;
+    }
+
+    /**
+     * 写入时计算的数据集指纹，与对解析后的数据计算 DatasetFingerprint#of 的结果相同
+     *
+     * @see com.grq.rezero.cache.DatasetFingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * 文件中保存了字典编码列的字段表达式
+     */
+    public Set<String> getDictionaryColumns() {
+        return Collections.unmodifiableSet(dictionaryEntries.keySet());
+    }
+
+    /**
+     * 文件中保存了数值列的字段名
+     */
+    public Set<String> getNumericColumns() {
+        return Collections.unmodifiableSet(numericEntries.keySet());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ColumnarFile[%s] rows=%d, dictionaryColumns=%d, numericColumns=%d",
+                path, size, dictionaryEntries.size(), numericEntries.size());
+    }
+
+    /**
+     * 字典编码列所在的区域
+     */
+    private static class DictionaryEntry {
+        private final ByteBuffer codes;
+        private final ByteBuffer dictionary;
+
+        private DictionaryEntry(ByteBuffer codes, ByteBuffer dictionary) {
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+    }
+
+    /**
+     * 数值列所在的区域
+     */
+    private static class NumericEntry {
+        private final boolean integral;
+        private final ByteBuffer values;
+        private final ByteBuffer nulls;
+        private final ByteBuffer invalid;
+
+        private NumericEntry(boolean integral, ByteBuffer values, ByteBuffer nulls, ByteBuffer invalid) {
+            this.integral = integral;
+            this.values = values;
+            this.nulls = nulls;
+            this.invalid = invalid;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.grq.rezero.cache.DatasetFingerprint;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.expression.FieldAccessor;
+import com.grq.rezero.function.convertor.BaseJsonArrayConvertor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ *     列式数据文件的写入：由 JSONArray 或 Java 对象列表写入，格式见 ColumnarFile；
+ *
+ *     1. 每条数据序列化为 JSON 文本写入数据区（保留值为 null 的字段），再由解析后的数据构建各列，保证打开文件后列与逐行解析的数据一致；
+ *        写入时只逐条解析，不同时保存所有解析后的数据：第一遍确定保存列的字段与类型并计算指纹，
+ *        第二遍从临时文件的数据区逐条读取，同时构建所有列；堆内除调用方的数据集外，只有各列（编码、字典、数值）与行偏移；
+ *     2. 所有数据都是 JSONObject 时，为每个顶层字段保存列：
+ *        - 字段值都不是 JSONObject / JSONArray 时，保存字典编码列（字段表达式即字段名）；
+ *        - 存在数值类型的值时，保存数值列；
+ *        其他字段表达式（例如关联信息字段 student@college.location）需要在 expressions 中指定；
+ *     3. 先写入同一目录下的临时文件，完成后原子替换目标文件，已打开的旧文件不受影响；
+ *     数据条数上限为 MAX_ROWS，单个列区域不超过 2GB；
+ * </pre>
+ *
+ * @see ColumnarFile
+ */
+public class ColumnarFileWriter {
+    private static Logger LOG = LoggerFactory.getLogger(ColumnarFileWriter.class);
+
+    /**
+     * 数据条数上限：数值列与行偏移为 long[]，单次映射不能超过 2GB
+     */
+    public static final int MAX_ROWS = Integer.MAX_VALUE / Long.BYTES - 1;
+
+    private ColumnarFileWriter() {
+    }
+
+    /**
+     * 写入 JSONArray
+     *
+     * @param src  数据集
+     * @param path 文件路径
+     * @throws IOException 写入失败时抛出异常
+     */
+    public static void write(JSONArray src, Path path) throws IOException {
+        write(src, path, Collections.emptyList());
+    }
+
+    /**
+     * 写入 Java 对象列表，先转换为添加类型内码信息的 JSONArray
+     *
+     * @param list  对象列表
+     * @param clazz 对象类型
+     * @param path  文件路径
+     * @throws IOException 写入失败时抛出异常
+     * @see BaseJsonArrayConvertor#convertToBaseJsonArray(List, Class)
+     */
+    public static <T> void writeObjects(List<T> list, Class<T> clazz, Path path) throws IOException {
+        write(BaseJsonArrayConvertor.convertToBaseJsonArray(list, clazz), path, Collections.emptyList());
+    }
+
+    /**
+     * 写入 JSONArray，并另外保存指定字段表达式的字典编码列；
+     * 写入期间所有列同时在堆内构建，数值列构建时同时保存整数与浮点数（每条数据 16 字节），不保存解析后的数据行
+     *
+     * @param src         数据集
+     * @param path        文件路径
+     * @param expressions 另外保存的字段表达式，例如关联信息字段
+     * @throws IOException             写入失败时抛出异常
+     * @throws DynamicSummaryException 数据条数超过 MAX_ROWS 时抛出异常
+     */
+    public static void write(JSONArray src, Path path, Collection<String> expressions)
+            throws IOException, DynamicSummaryException {
+        int size = (src == null) ? 0 : src.size();
+        if (size > MAX_ROWS) {
+            throw new DynamicSummaryException(String.format("列式数据文件写入错误：数据条数 [%d] 超过上限 [%d]", size, MAX_ROWS));
+        }
+        Path absolute = path.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (PositionOutputStream position = new PositionOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16));
+                 DataOutputStream out = new DataOutputStream(position)) {
+                doWrite(src, size, expressions, temp, out, position);
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void doWrite(JSONArray src, int size, Collection<String> expressions, Path temp,
+                                DataOutputStream out, PositionOutputStream position) throws IOException {
+        /**
+         * 1. 数据区：逐条写入 JSON 文本；解析后的数据只用于确定保存列的字段与类型、计算指纹，不保存
+         */
+        long[] rowOffsets = new long[size + 1];
+        boolean allEntities = true;
+        Set<String> fields = new LinkedHashSet<>();
+        Set<String> nonScalarFields = new HashSet<>();
+        Set<String> numberFields = new HashSet<>();
+        DatasetFingerprint.Accumulator fingerprint = new DatasetFingerprint.Accumulator();
+        out.writeInt(ColumnarFile.MAGIC);
+        out.writeInt(ColumnarFile.VERSION);
+        out.writeInt(size);
+        out.writeInt(0);
+        long rowDataPosition = position.getPosition();
+        for (int i = 0; i < size; i++) {
+            String text = JSON.toJSONString(src.get(i), SerializerFeature.WriteMapNullValue);
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            out.write(bytes);
+            rowOffsets[i + 1] = rowOffsets[i] + bytes.length;
+            Object row = JSON.parse(text);
+            fingerprint.add(row);
+            if (!(row instanceof JSONObject)) {
+                allEntities = false;
+            } else if (allEntities) {
+                collectFields((JSONObject) row, fields, nonScalarFields, numberFields);
+            }
+        }
+        fields.addAll(expressions);
+        long rowDataLength = rowOffsets[size];
+        align(out, position);
+
+        /**
+         * 2. 行偏移
+         */
+        long rowOffsetsPosition = position.getPosition();
+        for (long offset : rowOffsets) {
+            out.writeLong(offset);
+        }
+
+        /**
+         * 3. 各列：从已写入的数据区逐条读取、解析数据，同时构建所有列，与打开文件后逐行解析的数据一致
+         */
+        List<ColumnRecord> columns = new ArrayList<>();
+        if (allEntities) {
+            out.flush();
+            List<String> fieldList = new ArrayList<>(fields);
+            DictionaryColumn.Builder[] dictionaryBuilders = new DictionaryColumn.Builder[fieldList.size()];
+            NumericColumn.Builder[] numericBuilders = new NumericColumn.Builder[fieldList.size()];
+            for (int k = 0; k < fieldList.size(); k++) {
+                String field = fieldList.get(k);
+                // 顶层字段的值都不是 JSONObject / JSONArray 时才保存字典编码列；其他字段表达式总是保存
+                if (!nonScalarFields.contains(field)) {
+                    dictionaryBuilders[k] = new DictionaryColumn.Builder(FieldAccessor.compile(field), size);
+                }
+                if (numberFields.contains(field)) {
+                    numericBuilders[k] = new NumericColumn.Builder(field, size);
+                }
+            }
+            buildColumns(temp, rowDataPosition, rowOffsets, fieldList, dictionaryBuilders, numericBuilders);
+            for (int k = 0; k < fieldList.size(); k++) {
+                if (dictionaryBuilders[k] != null) {
+                    writeDictionaryColumn(fieldList.get(k), dictionaryBuilders[k].build(), out, position, columns);
+                    dictionaryBuilders[k] = null;
+                }
+                if (numericBuilders[k] != null) {
+                    writeNumericColumn(fieldList.get(k), numericBuilders[k].build(), out, position, columns);
+                    numericBuilders[k] = null;
+                }
+            }
+        }
+
+        /**
+         * 4. 目录与文件尾
+         */
+        long directoryPosition = position.getPosition();
+        out.writeInt(allEntities ? ColumnarFile.FLAG_ALL_ENTITIES : 0);
+        out.writeLong(fingerprint.finish());
+        out.writeLong(rowDataPosition);
+        out.writeLong(rowDataLength);
+        out.writeLong(rowOffsetsPosition);
+        out.writeInt(columns.size());
+        for (ColumnRecord column : columns) {
+            column.write(out);
+        }
+        out.writeLong(directoryPosition);
+        out.writeInt(ColumnarFile.MAGIC);
+        LOG.debug("列式数据文件写入完成：数据 {} 条，列 {} 个，文件长度 {}", size, columns.size(), position.getPosition());
+    }
+
+    /**
+     * 记录数据的顶层字段（按第一次出现的顺序）、值为 JSONObject / JSONArray 的字段、值为数值的字段
+     */
+    private static void collectFields(JSONObject row, Set<String> fields, Set<String> nonScalarFields,
+                                      Set<String> numberFields) {
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            fields.add(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Map || value instanceof Collection) {
+                nonScalarFields.add(entry.getKey());
+            } else if (value instanceof Number) {
+                numberFields.add(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 从临时文件的数据区逐条读取数据，交给各列的构建器；构建失败的列不保存（置为 null）
+     */
+    private static void buildColumns(Path temp, long rowDataPosition, long[] rowOffsets, List<String> fieldList,
+                                     DictionaryColumn.Builder[] dictionaryBuilders,
+                                     NumericColumn.Builder[] numericBuilders) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(temp), 1 << 16))) {
+            long skipped = 0;
+            while (skipped < rowDataPosition) {
+                int count = in.skipBytes((int) (rowDataPosition - skipped));
+                if (count <= 0) {
+                    throw new EOFException("列式数据文件写入错误：临时文件长度不足");
+                }
+                skipped += count;
+            }
+            byte[] buffer = new byte[0];
+            for (int i = 0; i + 1 < rowOffsets.length; i++) {
+                int length = (int) (rowOffsets[i + 1] - rowOffsets[i]);
+                if (buffer.length < length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                in.readFully(buffer, 0, length);
+                JSONObject row = (JSONObject) JSON.parse(new String(buffer, 0, length, StandardCharsets.UTF_8));
+                for (int k = 0; k < fieldList.size(); k++) {
+                    if (dictionaryBuilders[k] != null) {
+                        try {
+                            dictionaryBuilders[k].add(row);
+                        } catch (RuntimeException e) {
+                            LOG.debug("字典编码列 [{}] 构建失败，不保存该列：[{}]", fieldList.get(k), e.getMessage());
+                            dictionaryBuilders[k] = null;
+                        }
+                    }
+                    if (numericBuilders[k] != null) {
+                        numericBuilders[k].add(row);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeDictionaryColumn(String expression, DictionaryColumn column, DataOutputStream out,
+                                              PositionOutputStream position, List<ColumnRecord> columns) throws IOException {
+        long codesPosition = position.getPosition();
+        for (int row = 0; row < column.size(); row++) {
+            out.writeInt(column.getCode(row));
+        }
+        long dictionaryPosition = position.getPosition();
+        out.writeInt(column.getDictionarySize());
+        for (String value : column.getDictionary()) {
+            writeString(out, value);
+        }
+        long dictionaryLength = position.getPosition() - dictionaryPosition;
+        align(out, position);
+        columns.add(new ColumnRecord(ColumnarFile.DICTIONARY_COLUMN, expression, codesPosition, dictionaryPosition,
+                dictionaryLength));
+    }
+
+    private static void writeNumericColumn(String field, NumericColumn column, DataOutputStream out,
+                                           PositionOutputStream position, List<ColumnRecord> columns) throws IOException {
+        long valuesPosition = position.getPosition();
+        for (int row = 0; row < column.size(); row++) {
+            if (column.isIntegral()) {
+                out.writeLong(column.getLong(row));
+            } else {
+                out.writeDouble(column.getDouble(row));
+            }
+        }
+        long nullsPosition = position.getPosition();
+        int nullWords = writeBitSet(out, column.nulls());
+        long invalidPosition = position.getPosition();
+        int invalidWords = writeBitSet(out, column.invalid());
+        columns.add(new ColumnRecord(field, column.isIntegral(), valuesPosition, nullsPosition, nullWords,
+                invalidPosition, invalidWords));
+    }
+
+    private static int writeBitSet(DataOutputStream out, BitSet bitSet) throws IOException {
+        long[] words = bitSet.toLongArray();
+        for (long word : words) {
+            out.writeLong(word);
+        }
+        return words.length;
+    }
+
+    /**
+     * 写入 "长度 (int) + UTF-8 内容" 形式的字符串
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * 按 8 字节对齐
+     */
+    private static void align(DataOutputStream out, PositionOutputStream position) throws IOException {
+        while ((position.getPosition() & (Long.BYTES - 1)) != 0) {
+            out.write(0);
+        }
+    }
+
+    /**
+     * 目录中的一列
+     */
+    private static class ColumnRecord {
+        private final byte kind;
+        private final String name;
+        private final long[] positions;
+        private final boolean integral;
+        private final int nullWords;
+        private final int invalidWords;
+
+        private ColumnRecord(byte kind, String name, long codesPosition, long dictionaryPosition, long dictionaryLength) {
+            this.kind = kind;
+            this.name = name;
+            this.positions = new long[]{codesPosition, dictionaryPosition, dictionaryLength};
+            this.integral = false;
+            this.nullWords = 0;
+            this.invalidWords = 0;
+        }
+
+        private ColumnRecord(String name, boolean integral, long valuesPosition, long nullsPosition, int nullWords,
+                             long invalidPosition, int invalidWords) {
+            this.kind = ColumnarFile.NUMERIC_COLUMN;
+            this.name = name;
+            this.positions = new long[]{valuesPosition, nullsPosition, invalidPosition};
+            this.integral = integral;
+            this.nullWords = nullWords;
+            this.invalidWords = invalidWords;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(kind);
+            writeString(out, name);
+            if (kind == ColumnarFile.DICTIONARY_COLUMN) {
+                out.writeLong(positions[0]);
+                out.writeLong(positions[1]);
+                out.writeLong(positions[2]);
+            } else {
+                out.writeBoolean(integral);
+                out.writeLong(positions[0]);
+                out.writeLong(positions[1]);
+                out.writeInt(nullWords);
+                out.writeLong(positions[2]);
+                out.writeInt(invalidWords);
+            }
+        }
+    }
+
+    /**
+     * 记录已写入字节数的输出流，DataOutputStream#size 超过 2GB 后溢出
+     */
+    private static class PositionOutputStream extends FilterOutputStream {
+        private long position;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+
+        long getPosition() {
+            return position;
+        }
+    }
+}
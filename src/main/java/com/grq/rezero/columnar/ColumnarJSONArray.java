@@ -0,0 +1,107 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSONArray;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * <pre>
+ *     列式 JSONArray：列式数据批 (ColumnarBatch) 中部分数据行的只读视图；
+ *
+ *     1. 作为 JSONArray 使用时，内容为所选的数据行，不支持列式计算的方法按原方式逐行处理；
+ *     2. 支持列式计算的方法 (sumByField / fieldEqual / fieldSort / classify / classifiedSize) 识别该类型，
+ *        在数据批的列上计算，筛选、排序、分类的结果仍为同一数据批上的列式 JSONArray，下游方法可以继续使用列式计算；
+ *     3. 视图不可修改，修改数据需先复制为普通 JSONArray；
+ * </pre>
+ *
+ * @see ColumnarBatch
+ * @see ColumnarOperators
+ */
+public class ColumnarJSONArray extends JSONArray {
+    private final transient ColumnarBatch batch;
+    /**
+     * 所选数据在数据批中的行号，按列表顺序排列
+     */
+    private final transient int[] selection;
+    /**
+     * 是否按原有顺序包含数据批中的所有数据，此时可以直接使用字段索引
+     */
+    private final transient boolean fullBatch;
+
+    ColumnarJSONArray(ColumnarBatch batch, int[] selection) {
+        this(batch, selection, false);
+    }
+
+    private ColumnarJSONArray(ColumnarBatch batch, int[] selection, boolean fullBatch) {
+        super(new SelectionList(batch, selection));
+        this.batch = batch;
+        this.selection = selection;
+        this.fullBatch = fullBatch;
+    }
+
+    /**
+     * 由 JSONArray 构建列式数据批，返回包含所有数据的列式 JSONArray；传入的已经是列式 JSONArray 时直接返回
+     *
+     * @param src 数据源
+     * @return 列式 JSONArray
+     */
+    public static ColumnarJSONArray of(JSONArray src) {
+        if (src instanceof ColumnarJSONArray) {
+            return (ColumnarJSONArray) src;
+        }
+        return fullBatch(new ColumnarBatch(src));
+    }
+
+    /**
+     * 包含数据批中所有数据的列式 JSONArray
+     *
+     * @param batch 数据批
+     * @return 列式 JSONArray
+     */
+    static ColumnarJSONArray fullBatch(ColumnarBatch batch) {
+        int[] selection = new int[batch.size()];
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] = i;
+        }
+        return new ColumnarJSONArray(batch, selection, true);
+    }
+
+    public ColumnarBatch getBatch() {
+        return batch;
+    }
+
+    public boolean isFullBatch() {
+        return fullBatch;
+    }
+
+    /**
+     * 所选数据的行号，调用方不能修改
+     */
+    int[] selection() {
+        return selection;
+    }
+
+    /**
+     * 数据批中部分数据行的只读列表
+     */
+    private static class SelectionList extends AbstractList<Object> implements RandomAccess {
+        private final ColumnarBatch batch;
+        private final int[] selection;
+
+        SelectionList(ColumnarBatch batch, int[] selection) {
+            this.batch = batch;
+            this.selection = selection;
+        }
+
+        @Override
+        public Object get(int index) {
+            return batch.getRow(selection[index]);
+        }
+
+        @Override
+        public int size() {
+            return selection.length;
+        }
+    }
+}
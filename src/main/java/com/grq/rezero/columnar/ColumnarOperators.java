@@ -0,0 +1,395 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.function.filter.ClassifyFilterFunction;
+import com.grq.rezero.function.filter.FieldEqualPredicate;
+import com.grq.rezero.function.sort.SortSpec;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <pre>
+ *     列表方法的列式实现：输入为列式 JSONArray 时，在数据批的列上计算；
+ *
+ *     各方法的结果与对应的逐行实现完全相同；以下情况返回 null，由调用方回退到逐行实现：
+ *     1. 输入不是列式 JSONArray，或者为空列表；
+ *     2. 所需的列不可用（数据批中存在不是 JSONObject 的数据，或者取值时抛出异常）；
+ *     3. 所选数据中存在逐行实现会抛出异常的值（例如 sumByField 的字段值为空、不是数值类型）；
+ *     回退后由逐行实现抛出与原方法相同的异常；
+ *
+ *     输入为整个数据批时（isFullBatch），classify / fieldEqual / classifiedSize 直接使用字段索引，不遍历数据；
+ * </pre>
+ *
+ * @see ColumnarJSONArray
+ */
+public class ColumnarOperators {
+
+    private ColumnarOperators() {
+    }
+
+    /**
+     * 列式 sumByField：按数据顺序累加字段值
+     *
+     * @param list  数据列表
+     * @param field 待统计字段
+     * @return 累加结果，不能使用列式计算时返回 null
+     * @see com.grq.rezero.function.calculate.SumByFieldFunction
+     */
+    public static Double sumByField(JSONArray list, String field) {
+        ColumnarJSONArray columnar = asColumnar(list);
+        if (columnar == null) {
+            return null;
+        }
+        NumericColumn column = columnar.getBatch().numericColumn(field);
+        int[] selection = columnar.selection();
+        if (column == null || !column.allValid(selection)) {
+            return null;
+        }
+        return column.sum(selection);
+    }
+
+    /**
+     * 列式 classifiedSize：统计字段值的去重数量，字段表达式不能为空
+     *
+     * @param list       数据列表
+     * @param expression 字段表达式
+     * @return 去重数量，不能使用列式计算时返回 null
+     * @see com.grq.rezero.function.calculate.ClassifiedSizeFunction
+     */
+    public static Integer classifiedSize(JSONArray list, String expression) {
+        ColumnarJSONArray columnar = asColumnar(list);
+        if (columnar == null || StringUtils.isEmpty(expression)) {
+            return null;
+        }
+        DictionaryColumn column = columnar.getBatch().dictionaryColumn(expression);
+        if (column == null) {
+            return null;
+        }
+        if (columnar.isFullBatch()) {
+            // 整个数据批中的不同值即字典中的值
+            return column.getDictionarySize();
+        }
+        BitSet seen = new BitSet(column.getDictionarySize());
+        int count = 0;
+        for (int row : columnar.selection()) {
+            int code = column.getCode(row);
+            if (code != DictionaryColumn.NULL_CODE && !seen.get(code)) {
+                seen.set(code);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 列式 fieldEqual：先在字典上判断各个值是否满足筛选条件，再按编码筛选数据，各筛选字段之间为并集运算
+     *
+     * @param list   数据列表
+     * @param predicate 预编译的筛选条件
+     * @return 筛选结果，不能使用列式计算时返回 null
+     * @see FieldEqualPredicate#test
+     */
+    public static ColumnarJSONArray fieldEqual(JSONArray list, FieldEqualPredicate predicate) {
+        ColumnarJSONArray columnar = asColumnar(list);
+        if (columnar == null) {
+            return null;
+        }
+        ColumnarBatch batch = columnar.getBatch();
+        if (predicate.size() == 0) {
+            return new ColumnarJSONArray(batch, new int[0]);
+        }
+        if (columnar.isFullBatch()) {
+            return fieldEqualByIndex(batch, predicate);
+        }
+
+        /**
+         * 1. 计算每个筛选字段的字典中满足条件的编码
+         */
+        int keyCount = predicate.size();
+        DictionaryColumn[] columns = new DictionaryColumn[keyCount];
+        boolean[][] matchedCodes = new boolean[keyCount][];
+        boolean[] nullMatched = new boolean[keyCount];
+        for (int k = 0; k < keyCount; k++) {
+            DictionaryColumn column = batch.dictionaryColumn(predicate.getField(k));
+            if (column == null) {
+                return null;
+            }
+            boolean[] matched = new boolean[column.getDictionarySize()];
+            Set<String> filterValues = predicate.getValues(k);
+            if (filterValues == null) {
+                nullMatched[k] = true;
+            } else {
+                for (String value : filterValues) {
+                    int code = column.lookup(value);
+                    if (code != DictionaryColumn.NULL_CODE) {
+                        matched[code] = true;
+                    }
+                }
+            }
+            columns[k] = column;
+            matchedCodes[k] = matched;
+        }
+
+        /**
+         * 2. 按编码筛选数据
+         */
+        int[] selection = columnar.selection();
+        int[] result = new int[selection.length];
+        int size = 0;
+        for (int row : selection) {
+            for (int k = 0; k < keyCount; k++) {
+                int code = columns[k].getCode(row);
+                if ((code == DictionaryColumn.NULL_CODE) ? nullMatched[k] : matchedCodes[k][code]) {
+                    result[size++] = row;
+                    break;
+                }
+            }
+        }
+        return new ColumnarJSONArray(batch, Arrays.copyOf(result, size));
+    }
+
+    /**
+     * 列式 fieldSort：直接使用字典编码列的编码排序，每个不同的值只解析一次
+     *
+     * @param list     数据列表
+     * @param sortSpec 排序规则
+     * @return 排序结果，不能使用列式计算时返回 null
+     * @see SortSpec
+     */
+    public static ColumnarJSONArray fieldSort(JSONArray list, SortSpec sortSpec) {
+        ColumnarJSONArray columnar = asColumnar(list);
+        if (columnar == null) {
+            return null;
+        }
+        ColumnarBatch batch = columnar.getBatch();
+        SortSpec.SortKey[] keys = sortSpec.getKeys();
+        int[] selection = columnar.selection();
+        int[][] codes = new int[keys.length][];
+        String[][] dictionaries = new String[keys.length][];
+        for (int k = 0; k < keys.length; k++) {
+            DictionaryColumn column = batch.dictionaryColumn(keys[k].getField());
+            if (column == null) {
+                return null;
+            }
+            codes[k] = new int[selection.length];
+            if (column.getDictionarySize() <= selection.length * 2) {
+                for (int i = 0; i < selection.length; i++) {
+                    codes[k][i] = column.getCode(selection[i]);
+                }
+                dictionaries[k] = column.getDictionary();
+            } else {
+                // 所选数据远少于不同值的数量时，重新编码，只解析所选数据中出现的值
+                Map<Integer, Integer> localCodes = new HashMap<>();
+                List<String> localDictionary = new ArrayList<>();
+                for (int i = 0; i < selection.length; i++) {
+                    int code = column.getCode(selection[i]);
+                    if (code == DictionaryColumn.NULL_CODE) {
+                        codes[k][i] = code;
+                        continue;
+                    }
+                    Integer localCode = localCodes.get(code);
+                    if (localCode == null) {
+                        localCode = localDictionary.size();
+                        localCodes.put(code, localCode);
+                        localDictionary.add(column.decode(code));
+                    }
+                    codes[k][i] = localCode;
+                }
+                dictionaries[k] = localDictionary.toArray(new String[0]);
+            }
+        }
+        int[] order = sortSpec.sort(codes, dictionaries);
+        int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = selection[order[i]];
+        }
+        return new ColumnarJSONArray(batch, sorted);
+    }
+
+    /**
+     * 列式 classify：按编码分组，分类顺序为各值第一次出现的顺序，字段值为空的数据放在默认分类中，置于最后
+     *
+     * @param list       数据列表
+     * @param expression 分类字段表达式
+     * @return 分类结果，各分类的列表为列式 JSONArray；不能使用列式计算时返回 null
+     * @see ClassifyFilterFunction
+     */
+    public static JSONObject classify(JSONArray list, String expression) {
+        ColumnarJSONArray columnar = asColumnar(list);
+        if (columnar == null) {
+            return null;
+        }
+        ColumnarBatch batch = columnar.getBatch();
+        if (columnar.isFullBatch()) {
+            return classifyByIndex(batch, expression);
+        }
+        DictionaryColumn column = batch.dictionaryColumn(expression);
+        if (column == null) {
+            return null;
+        }
+
+        /**
+         * 1. 统计各分类的数据条数，并记录各分类第一次出现的顺序
+         */
+        int dictionarySize = column.getDictionarySize();
+        boolean[] defaultCodes = new boolean[dictionarySize];
+        for (int code = 0; code < dictionarySize; code++) {
+            defaultCodes[code] = StringUtils.isEmpty(column.decode(code));
+        }
+        int[] selection = columnar.selection();
+        int[] counts = new int[dictionarySize];
+        int[] groupCodes = new int[dictionarySize];
+        int groupCount = 0;
+        int defaultCount = 0;
+        for (int row : selection) {
+            int code = column.getCode(row);
+            if (code == DictionaryColumn.NULL_CODE || defaultCodes[code]) {
+                defaultCount++;
+                continue;
+            }
+            if (counts[code]++ == 0) {
+                groupCodes[groupCount++] = code;
+            }
+        }
+
+        /**
+         * 2. 填充各分类的行号
+         */
+        int[][] members = new int[dictionarySize][];
+        int[] filled = new int[dictionarySize];
+        for (int g = 0; g < groupCount; g++) {
+            members[groupCodes[g]] = new int[counts[groupCodes[g]]];
+        }
+        int[] defaultMembers = new int[defaultCount];
+        int defaultFilled = 0;
+        for (int row : selection) {
+            int code = column.getCode(row);
+            if (code == DictionaryColumn.NULL_CODE || defaultCodes[code]) {
+                defaultMembers[defaultFilled++] = row;
+            } else {
+                members[code][filled[code]++] = row;
+            }
+        }
+
+        /**
+         * 3. 按第一次出现的顺序输出分类，默认分类置于最后
+         */
+        JSONObject result = new JSONObject(true);
+        for (int g = 0; g < groupCount; g++) {
+            int code = groupCodes[g];
+            result.put(column.decode(code), new ColumnarJSONArray(batch, members[code]));
+        }
+        if (defaultCount > 0) {
+            result.put(ClassifyFilterFunction.DEFAULT_KEY, new ColumnarJSONArray(batch, defaultMembers));
+        }
+        return result;
+    }
+
+    /**
+     * 由字段索引筛选整个数据批：合并各筛选字段满足条件的值对应的行号
+     */
+    private static ColumnarJSONArray fieldEqualByIndex(ColumnarBatch batch, FieldEqualPredicate predicate) {
+        List<int[]> matchedRows = new ArrayList<>();
+        for (int k = 0; k < predicate.size(); k++) {
+            FieldIndex index = batch.index(predicate.getField(k));
+            if (index == null) {
+                return null;
+            }
+            Set<String> filterValues = predicate.getValues(k);
+            if (filterValues == null) {
+                matchedRows.add(index.rows(DictionaryColumn.NULL_CODE));
+                continue;
+            }
+            for (String value : filterValues) {
+                int code = index.getColumn().lookup(value);
+                if (code != DictionaryColumn.NULL_CODE) {
+                    matchedRows.add(index.rows(code));
+                }
+            }
+        }
+        return new ColumnarJSONArray(batch, union(matchedRows));
+    }
+
+    /**
+     * 由字段索引对整个数据批分类：编码顺序即各值第一次出现的顺序
+     */
+    private static JSONObject classifyByIndex(ColumnarBatch batch, String expression) {
+        FieldIndex index = batch.index(expression);
+        if (index == null) {
+            return null;
+        }
+        DictionaryColumn column = index.getColumn();
+        JSONObject result = new JSONObject(true);
+        List<int[]> defaultRows = new ArrayList<>();
+        defaultRows.add(index.rows(DictionaryColumn.NULL_CODE));
+        for (int code = 0; code < column.getDictionarySize(); code++) {
+            String key = column.decode(code);
+            if (StringUtils.isEmpty(key)) {
+                defaultRows.add(index.rows(code));
+            } else {
+                result.put(key, new ColumnarJSONArray(batch, index.rows(code)));
+            }
+        }
+        int[] defaultMembers = union(defaultRows);
+        if (defaultMembers.length > 0) {
+            result.put(ClassifyFilterFunction.DEFAULT_KEY, new ColumnarJSONArray(batch, defaultMembers));
+        }
+        return result;
+    }
+
+    /**
+     * 合并多个升序行号数组，结果升序且不重复
+     */
+    private static int[] union(List<int[]> rowLists) {
+        int[] single = null;
+        int total = 0;
+        int nonEmpty = 0;
+        for (int[] rows : rowLists) {
+            if (rows.length > 0) {
+                single = rows;
+                total += rows.length;
+                nonEmpty++;
+            }
+        }
+        if (nonEmpty == 0) {
+            return new int[0];
+        }
+        if (nonEmpty == 1) {
+            return single;
+        }
+        int[] merged = new int[total];
+        int size = 0;
+        for (int[] rows : rowLists) {
+            System.arraycopy(rows, 0, merged, size, rows.length);
+            size += rows.length;
+        }
+        Arrays.sort(merged);
+        int distinct = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (distinct == 0 || merged[i] != merged[distinct - 1]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+        return (distinct == merged.length) ? merged : Arrays.copyOf(merged, distinct);
+    }
+
+    /**
+     * 判断列表是否可以使用列式计算
+     *
+     * @return 列式 JSONArray，不能使用时返回 null
+     */
+    private static ColumnarJSONArray asColumnar(JSONArray list) {
+        if (!(list instanceof ColumnarJSONArray) || list.isEmpty()) {
+            return null;
+        }
+        return (ColumnarJSONArray) list;
+    }
+}
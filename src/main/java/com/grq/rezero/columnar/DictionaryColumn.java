@@ -0,0 +1,156 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.expression.FieldAccessor;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     字典编码列：按 FieldAccessor 从数据中取字符串值，每个不同的值只保存一次；
+ *
+ *     1. dictionary 按值第一次出现的顺序保存所有不同的值，codes 为每条数据的值在 dictionary 中的下标；
+ *     2. 值为 null 的数据编码为 NULL_CODE；
+ *     3. 比较、分组、去重都在编码上进行，不再对每条数据做字符串比较与哈希计算；
+ *     编码由数据行构建时保存在 int[] 中，从列式数据文件读取时直接使用文件映射的内存 (见 ColumnarFile)，字典位于堆内；
+ * </pre>
+ */
+public class DictionaryColumn {
+    /**
+     * 值为 null 的数据的编码
+     */
+    public static final int NULL_CODE = -1;
+
+    private final int[] codes;
+    /**
+     * 文件映射的编码，由数据行构建时为 null
+     */
+    private final IntBuffer mappedCodes;
+    private final int size;
+    private final String[] dictionary;
+    private final Map<String, Integer> index;
+
+    private DictionaryColumn(int[] codes, IntBuffer mappedCodes, int size, String[] dictionary, Map<String, Integer> index) {
+        this.codes = codes;
+        this.mappedCodes = mappedCodes;
+        this.size = size;
+        this.dictionary = dictionary;
+        this.index = index;
+    }
+
+    /**
+     * 构建字典编码列，数据行必须都是 JSONObject
+     *
+     * @param rows     数据行
+     * @param accessor 字段取值器
+     * @return 字典编码列
+     */
+    static DictionaryColumn build(Object[] rows, FieldAccessor accessor) {
+        Builder builder = new Builder(accessor, rows.length);
+        for (Object row : rows) {
+            builder.add((JSONObject) row);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 由文件映射的编码与字典构建字典编码列
+     *
+     * @param mappedCodes 每条数据的编码
+     * @param dictionary  按编码顺序排列的所有不同值
+     * @return 字典编码列
+     */
+    static DictionaryColumn mapped(IntBuffer mappedCodes, String[] dictionary) {
+        Map<String, Integer> index = new HashMap<>(dictionary.length * 2);
+        for (int code = 0; code < dictionary.length; code++) {
+            index.put(dictionary[code], code);
+        }
+        return new DictionaryColumn(null, mappedCodes, mappedCodes.limit(), dictionary, index);
+    }
+
+    public int getCode(int row) {
+        return (codes != null) ? codes[row] : mappedCodes.get(row);
+    }
+
+    /**
+     * 获取编码对应的值
+     *
+     * @param code 编码
+     * @return 值，编码为 NULL_CODE 时返回 null
+     */
+    public String decode(int code) {
+        return (code == NULL_CODE) ? null : dictionary[code];
+    }
+
+    /**
+     * 查找值对应的编码
+     *
+     * @param value 值
+     * @return 编码，不存在时返回 NULL_CODE
+     */
+    public int lookup(String value) {
+        Integer code = index.get(value);
+        return (code == null) ? NULL_CODE : code;
+    }
+
+    /**
+     * 按编码顺序排列的所有不同值，调用方不能修改
+     */
+    public String[] getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * 不同值的数量
+     */
+    public int getDictionarySize() {
+        return dictionary.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 逐条构建字典编码列，用于不在内存中同时保存所有数据行的场景（见 ColumnarFileWriter）
+     */
+    static final class Builder {
+        private final FieldAccessor accessor;
+        private final int[] codes;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int size;
+
+        /**
+         * @param accessor 字段取值器
+         * @param capacity 数据条数
+         */
+        Builder(FieldAccessor accessor, int capacity) {
+            this.accessor = accessor;
+            this.codes = new int[capacity];
+        }
+
+        void add(JSONObject row) {
+            String value = accessor.getString(row);
+            if (value == null) {
+                codes[size++] = NULL_CODE;
+                return;
+            }
+            Integer code = index.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                index.put(value, code);
+                dictionary.add(value);
+            }
+            codes[size++] = code;
+        }
+
+        DictionaryColumn build() {
+            return new DictionaryColumn(codes, null, size, dictionary.toArray(new String[0]), index);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.grq.rezero.columnar;
+
+/**
+ * <pre>
+ *     字段索引：字段值 → 数据行号，由字典编码列构建；
+ *
+ *     1. 每个编码对应的行号按升序排列（即数据的原有顺序）；
+ *     2. 编码顺序即各值第一次出现的顺序，按编码遍历即可得到与逐行分类相同的分类顺序；
+ *     对整个数据批的分类、相等筛选与去重计数可以直接由索引得到，不需要再遍历数据；
+ * </pre>
+ *
+ * @see ColumnarBatch#index(String)
+ */
+public class FieldIndex {
+    private final DictionaryColumn column;
+    /**
+     * 各编码对应的行号
+     */
+    private final int[][] postings;
+    /**
+     * 值为 null 的行号
+     */
+    private final int[] nullRows;
+
+    private FieldIndex(DictionaryColumn column, int[][] postings, int[] nullRows) {
+        this.column = column;
+        this.postings = postings;
+        this.nullRows = nullRows;
+    }
+
+    /**
+     * 由字典编码列构建索引
+     *
+     * @param column 字典编码列
+     * @return 字段索引
+     */
+    static FieldIndex build(DictionaryColumn column) {
+        int dictionarySize = column.getDictionarySize();
+        int size = column.size();
+        int[] counts = new int[dictionarySize];
+        int nullCount = 0;
+        for (int row = 0; row < size; row++) {
+            int code = column.getCode(row);
+            if (code == DictionaryColumn.NULL_CODE) {
+                nullCount++;
+            } else {
+                counts[code]++;
+            }
+        }
+        int[][] postings = new int[dictionarySize][];
+        for (int code = 0; code < dictionarySize; code++) {
+            postings[code] = new int[counts[code]];
+        }
+        int[] nullRows = new int[nullCount];
+        int[] filled = new int[dictionarySize];
+        int nullFilled = 0;
+        for (int row = 0; row < size; row++) {
+            int code = column.getCode(row);
+            if (code == DictionaryColumn.NULL_CODE) {
+                nullRows[nullFilled++] = row;
+            } else {
+                postings[code][filled[code]++] = row;
+            }
+        }
+        return new FieldIndex(column, postings, nullRows);
+    }
+
+    /**
+     * 获取编码对应的行号，调用方不能修改
+     *
+     * @param code 编码
+     * @return 行号，按升序排列
+     */
+    public int[] rows(int code) {
+        return (code == DictionaryColumn.NULL_CODE) ? nullRows : postings[code];
+    }
+
+    public DictionaryColumn getColumn() {
+        return column;
+    }
+}
@@ -0,0 +1,117 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSONArray;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.EmptyException;
+
+/**
+ * <pre>
+ *     索引注册表：按数据集标识与版本缓存列式数据批，数据批中已构建的列与字段索引在多次统计之间复用；
+ *
+ *     索引的作用范围：
+ *     1. 单次统计：列式模式下数据源被构建为一个数据批，所有统计单元共用该数据批中的列与字段索引，
+ *        classify / fieldEqual / classifiedSize 对同一字段只遍历一次数据；
+ *     2. 数据集版本：通过注册表获取数据批时，同一数据集的同一版本直接返回缓存的数据批；
+ *        版本变化时重新构建并替换，调用方需在数据变化时更新版本；
+ *     3. 并发获取：检查与替换缓存在同一把锁内完成，同一数据集的同一版本只构建一次，构建在该版本的缓存内容上加锁，
+ *        不阻塞其他数据集；缓存中已是更新的版本时不会被旧版本替换，旧版本的调用方得到单独构建、不缓存的数据批；
+ *     缓存的数据批持有数据集的引用，数量上限为 maxSize，超出时淘汰最久未使用的数据集；
+ * </pre>
+ *
+ * @see ColumnarBatch
+ * @see FieldIndex
+ */
+public class IndexRegistry {
+    /**
+     * 默认缓存的数据集数量上限
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    private final LruCache<String, Entry> cache;
+
+    public IndexRegistry() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public IndexRegistry(int maxSize) {
+        this.cache = new LruCache<>("indexRegistry", maxSize);
+    }
+
+    /**
+     * 获取数据集的列式 JSONArray，同一数据集的同一版本只构建一次
+     *
+     * @param datasetId 数据集标识
+     * @param version   数据集版本
+     * @param src       数据集，版本变化或未缓存时使用
+     * @return 包含所有数据的列式 JSONArray
+     * @throws EmptyException 数据集标识为空时抛出异常
+     */
+    public ColumnarJSONArray acquire(String datasetId, long version, JSONArray src) throws EmptyException {
+        if (datasetId == null) {
+            throw new EmptyException("索引注册表错误：数据集标识为 null");
+        }
+        Entry entry = cache.compute(datasetId,
+                (id, existed) -> (existed != null && existed.version >= version) ? existed : new Entry(version));
+        if (entry.version != version) {
+            // 缓存中已是更新的版本，不替换
+            return ColumnarJSONArray.of(src);
+        }
+        return entry.build(src);
+    }
+
+    /**
+     * 移除数据集的缓存
+     *
+     * @param datasetId 数据集标识
+     */
+    public void invalidate(String datasetId) {
+        cache.invalidate(datasetId);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public LruCache<String, Entry> getCache() {
+        return cache;
+    }
+
+    /**
+     * 缓存内容：数据集版本与列式 JSONArray，列式 JSONArray 在第一次获取时构建
+     */
+    public static class Entry {
+        private final long version;
+        private volatile ColumnarJSONArray array;
+
+        private Entry(long version) {
+            this.version = version;
+        }
+
+        /**
+         * 获取列式 JSONArray，未构建时使用数据集构建；同一版本并发获取时只构建一次，构建失败时下次获取重新构建
+         */
+        private ColumnarJSONArray build(JSONArray src) {
+            ColumnarJSONArray built = array;
+            if (built != null) {
+                return built;
+            }
+            synchronized (this) {
+                if (array == null) {
+                    array = ColumnarJSONArray.of(src);
+                }
+                return array;
+            }
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return 列式 JSONArray，尚未构建完成时返回 null
+         */
+        public ColumnarJSONArray getArray() {
+            return array;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.grq.rezero.columnar;
+
+import com.alibaba.fastjson.JSONObject;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.util.BitSet;
+
+/**
+ * <pre>
+ *     数值列：按字段名直接从数据中取值；
+ *
+ *     1. 所有非空值都是整数类型 (Integer / Long / Short / Byte) 时使用 long[] 存储，否则使用 double[] 存储；
+ *     2. 值为 null 的数据记录在 nulls 中，值不是数值类型的数据记录在 invalid 中，这两类数据在数组中的值为 0；
+ *     3. 累加时按数据顺序使用 double 累加，与 sumByField 逐行累加的结果相同；
+ *     从列式数据文件读取时，数值直接使用文件映射的内存 (见 ColumnarFile)，nulls 与 invalid 位于堆内；
+ * </pre>
+ */
+public class NumericColumn {
+    private final long[] longs;
+    private final double[] doubles;
+    /**
+     * 文件映射的数值，整数列使用 mappedLongs，否则使用 mappedDoubles；由数据行构建时都为 null
+     */
+    private final LongBuffer mappedLongs;
+    private final DoubleBuffer mappedDoubles;
+    private final int size;
+    /**
+     * 值为 null 的数据
+     */
+    private final BitSet nulls;
+    /**
+     * 值不是数值类型的数据
+     */
+    private final BitSet invalid;
+
+    private NumericColumn(long[] longs, double[] doubles, BitSet nulls, BitSet invalid) {
+        this(longs, doubles, null, null, (longs != null) ? longs.length : doubles.length, nulls, invalid);
+    }
+
+    private NumericColumn(long[] longs, double[] doubles, LongBuffer mappedLongs, DoubleBuffer mappedDoubles, int size,
+                          BitSet nulls, BitSet invalid) {
+        this.longs = longs;
+        this.doubles = doubles;
+        this.mappedLongs = mappedLongs;
+        this.mappedDoubles = mappedDoubles;
+        this.size = size;
+        this.nulls = nulls;
+        this.invalid = invalid;
+    }
+
+    /**
+     * 由文件映射的整数构建数值列
+     */
+    static NumericColumn mapped(LongBuffer mappedLongs, BitSet nulls, BitSet invalid) {
+        return new NumericColumn(null, null, mappedLongs, null, mappedLongs.limit(), nulls, invalid);
+    }
+
+    /**
+     * 由文件映射的浮点数构建数值列
+     */
+    static NumericColumn mapped(DoubleBuffer mappedDoubles, BitSet nulls, BitSet invalid) {
+        return new NumericColumn(null, null, null, mappedDoubles, mappedDoubles.limit(), nulls, invalid);
+    }
+
+    /**
+     * 构建数值列，数据行必须都是 JSONObject
+     *
+     * @param rows  数据行
+     * @param field 字段名
+     * @return 数值列
+     */
+    static NumericColumn build(Object[] rows, String field) {
+        Builder builder = new Builder(field, rows.length);
+        for (Object row : rows) {
+            builder.add((JSONObject) row);
+        }
+        return builder.build();
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * 判断所选数据的值是否都为数值
+     *
+     * @param selection 所选数据的行号
+     * @return 是否都为数值
+     */
+    public boolean allValid(int[] selection) {
+        if (nulls.isEmpty() && invalid.isEmpty()) {
+            return true;
+        }
+        for (int row : selection) {
+            if (nulls.get(row) || invalid.get(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按数据顺序累加所选数据的值，调用前需通过 allValid 检查
+     *
+     * @param selection 所选数据的行号
+     * @return 累加结果
+     */
+    public double sum(int[] selection) {
+        double total = 0.0;
+        if (longs != null) {
+            for (int row : selection) {
+                total += longs[row];
+            }
+        } else if (doubles != null) {
+            for (int row : selection) {
+                total += doubles[row];
+            }
+        } else if (mappedLongs != null) {
+            for (int row : selection) {
+                total += mappedLongs.get(row);
+            }
+        } else {
+            for (int row : selection) {
+                total += mappedDoubles.get(row);
+            }
+        }
+        return total;
+    }
+
+    public double getDouble(int row) {
+        if (longs != null) {
+            return longs[row];
+        }
+        if (doubles != null) {
+            return doubles[row];
+        }
+        return (mappedLongs != null) ? mappedLongs.get(row) : mappedDoubles.get(row);
+    }
+
+    /**
+     * 整数列的值，调用前需通过 isIntegral 检查
+     */
+    long getLong(int row) {
+        return (longs != null) ? longs[row] : mappedLongs.get(row);
+    }
+
+    public boolean isNull(int row) {
+        return nulls.get(row);
+    }
+
+    public boolean isIntegral() {
+        return longs != null || mappedLongs != null;
+    }
+
+    /**
+     * 值为 null 的数据，调用方不能修改
+     */
+    BitSet nulls() {
+        return nulls;
+    }
+
+    /**
+     * 值不是数值类型的数据，调用方不能修改
+     */
+    BitSet invalid() {
+        return invalid;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 逐条构建数值列，用于不在内存中同时保存所有数据行的场景（见 ColumnarFileWriter）；
+     * 所有值都读取前不能确定是否为整数列，同时保存整数与浮点数，构建时只保留其中一个
+     */
+    static final class Builder {
+        private final String field;
+        private final long[] longs;
+        private final double[] doubles;
+        private final BitSet nulls;
+        private final BitSet invalid;
+        private boolean integral = true;
+        private int size;
+
+        /**
+         * @param field    字段名
+         * @param capacity 数据条数
+         */
+        Builder(String field, int capacity) {
+            this.field = field;
+            this.longs = new long[capacity];
+            this.doubles = new double[capacity];
+            this.nulls = new BitSet(capacity);
+            this.invalid = new BitSet(capacity);
+        }
+
+        void add(JSONObject row) {
+            Object value = row.get(field);
+            if (value == null) {
+                nulls.set(size);
+            } else if (!(value instanceof Number)) {
+                invalid.set(size);
+            } else {
+                if (!isIntegral(value)) {
+                    integral = false;
+                }
+                longs[size] = ((Number) value).longValue();
+                doubles[size] = ((Number) value).doubleValue();
+            }
+            size++;
+        }
+
+        NumericColumn build() {
+            return integral ? new NumericColumn(longs, null, nulls, invalid) : new NumericColumn(null, doubles, nulls, invalid);
+        }
+    }
+}
@@ -41,6 +41,8 @@ public interface FunctionNameConstants {
     String FUNCTION_NAME_LISTADVANCED_RELATIONFILTER = "relationFilter";
     // 字段排序器
     String FUNCTION_NAME_LISTADVANCED_FIELDSORT = "fieldSort";
+    // 前 N 条数据
+    String FUNCTION_NAME_LISTADVANCED_TOPN = "topN";
     // 列表字段提取器
     String FUNCTION_NAME_LISTADVANCED_EXTRACTOR = "extractor";
 
@@ -1,6 +1,14 @@
 package com.grq.rezero.dimension.units;
 
+import com.googlecode.aviator.AviatorEvaluator;
+import com.googlecode.aviator.Expression;
 import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.expression.AviatorExpressionCache;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Map;
 
 /**
  * 维度单元抽象类
@@ -17,6 +25,11 @@ public abstract class AbstractDimensionChainUnit<I, O> {
      * Aviator 表达式输入参数
      */
     protected String[] aviatorArgs;
+    /**
+     * 预编译的 Aviator 表达式，由 DimensionUnitBuilder 构建单元时编译；
+     * 为空时在首次执行时编译
+     */
+    private volatile Expression compiledExpression;
 
     public AbstractDimensionChainUnit() {
     }
@@ -35,12 +48,157 @@ public abstract class AbstractDimensionChainUnit<I, O> {
      */
     public abstract O doDimensionExec(I src) throws DynamicSummaryException;
 
+    /**
+     * <pre>
+     *     预编译表达式：
+     *     1. 表达式为空时不编译；
+     *     2. 表达式调用的自定义方法还没有添加到 AviatorEvaluator 时不编译，否则编译结果在执行时会找不到方法，留到首次执行时再编译；
+     *     3. 编译结果从 AviatorExpressionCache 获取，相同表达式的单元共享同一个编译结果；
+     * </pre>
+     *
+     * @return 是否编译成功
+     */
+    public boolean compileExpression() {
+        if (compiledExpression != null) {
+            return true;
+        }
+        if (StringUtils.isEmpty(expression)) {
+            return false;
+        }
+        int functionEnd = expression.indexOf('(');
+        if (functionEnd > 0 && !AviatorEvaluator.containsFunction(expression.substring(0, functionEnd).trim())) {
+            return false;
+        }
+        compiledExpression = AviatorExpressionCache.getInstance().compile(expression);
+        return true;
+    }
+
+    /**
+     * 执行表达式，热路径上只绑定 env 并执行编译结果
+     *
+     * @param env Aviator 参数
+     * @return 执行结果
+     */
+    protected Object executeExpression(Map<String, Object> env) {
+        if (compiledExpression == null && !compileExpression()) {
+            return AviatorEvaluator.execute(expression, env);
+        }
+        return compiledExpression.execute(env);
+    }
+
+    /**
+     * 表达式是否已经预编译
+     *
+     * @return
+     */
+    public boolean isCompiled() {
+        return compiledExpression != null;
+    }
+
+    /**
+     * <pre>
+     *     维度单元签名：由单元类型、表达式、Aviator 参数组成；
+     *     签名相同的维度单元，对相同输入的处理结果相同，可以在统计单元链中合并执行；
+     *     子类如果包含其他影响处理结果的状态，需要重写该方法；
+     * </pre>
+     *
+     * @return 签名
+     * @see com.grq.rezero.summary.SummaryChainDag
+     */
+    public String getSignature() {
+        StringBuilder builder = new StringBuilder(64);
+        builder.append(getClass().getName());
+        appendSignaturePart(builder, expression);
+        if (aviatorArgs == null) {
+            builder.append("|#");
+        } else {
+            builder.append('|').append(aviatorArgs.length);
+            for (String aviatorArg : aviatorArgs) {
+                appendSignaturePart(builder, aviatorArg);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 以 "长度:内容" 的形式拼接签名，避免不同内容拼接后相同
+     */
+    private static void appendSignaturePart(StringBuilder builder, String part) {
+        builder.append('|');
+        if (part == null) {
+            builder.append('-');
+        } else {
+            builder.append(part.length()).append(':').append(part);
+        }
+    }
+
+    /**
+     * 各维度单元类的输入、输出类型，按类缓存
+     */
+    private static final ClassValue<Class<?>[]> TYPE_ARGUMENTS = new ClassValue<Class<?>[]>() {
+        @Override
+        protected Class<?>[] computeValue(Class<?> type) {
+            return new Class<?>[]{resolveTypeArgument(type, 0), resolveTypeArgument(type, 1)};
+        }
+    };
+
+    /**
+     * 输入类型，即类型参数 I（例如 ListToStringChainUnit 为 JSONArray）
+     *
+     * @return 输入类型，无法确定时返回 Object.class
+     */
+    public Class<?> getInputType() {
+        return TYPE_ARGUMENTS.get(getClass())[0];
+    }
+
+    /**
+     * 输出类型，即类型参数 O（例如 ListToStringChainUnit 为 String）
+     *
+     * @return 输出类型，无法确定时返回 Object.class
+     */
+    public Class<?> getOutputType() {
+        return TYPE_ARGUMENTS.get(getClass())[1];
+    }
+
+    /**
+     * <pre>
+     *     是否能接收上游输出类型的数据作为输入：
+     *     1. 上游输出类型是输入类型或其子类时才能接收，例如 OutputStringChainUnit (输入 JSON) 能接收 JSONObject 与 JSONArray；
+     *     2. 上游输出类型是输入类型的父类时（例如数据源类型为 JSON，输入类型为 JSONArray）不能接收，执行时可能类型转换失败；
+     *     3. 上游输出类型无法确定（Object.class，见 getOutputType）时，只能在执行时检查，视为能接收；
+     * </pre>
+     *
+     * @param upstreamType 上游输出类型，第一个维度单元为数据源类型
+     * @return 是否能接收
+     */
+    public boolean accepts(Class<?> upstreamType) {
+        return upstreamType == Object.class || getInputType().isAssignableFrom(upstreamType);
+    }
+
+    /**
+     * 从直接继承本类的子类声明中获取类型参数
+     */
+    private static Class<?> resolveTypeArgument(Class<?> clazz, int index) {
+        while (clazz != null && clazz.getSuperclass() != AbstractDimensionChainUnit.class) {
+            clazz = clazz.getSuperclass();
+        }
+        if (clazz == null || !(clazz.getGenericSuperclass() instanceof ParameterizedType)) {
+            return Object.class;
+        }
+        Type argument = ((ParameterizedType) clazz.getGenericSuperclass()).getActualTypeArguments()[index];
+        if (argument instanceof ParameterizedType) {
+            argument = ((ParameterizedType) argument).getRawType();
+        }
+        return (argument instanceof Class) ? (Class<?>) argument : Object.class;
+    }
+
     public String getExpression() {
         return expression;
     }
 
     public void setExpression(String expression) {
         this.expression = expression;
+        this.compiledExpression = null;
     }
 
     public String[] getAviatorArgs() {
@@ -1,7 +1,6 @@
 package com.grq.rezero.dimension.units;
 
 import com.alibaba.fastjson.JSONObject;
-import com.googlecode.aviator.AviatorEvaluator;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
@@ -43,7 +42,7 @@ public class EntityAdvancedChainUnit extends AbstractDimensionChainUnit<JSONObje
 
         Object result = null;
         try {
-            result = AviatorEvaluator.execute(expression, env);
+            result = executeExpression(env);
             return (JSONObject) result;
         } catch (ClassCastException e) {
             String resultClass = (result == null)
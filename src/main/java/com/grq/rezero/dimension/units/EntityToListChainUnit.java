@@ -2,7 +2,6 @@ package com.grq.rezero.dimension.units;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.googlecode.aviator.AviatorEvaluator;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
@@ -48,7 +47,7 @@ public class EntityToListChainUnit extends AbstractDimensionChainUnit<JSONObject
 
         Object result = null;
         try {
-            result = AviatorEvaluator.execute(expression, env);
+            result = executeExpression(env);
             return (JSONArray) result;
         } catch (ClassCastException e) {
             String resultClass = (result == null)
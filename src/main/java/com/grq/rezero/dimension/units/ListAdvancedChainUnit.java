@@ -1,7 +1,6 @@
 package com.grq.rezero.dimension.units;
 
 import com.alibaba.fastjson.JSONArray;
-import com.googlecode.aviator.AviatorEvaluator;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
@@ -49,7 +48,7 @@ public class ListAdvancedChainUnit extends AbstractDimensionChainUnit<JSONArray,
 
         Object result = null;
         try {
-            result = AviatorEvaluator.execute(expression, env);
+            result = executeExpression(env);
             return (JSONArray) result;
         } catch (ClassCastException e) {
             String resultClass = (result == null)
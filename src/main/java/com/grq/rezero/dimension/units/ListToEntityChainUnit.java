@@ -2,7 +2,6 @@ package com.grq.rezero.dimension.units;
 
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.googlecode.aviator.AviatorEvaluator;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
@@ -50,7 +49,7 @@ public class ListToEntityChainUnit extends AbstractDimensionChainUnit<JSONArray,
 
         Object result = null;
         try {
-            result = AviatorEvaluator.execute(expression, env);
+            result = executeExpression(env);
             return (JSONObject) result;
         } catch (ClassCastException e) {
             String resultClass = (result == null)
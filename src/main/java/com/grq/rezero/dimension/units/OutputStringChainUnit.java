@@ -21,6 +21,17 @@ public class OutputStringChainUnit extends AbstractDimensionChainUnit<JSON, Stri
         super(expression, aviatorArgs);
     }
 
+    /**
+     * 输入任意维度：接收 JSON 的子类（JSONObject、JSONArray 等），不接收 String 等零维的输出
+     *
+     * @param upstreamType 上游输出类型，第一个维度单元为数据源类型
+     * @return 是否能接收
+     */
+    @Override
+    public boolean accepts(Class<?> upstreamType) {
+        return upstreamType == Object.class || JSON.class.isAssignableFrom(upstreamType);
+    }
+
     /**
      * 暂时不做任何处理，直接输出
      *
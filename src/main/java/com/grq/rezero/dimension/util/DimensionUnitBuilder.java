@@ -13,6 +13,7 @@ import com.grq.rezero.function.other.ListExtractFunction;
 import com.grq.rezero.function.other.RelationInfoFunction;
 import com.grq.rezero.function.other.SubListFunction;
 import com.grq.rezero.function.sort.FieldSortFunction;
+import com.grq.rezero.function.sort.TopNFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -24,6 +25,12 @@ import org.springframework.stereotype.Component;
 public class DimensionUnitBuilder {
     private static Logger LOG = LoggerFactory.getLogger(DimensionUnitBuilder.class);
 
+    /**
+     * 是否在构建维度单元时预编译 Aviator 表达式；
+     * 关闭后单元在首次执行时编译
+     */
+    private boolean precompile = true;
+
     public AbstractDimensionChainUnit buildDimenUnit(FunctionType type, String... args)
             throws DynamicSummaryException {
         if (type == null) {
@@ -61,6 +68,7 @@ public class DimensionUnitBuilder {
             case LISTADVANCED_FIELDEQUAL:
             case LISTADVANCED_EXTRACTOR:
             case LISTADVANCED_FIELDSORT:
+            case LISTADVANCED_TOPN:
             case LISTADVANCED_RELATIONINFO:
                 unit = new ListAdvancedChainUnit(expression, args);
                 break;
@@ -79,6 +87,10 @@ public class DimensionUnitBuilder {
                 break;
             default:
         }
+        // 预编译表达式，执行时只需要绑定参数
+        if (unit != null && precompile) {
+            unit.compileExpression();
+        }
         return unit;
     }
 
@@ -135,6 +147,11 @@ public class DimensionUnitBuilder {
                 builder.append(FieldSortFunction.FIELDSORT_LIST).append(",");
                 builder.append(FieldSortFunction.FIELDSORT_AVIATORARGS).append(")");
                 break;
+            case LISTADVANCED_TOPN:
+                builder.append(FunctionNameConstants.FUNCTION_NAME_LISTADVANCED_TOPN).append("(");
+                builder.append(TopNFunction.TOPN_LIST).append(",");
+                builder.append(TopNFunction.TOPN_AVIATORARGS).append(")");
+                break;
             case LISTADVANCED_RELATIONINFO:
                 builder.append(FunctionNameConstants.FUNCTION_NAME_LISTADVANCED_RELATIONINFO).append("(");
                 builder.append(RelationInfoFunction.FUNCTION_VAR_COMMON_LIST).append(",");
@@ -168,4 +185,12 @@ public class DimensionUnitBuilder {
         }
         return builder.toString();
     }
+
+    public boolean isPrecompile() {
+        return precompile;
+    }
+
+    public void setPrecompile(boolean precompile) {
+        this.precompile = precompile;
+    }
 }
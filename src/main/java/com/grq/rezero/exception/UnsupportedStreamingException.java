@@ -0,0 +1,20 @@
+package com.grq.rezero.exception;
+
+/**
+ * 流式统计不支持的维度单元异常，继承于 DynamicSummaryException
+ * 统计单元中存在需要完整列表才能执行的维度单元（例如排序）时，抛出该异常
+ *
+ * @see com.grq.rezero.executor.StreamingSummaryExecutor
+ */
+public class UnsupportedStreamingException extends DynamicSummaryException {
+    public UnsupportedStreamingException() {
+    }
+
+    public UnsupportedStreamingException(String message) {
+        super(message);
+    }
+
+    public UnsupportedStreamingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,136 @@
+package com.grq.rezero.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     批量统计结果，由 SummaryExecutor#summaryBatch 返回；
+ *
+ *     1. 各数据集的统计结果与执行情况，按传入数据集的顺序排列；
+ *     2. 批量执行的吞吐量：每秒处理的数据集数量、每秒处理的数据条数；
+ * </pre>
+ *
+ * @see SummaryExecutor#summaryBatch(Map, com.grq.rezero.summary.SummaryUnitChain)
+ */
+public class BatchSummaryResult {
+    /**
+     * 各数据集的执行情况，Key 为数据集标识
+     */
+    private final Map<String, SummaryExecution> executions;
+    /**
+     * 数据总条数
+     */
+    private final long rowCount;
+    /**
+     * 批量执行总耗时（纳秒）
+     */
+    private final long elapsedNanos;
+    /**
+     * 并行度
+     */
+    private final int parallelism;
+
+    public BatchSummaryResult(Map<String, SummaryExecution> executions, long rowCount, long elapsedNanos, int parallelism) {
+        this.executions = executions;
+        this.rowCount = rowCount;
+        this.elapsedNanos = elapsedNanos;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * 获取各数据集的统计结果，Key 为数据集标识
+     *
+     * @return
+     */
+    public Map<String, String> getResults() {
+        Map<String, String> results = new LinkedHashMap<>(executions.size() * 2);
+        for (Map.Entry<String, SummaryExecution> entry : executions.entrySet()) {
+            results.put(entry.getKey(), entry.getValue().getResult());
+        }
+        return results;
+    }
+
+    /**
+     * 获取单个数据集的统计结果
+     *
+     * @param datasetId 数据集标识
+     * @return 统计结果，数据集不存在时返回 null
+     */
+    public String getResult(String datasetId) {
+        SummaryExecution execution = executions.get(datasetId);
+        return (execution == null) ? null : execution.getResult();
+    }
+
+    public Map<String, SummaryExecution> getExecutions() {
+        return Collections.unmodifiableMap(executions);
+    }
+
+    /**
+     * 获取执行失败的数据集标识
+     *
+     * @return
+     */
+    public List<String> getFailedDatasets() {
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, SummaryExecution> entry : executions.entrySet()) {
+            if (!entry.getValue().isSuccess()) {
+                failed.add(entry.getKey());
+            }
+        }
+        return failed;
+    }
+
+    public int getDatasetCount() {
+        return executions.size();
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * 每秒处理的数据集数量
+     *
+     * @return
+     */
+    public double getDatasetsPerSecond() {
+        return perSecond(executions.size());
+    }
+
+    /**
+     * 每秒处理的数据条数
+     *
+     * @return
+     */
+    public double getRowsPerSecond() {
+        return perSecond(rowCount);
+    }
+
+    private double perSecond(long count) {
+        return (elapsedNanos <= 0) ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchSummaryResult{datasets=%d, rows=%d, failed=%d, parallelism=%d, elapsed=%dms, datasets/s=%.1f, rows/s=%.1f}",
+                getDatasetCount(), rowCount, getFailedDatasets().size(), parallelism, getElapsedMillis(),
+                getDatasetsPerSecond(), getRowsPerSecond());
+    }
+}
@@ -0,0 +1,87 @@
+package com.grq.rezero.executor;
+
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.exception.DynamicSummaryException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <pre>
+ *     编译后的维度单元链，由 PipelineCompiler 编译得到；
+ *
+ *     1. 类型已在编译时检查，执行时依次调用各维度单元，不再判断输入输出类型；
+ *     2. 编译结果不保存执行状态，可以被多个线程、多条数据重复使用；
+ *     3. 维度单元执行出错时，抛出的 DynamicSummaryException 中包括出错的维度单元下标与描述；
+ * </pre>
+ *
+ * @see PipelineCompiler
+ * @see DimenStreamExecutor#doProcessPipeline(com.alibaba.fastjson.JSON, CompiledPipeline)
+ */
+public final class CompiledPipeline {
+    private final AbstractDimensionChainUnit[] units;
+    /**
+     * 编译时指定的数据源类型
+     */
+    private final Class<?> sourceType;
+    /**
+     * 最终输出类型
+     */
+    private final Class<?> outputType;
+
+    CompiledPipeline(AbstractDimensionChainUnit[] units, Class<?> sourceType, Class<?> outputType) {
+        this.units = units;
+        this.sourceType = sourceType;
+        this.outputType = outputType;
+    }
+
+    /**
+     * 执行维度单元链
+     *
+     * @param src 数据源，类型需要与编译时指定的数据源类型相同
+     * @return 最后一个维度单元的输出，没有维度单元时返回数据源
+     * @throws DynamicSummaryException 维度单元执行出错时抛出异常
+     */
+    @SuppressWarnings("unchecked")
+    public Object execute(Object src) throws DynamicSummaryException {
+        Object result = src;
+        int index = 0;
+        try {
+            for (; index < units.length; index++) {
+                result = units[index].doDimensionExec(result);
+            }
+        } catch (ClassCastException | DynamicSummaryException e) {
+            throw DimenStreamExecutor.unitException(index, units[index], e);
+        }
+        return result;
+    }
+
+    /**
+     * 维度单元
+     */
+    public List<AbstractDimensionChainUnit> getUnits() {
+        return Collections.unmodifiableList(Arrays.asList(units));
+    }
+
+    public int size() {
+        return units.length;
+    }
+
+    public Class<?> getSourceType() {
+        return sourceType;
+    }
+
+    public Class<?> getOutputType() {
+        return outputType;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("CompiledPipeline{").append(sourceType.getSimpleName());
+        for (AbstractDimensionChainUnit unit : units) {
+            builder.append(" → ").append(StreamingPipeline.describe(unit));
+        }
+        return builder.append(" → ").append(outputType.getSimpleName()).append('}').toString();
+    }
+}
@@ -5,16 +5,26 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
 import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.WrongMatchTypeException;
 import com.grq.rezero.expression.ExpressionParser;
+import com.grq.rezero.metrics.ExecutionMetrics;
+import com.grq.rezero.metrics.MetricsContext;
+import com.grq.rezero.metrics.NoopExecutionMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.Map;
 
 /**
- * 维度单元执行链
+ * <pre>
+ *     维度单元执行链
+ *
+ *     维度单元链在执行前由 PipelineCompiler 检查类型并编译为 CompiledPipeline；
+ *     每个维度单元的执行情况记录到 metrics 中（默认不记录），见 ExecutionMetrics；
+ * </pre>
  */
 @Component("dimenStreamExecutor")
 public class DimenStreamExecutor<T extends JSON> {
@@ -23,6 +33,11 @@ public class DimenStreamExecutor<T extends JSON> {
     @Autowired
     private ExpressionParser initializer;
 
+    /**
+     * 执行指标，默认不记录
+     */
+    private ExecutionMetrics metrics = NoopExecutionMetrics.INSTANCE;
+
     /**
      * <pre>
      *     维度单元顺序执行：
@@ -30,14 +45,17 @@ public class DimenStreamExecutor<T extends JSON> {
      *
      *     1. 传入的维度单元列表，要求按照顺序匹配输入输出类型；
      *     - 例如：需要<strong>第一个的输出类型是第二个的输入类型</strong>，第二个的输出类型是第三个的输入类型...
-     *     - 如果单元 [n] 的输出与单元 [n+1] 的输入没有匹配上，则抛出异常；
+     *     - 如果单元 [n] 的输出与单元 [n+1] 的输入没有匹配上，则在执行前抛出异常（见 PipelineCompiler）；
      *     2. 方法的传入参数类型被规定为 JSONObject，输出类型被规定为 String；只要满足最初输入与最终输出类型，且处理不出错误，维度单元链就可以执行；
+     *
+     *     每次调用都会编译维度单元链；同一个维度单元链处理多条数据时，先用 compilePipeline 编译，再调用 doProcessPipeline；
      * </pre>
      *
      * @param entity     单条数据
      * @param dimenUnits 维度单元列表
      * @return 输出结果为字符串
-     * @throws ClassCastException      处理过程中抛出的转换类型错误
+     * @throws ClassCastException      传入的数据不是 JSON 类型时抛出异常
+     * @throws WrongMatchTypeException 维度单元列表类型不匹配时抛出异常
      * @throws DynamicSummaryException 动态统计过程中抛出的异常
      */
     public String doProcessDimenChainUnits(T entity, List<AbstractDimensionChainUnit> dimenUnits)
@@ -45,38 +63,172 @@ public class DimenStreamExecutor<T extends JSON> {
         /**
          * 1. 判断传入的 entity 类型
          */
+        checkEntity(entity);
+
+        /**
+         * 2. 检查维度单元列表类型并编译
+         */
+        CompiledPipeline pipeline = PipelineCompiler.compile(dimenUnits, entity.getClass());
+        return doProcessPipeline(entity, pipeline);
+    }
+
+    /**
+     * 编译维度单元链，编译结果可以重复用于多条数据
+     *
+     * @param dimenUnits 维度单元列表
+     * @param sourceType 数据类型（JSONObject 或 JSONArray）
+     * @return 编译后的维度单元链
+     * @throws WrongMatchTypeException 维度单元列表类型不匹配时抛出异常
+     * @see PipelineCompiler
+     */
+    public CompiledPipeline compilePipeline(List<AbstractDimensionChainUnit> dimenUnits, Class<? extends JSON> sourceType)
+            throws DynamicSummaryException {
+        return PipelineCompiler.compile(dimenUnits, sourceType);
+    }
+
+    /**
+     * <pre>
+     *     执行编译后的维度单元链：类型已在编译时检查，不再判断数据与各维度单元的类型；
+     *     记录执行指标时逐个维度单元执行并记录，否则直接执行整个维度单元链；
+     * </pre>
+     *
+     * @param entity   单条数据，类型需要与编译时指定的数据类型相同
+     * @param pipeline 编译后的维度单元链
+     * @return 输出结果为字符串
+     * @throws DynamicSummaryException 动态统计过程中抛出的异常
+     */
+    public String doProcessPipeline(T entity, CompiledPipeline pipeline) throws DynamicSummaryException {
+        ExecutionMetrics metrics = this.metrics;
+        if (!metrics.isEnabled()) {
+            return toResultString(pipeline.execute(entity));
+        }
+        Object result = entity;
+        List<AbstractDimensionChainUnit> units = pipeline.getUnits();
+        for (int i = 0; i < units.size(); i++) {
+            result = doProcessDimenChainUnit(result, units.get(i), i, metrics);
+        }
+        return toResultString(result);
+    }
+
+    /**
+     * 判断传入的 entity 类型，只接受 JSONObject 与 JSONArray
+     *
+     * @param entity 单条数据
+     * @throws ClassCastException 类型不匹配时抛出异常
+     */
+    public void checkEntity(Object entity) throws ClassCastException {
         if (!(entity instanceof JSONObject || entity instanceof JSONArray)) {
             String className = (entity == null)
                     ? "NULL" : entity.getClass().getName();
             String errorMsg = String.format("传入类型为 [%s]，不能转换为 JSON 类型", className);
             throw new ClassCastException(errorMsg);
         }
+    }
 
-        /**
-         * 2. 判断传入的维度单元列表类型是否匹配
-         */
-        if (!checkDimenUnits(dimenUnits)) {
-            String errorMsg = "维度单元列表类型不匹配";
-            throw new ClassCastException(errorMsg);
+    /**
+     * 执行维度单元链中的单个维度单元
+     *
+     * @param src   输入，即上一个维度单元的输出
+     * @param unit  维度单元
+     * @param index 维度单元在维度单元链中的下标（从 0 计）
+     * @return 维度单元的输出
+     * @throws DynamicSummaryException 维度单元执行出错时抛出异常
+     */
+    public Object doProcessDimenChainUnit(Object src, AbstractDimensionChainUnit unit, int index)
+            throws DynamicSummaryException {
+        return doProcessDimenChainUnit(src, unit, index, metrics);
+    }
+
+    /**
+     * 执行维度单元链中的单个维度单元，并将执行情况记录到指定的指标中
+     *
+     * @param src     输入，即上一个维度单元的输出
+     * @param unit    维度单元
+     * @param index   维度单元在维度单元链中的下标（从 0 计）
+     * @param metrics 执行指标
+     * @return 维度单元的输出
+     * @throws DynamicSummaryException 维度单元执行出错时抛出异常
+     */
+    public Object doProcessDimenChainUnit(Object src, AbstractDimensionChainUnit unit, int index, ExecutionMetrics metrics)
+            throws DynamicSummaryException {
+        if (!metrics.isEnabled()) {
+            return doExec(src, unit, index);
+        }
+        MetricsContext.UnitScope scope = MetricsContext.enter();
+        long begin = System.nanoTime();
+        Object output = null;
+        boolean success = false;
+        try {
+            output = doExec(src, unit, index);
+            success = true;
+            return output;
+        } finally {
+            long elapsed = System.nanoTime() - begin;
+            MetricsContext.exit(scope);
+            metrics.recordUnit(unit.getClass().getSimpleName(), functionName(unit), elapsed, cardinality(src),
+                    success ? cardinality(output) : 0, success, scope.getCacheHits(), scope.getCacheMisses());
         }
+    }
 
-        Object result = entity;
-        int i = 0;
-        AbstractDimensionChainUnit unit = null;
-
-        for (i = 0; i < dimenUnits.size(); i++) {
-            unit = dimenUnits.get(i);
-            try {
-                result = unit.doDimensionExec(result);
-            } catch (ClassCastException e) {
-                String errorMsg = String.format("第 %d 个维度单元 [%s] (从 0 计) 类型转换错误，具体信息：[%s]", i, JSON.toJSONString(unit));
-                throw new DynamicSummaryException(errorMsg, e);
-            } catch (DynamicSummaryException e) {
-                String errorMsg = String.format("第 %d 个维度单元 [%s] (从 0 计) 抛出异常，具体信息：[%s]", i, JSON.toJSONString(unit));
-                throw new DynamicSummaryException(errorMsg, e);
-            }
+    private Object doExec(Object src, AbstractDimensionChainUnit unit, int index) throws DynamicSummaryException {
+        try {
+            return unit.doDimensionExec(src);
+        } catch (ClassCastException | DynamicSummaryException e) {
+            throw unitException(index, unit, e);
         }
+    }
 
+    /**
+     * 包装维度单元抛出的异常，错误信息中包括维度单元下标与描述
+     *
+     * @param index 维度单元下标（从 0 计）
+     * @param unit  维度单元
+     * @param e     维度单元抛出的异常
+     * @return 包装后的异常
+     */
+    static DynamicSummaryException unitException(int index, AbstractDimensionChainUnit unit, RuntimeException e) {
+        String reason = (e instanceof ClassCastException) ? "类型转换错误" : "抛出异常";
+        String errorMsg = String.format("第 %d 个维度单元 [%s] (从 0 计) %s，具体信息：[%s]",
+                index, StreamingPipeline.describe(unit), reason, e.getMessage());
+        return new DynamicSummaryException(errorMsg, e);
+    }
+
+    /**
+     * 维度单元表达式中的 Aviator 方法名，没有方法时为 "-"
+     */
+    private static String functionName(AbstractDimensionChainUnit unit) {
+        String expression = unit.getExpression();
+        int end = (expression == null) ? -1 : expression.indexOf('(');
+        return (end > 0) ? expression.substring(0, end).trim() : "-";
+    }
+
+    /**
+     * 输入输出的基数：列表为数据条数，JSONObject 为分组数，其余非空值为 1
+     *
+     * @param value 维度单元的输入或输出
+     * @return 基数，null 为 0
+     */
+    public static long cardinality(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof List) {
+            return ((List<?>) value).size();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        }
+        return 1;
+    }
+
+    /**
+     * 将维度单元链的最终结果转换为字符串
+     *
+     * @param result 最后一个维度单元的输出
+     * @return 输出结果
+     * @throws DynamicSummaryException 最终结果为空或为列表时抛出异常
+     */
+    public String toResultString(Object result) throws DynamicSummaryException {
         if (result != null && !(result instanceof List)) {
             return result.toString();
         } else {
@@ -84,7 +236,16 @@ public class DimenStreamExecutor<T extends JSON> {
         }
     }
 
-    private boolean checkDimenUnits(List<AbstractDimensionChainUnit> units) {
-        return true;
+    public ExecutionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 设置执行指标，为 null 时不记录
+     *
+     * @param metrics 执行指标
+     */
+    public void setMetrics(ExecutionMetrics metrics) {
+        this.metrics = (metrics == null) ? NoopExecutionMetrics.INSTANCE : metrics;
     }
 }
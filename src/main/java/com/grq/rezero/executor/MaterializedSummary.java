@@ -0,0 +1,636 @@
+package com.grq.rezero.executor;
+
+import com.grq.rezero.cache.DatasetFingerprint;
+import com.grq.rezero.constants.FunctionNameConstants;
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.dimension.units.EntityToListChainUnit;
+import com.grq.rezero.dimension.units.ListAdvancedChainUnit;
+import com.grq.rezero.dimension.units.ListToEntityChainUnit;
+import com.grq.rezero.dimension.units.ListToStringChainUnit;
+import com.grq.rezero.dimension.units.OutputStringChainUnit;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.EmptyException;
+import com.grq.rezero.exception.UnsupportedStreamingException;
+import com.grq.rezero.expression.FieldAccessor;
+import com.grq.rezero.function.calculate.ClassifiedSummaryPlan;
+import com.grq.rezero.function.calculate.DistinctCountSpec;
+import com.grq.rezero.function.calculate.FusedAggregation;
+import com.grq.rezero.function.filter.ClassifyFilterFunction;
+import com.grq.rezero.summary.SummaryUnit;
+import com.grq.rezero.summary.SummaryUnitChain;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     物化统计：根据统计单元链维护各分类的聚合状态，数据集增加或撤回数据时增量更新，不需要重新统计整个数据集；
+ *
+ *     1. 构建：将各统计单元编译为物化视图，支持的统计单元形式与流式统计相同 (StreamingPipeline)，
+ *        即 fieldEqual 筛选之后接常量输出、sumByField / classifiedSize，或 classify → classifiedSummary → join；
+ *        聚合方法需要可以撤回，因此不支持对数据行的 join（classifiedSummary 中的 join 方法段、统计单元结尾直接 join 数据）；
+ *     2. append(rows) / retract(rows)：只处理增量数据，复杂度为 O(增量数据)；
+ *        - 不满足统计单元要求的数据（例如 sumByField 字段不是数值）记为该统计单元的无效数据，
+ *          存在无效数据时该统计单元输出失败，与非物化统计相同；无效数据全部撤回后恢复正常；
+ *        - 增量数据先对所有统计单元检查，撤回不存在的数据时抛出异常，此时所有统计单元的状态都不变；
+ *          已追加的数据按数据指纹 (DatasetFingerprint#ofRow) 计数，撤回的每条数据都必须与一条已追加且未撤回的数据内容相同，
+ *          因此需要为每条数据保存一个指纹，内存与当前数据条数成正比；
+ *        - 分类中的数据全部撤回后删除该分类；
+ *     3. render()：只重新渲染发生变化的分类，复杂度为 O(增量数据 + 分类数)，输出与 SummaryExecutor#summary 相同；
+ *
+ *     注：
+ *     1. 分类顺序为分类首次出现的顺序，分类被撤回为空后再次出现时排在最后；只追加数据时与非物化统计的顺序相同；
+ *     2. sumByField 在分类没有撤回过数据时按追加顺序累加，与非物化统计的结果完全相同；
+ *        撤回过数据的分类对整数值精确累加、其余数值单独累加，可能与重新累加的结果存在末位误差；
+ *     3. 所有方法都是同步方法，可以在多线程间共享；
+ * </pre>
+ *
+ * @see StreamingPipeline
+ * @see SummaryExecutor#summary(com.alibaba.fastjson.JSONArray, SummaryUnitChain)
+ */
+public class MaterializedSummary {
+    private static Logger LOG = LoggerFactory.getLogger(MaterializedSummary.class);
+
+    /**
+     * 各统计单元的物化视图，按统计单元顺序排列
+     */
+    private final UnitView[] views;
+    /**
+     * 当前数据条数
+     */
+    private long rowCount;
+    /**
+     * 已追加且未撤回的数据：数据指纹 → 条数
+     */
+    private final Map<Long, Integer> rowCounts = new HashMap<>();
+
+    private MaterializedSummary(UnitView[] views) {
+        this.views = views;
+    }
+
+    /**
+     * 根据统计单元链构建物化统计，初始数据集为空
+     *
+     * @param summaryUnitChain 统计单元链
+     * @return 物化统计
+     * @throws EmptyException                统计单元链为 null 时抛出异常
+     * @throws UnsupportedStreamingException 统计单元中存在不支持增量维护的维度单元时抛出异常
+     */
+    public static MaterializedSummary build(SummaryUnitChain summaryUnitChain)
+            throws EmptyException, UnsupportedStreamingException {
+        if (summaryUnitChain == null) {
+            throw new EmptyException("物化统计错误：统计单元链为 null");
+        }
+        List<SummaryUnit> summaryUnits = summaryUnitChain.getSummaryUnits();
+        if (CollectionUtils.isEmpty(summaryUnits)) {
+            LOG.warn("当前统计单元链为空，物化统计结果为空字符串");
+            return new MaterializedSummary(new UnitView[0]);
+        }
+        UnitView[] views = new UnitView[summaryUnits.size()];
+        for (int i = 0; i < views.length; i++) {
+            try {
+                views[i] = UnitView.compile(i, summaryUnits.get(i));
+            } catch (UnsupportedStreamingException e) {
+                LOG.error(e.getMessage());
+                throw e;
+            } catch (DynamicSummaryException e) {
+                views[i] = UnitView.failed(e);
+            }
+        }
+        return new MaterializedSummary(views);
+    }
+
+    /**
+     * 追加数据
+     *
+     * @param rows 追加的数据
+     */
+    public synchronized void append(List<?> rows) {
+        apply(rows, false);
+    }
+
+    /**
+     * 撤回数据，撤回的数据必须已经追加过
+     *
+     * @param rows 撤回的数据
+     * @throws DynamicSummaryException 撤回不存在的数据时抛出异常，此时状态不变
+     */
+    public synchronized void retract(List<?> rows) throws DynamicSummaryException {
+        apply(rows, true);
+    }
+
+    /**
+     * <pre>
+     *     应用增量数据：
+     *     1. 撤回时检查每条数据的指纹，撤回的数据必须已追加；
+     *     2. 所有统计单元依次检查增量数据，并计算每条数据的分类与聚合字段值；
+     *     3. 检查全部通过后，再更新各统计单元的状态与数据指纹的计数；
+     * </pre>
+     */
+    private void apply(List<?> rows, boolean retract) throws DynamicSummaryException {
+        if (CollectionUtils.isEmpty(rows)) {
+            return;
+        }
+        if (retract && rows.size() > rowCount) {
+            String errorMsg = String.format("物化统计错误：撤回 %d 条数据，当前只有 %d 条数据", rows.size(), rowCount);
+            throw new DynamicSummaryException(errorMsg);
+        }
+        long[] fingerprints = new long[rows.size()];
+        for (int r = 0; r < fingerprints.length; r++) {
+            fingerprints[r] = DatasetFingerprint.ofRow(rows.get(r));
+        }
+        if (retract) {
+            checkRetractable(fingerprints);
+        }
+        List<List<RowDelta>> deltas = new ArrayList<>(views.length);
+        for (UnitView view : views) {
+            deltas.add(view.prepare(rows, retract));
+        }
+        for (int i = 0; i < views.length; i++) {
+            views[i].apply(deltas.get(i), retract);
+        }
+        int sign = retract ? -1 : 1;
+        for (long fingerprint : fingerprints) {
+            rowCounts.merge(fingerprint, sign, (count, delta) -> (count + delta == 0) ? null : count + delta);
+        }
+        rowCount += retract ? -rows.size() : rows.size();
+    }
+
+    /**
+     * 撤回前检查：每条数据都必须已追加，且撤回的条数不能多于已追加且未撤回的条数
+     */
+    private void checkRetractable(long[] fingerprints) throws DynamicSummaryException {
+        Map<Long, Integer> required = new HashMap<>();
+        for (int r = 0; r < fingerprints.length; r++) {
+            int count = required.merge(fingerprints[r], 1, Integer::sum);
+            if (rowCounts.getOrDefault(fingerprints[r], 0) < count) {
+                String errorMsg = String.format("物化统计错误：撤回的第 %d 条数据 (从 0 计) 不存在，或撤回的数量多于已追加的数量", r);
+                throw new DynamicSummaryException(errorMsg);
+            }
+        }
+    }
+
+    /**
+     * 输出统计结果，与 SummaryExecutor#summary 相同：某个统计单元执行失败时，只输出该单元之前的结果
+     *
+     * @return 统计结果
+     */
+    public synchronized String render() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < views.length; i++) {
+            try {
+                builder.append(views[i].render());
+            } catch (RuntimeException e) {
+                LOG.error("第 {} 个统计单元 (从 0 计) 输出出错：[{}]", i, e.getMessage());
+                break;
+            }
+        }
+        return builder.toString();
+    }
+
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 单条增量数据：分类标签与各聚合方法的字段值
+     */
+    private static class RowDelta {
+        /**
+         * 分类标签，为 null 时表示缺省分类（或不分类）
+         */
+        private final String key;
+        /**
+         * 各聚合方法的字段值，为 null 时表示无效数据
+         */
+        private final Object[] values;
+        /**
+         * 无效数据的错误信息
+         */
+        private final String errorMessage;
+
+        RowDelta(String key, Object[] values, String errorMessage) {
+            this.key = key;
+            this.values = values;
+            this.errorMessage = errorMessage;
+        }
+    }
+
+    /**
+     * 单个统计单元的物化视图
+     */
+    private static class UnitView implements FunctionNameConstants {
+        private final StreamingPipeline.FilterStage[] filters;
+        /**
+         * 编译时的错误，不为 null 时输出失败
+         */
+        private final RuntimeException error;
+        /**
+         * 常量输出，不为 null 时不需要数据
+         */
+        private final String constant;
+        /**
+         * 聚合方法，为 null 时表示统计单元没有维度单元
+         */
+        private final FusedAggregation.Aggregate[] aggregates;
+        private final String[] fields;
+        private final FieldAccessor[] accessors;
+        /**
+         * 分类字段取值器，为 null 时表示不分类
+         */
+        private final FieldAccessor classifier;
+        private final ClassifiedSummaryPlan plan;
+        private final String separator;
+        /**
+         * 各分类的聚合状态，不分类时所有数据都在缺省分类中
+         */
+        private final Map<String, GroupState> groups = new LinkedHashMap<>();
+        private GroupState defaultGroup;
+        /**
+         * 无效数据条数，以及最近一条无效数据的错误信息
+         */
+        private long invalidRows;
+        private String invalidMessage;
+
+        private UnitView(StreamingPipeline.FilterStage[] filters, RuntimeException error, String constant,
+                         FusedAggregation aggregation, String[] aviatorValues, FieldAccessor classifier,
+                         ClassifiedSummaryPlan plan, String separator) {
+            this.filters = filters;
+            this.error = error;
+            this.constant = constant;
+            this.classifier = classifier;
+            this.plan = plan;
+            this.separator = separator;
+            if (aggregation == null) {
+                this.aggregates = null;
+                this.fields = null;
+                this.accessors = null;
+                return;
+            }
+            int n = aggregation.size();
+            this.aggregates = new FusedAggregation.Aggregate[n];
+            this.fields = new String[n];
+            this.accessors = new FieldAccessor[n];
+            for (int k = 0; k < n; k++) {
+                FusedAggregation.Aggregate aggregate = aggregation.getAggregate(k);
+                if (aggregate.getType() == FusedAggregation.AggregateType.JOIN) {
+                    String errorMsg = String.format("聚合方法 [%s] 的结果与数据顺序有关，不支持撤回，不能用于物化统计", aggregate);
+                    throw new UnsupportedStreamingException(errorMsg);
+                }
+                aggregates[k] = aggregate;
+                fields[k] = aviatorValues[aggregate.getArgIndex()];
+                if (aggregate.getType() == FusedAggregation.AggregateType.DISTINCT_SIZE && StringUtils.isNotEmpty(fields[k])) {
+                    // 需要撤回，近似计数的表达式也精确计数
+                    accessors[k] = FieldAccessor.compile(DistinctCountSpec.compile(fields[k]).getField());
+                }
+            }
+        }
+
+        static UnitView failed(RuntimeException error) {
+            return new UnitView(new StreamingPipeline.FilterStage[0], error, null, null, null, null, null, null);
+        }
+
+        /**
+         * 编译统计单元，支持的形式见 StreamingPipeline
+         */
+        static UnitView compile(int index, SummaryUnit summaryUnit)
+                throws UnsupportedStreamingException, DynamicSummaryException {
+            List<AbstractDimensionChainUnit> units = summaryUnit.getUnits();
+            StreamingPipeline.FilterStage[] noFilters = new StreamingPipeline.FilterStage[0];
+            if (CollectionUtils.isEmpty(units)) {
+                return new UnitView(noFilters, null, "", null, null, null, null, null);
+            }
+            List<StreamingPipeline.FilterStage> filters = new ArrayList<>();
+            int cursor = 0;
+            while (cursor < units.size()
+                    && StreamingPipeline.isUnit(units.get(cursor), ListAdvancedChainUnit.class, FUNCTION_NAME_LISTADVANCED_FIELDEQUAL)) {
+                filters.add(new StreamingPipeline.FilterStage(StreamingPipeline.singleArg(units.get(cursor))));
+                cursor++;
+            }
+            StreamingPipeline.FilterStage[] filterArray = filters.toArray(noFilters);
+
+            List<AbstractDimensionChainUnit> rest = units.subList(cursor, units.size());
+            if (rest.size() == 1 && rest.get(0) instanceof OutputStringChainUnit) {
+                String[] aviatorArgs = rest.get(0).getAviatorArgs();
+                if (aviatorArgs == null || aviatorArgs.length == 0) {
+                    throw new DynamicSummaryException("OutputStringChainUnit 只接受一个 Aviator 参数，当前传入参数数量为 [0] 个");
+                }
+                return new UnitView(filterArray, null, aviatorArgs[0], null, null, null, null, null);
+            }
+            if (rest.size() == 1 && StreamingPipeline.isAggregateUnit(rest.get(0))) {
+                String[] aviatorValues = {StreamingPipeline.singleArg(rest.get(0))};
+                FusedAggregation aggregation = StreamingPipeline.parseAggregation(rest.get(0));
+                return new UnitView(filterArray, null, null, aggregation, aviatorValues, null, null, null);
+            }
+            if (rest.size() == 3
+                    && StreamingPipeline.isUnit(rest.get(0), ListToEntityChainUnit.class, FUNCTION_NAME_LIST2ENTITY_CLASSIFY)
+                    && StreamingPipeline.isUnit(rest.get(1), EntityToListChainUnit.class, FUNCTION_NAME_ENTITY2LIST_CLASSIFIED_SUMMARY)
+                    && StreamingPipeline.isUnit(rest.get(2), ListToStringChainUnit.class, FUNCTION_NAME_LIST2STRING_JOIN)) {
+                FieldAccessor classifier = FieldAccessor.compile(StreamingPipeline.singleArg(rest.get(0)));
+                String separator = StreamingPipeline.singleArg(rest.get(2));
+                String[] expressions = rest.get(1).getAviatorArgs();
+                ClassifiedSummaryPlan plan = StreamingPipeline.compileSummaryPlan(expressions);
+                String[] aviatorValues = Arrays.copyOfRange(expressions, 1, expressions.length);
+                return new UnitView(filterArray, null, null, plan.getAggregation(), aviatorValues, classifier, plan, separator);
+            }
+            AbstractDimensionChainUnit unit = rest.isEmpty() ? null : rest.get(0);
+            String errorMsg = String.format("第 %d 个统计单元不支持物化统计：第 %d 个维度单元 [%s] (从 0 计) 需要完整的数据列表，"
+                            + "物化统计只支持 fieldEqual 筛选之后接 sumByField / classifiedSize，或 classify → classifiedSummary → join",
+                    index, cursor, StreamingPipeline.describe(unit));
+            throw new UnsupportedStreamingException(errorMsg);
+        }
+
+        private boolean needsRows() {
+            return error == null && constant == null && aggregates != null;
+        }
+
+        /**
+         * 检查增量数据，计算每条数据的分类与聚合字段值；撤回时检查数据是否存在
+         */
+        List<RowDelta> prepare(List<?> rows, boolean retract) throws DynamicSummaryException {
+            if (!needsRows()) {
+                return null;
+            }
+            List<RowDelta> deltas = new ArrayList<>(rows.size());
+            for (int r = 0; r < rows.size(); r++) {
+                RowDelta delta;
+                try {
+                    delta = prepareRow(rows.get(r), r);
+                } catch (RuntimeException e) {
+                    delta = new RowDelta(null, null, e.getMessage());
+                }
+                if (delta != null) {
+                    deltas.add(delta);
+                }
+            }
+            if (retract) {
+                checkRetractable(deltas);
+            }
+            return deltas;
+        }
+
+        /**
+         * 处理单条数据
+         *
+         * @return 增量数据，不满足筛选条件时返回 null
+         */
+        private RowDelta prepareRow(Object row, int rowIndex) throws DynamicSummaryException {
+            for (StreamingPipeline.FilterStage filter : filters) {
+                if (!filter.test(row, rowIndex)) {
+                    return null;
+                }
+            }
+            String key = null;
+            if (classifier != null) {
+                key = classifier.getString(StreamingPipeline.toEntity(row, rowIndex));
+                key = StringUtils.isEmpty(key) ? null : key;
+            }
+            return new RowDelta(key, extractValues(row, rowIndex), null);
+        }
+
+        /**
+         * 提取各聚合方法的字段值：sumByField 为数值，classifiedSize 为去重字段值（不去重时为 null）
+         */
+        private Object[] extractValues(Object row, int rowIndex) throws DynamicSummaryException {
+            Object[] values = new Object[aggregates.length];
+            for (int k = 0; k < aggregates.length; k++) {
+                if (aggregates[k].getType() == FusedAggregation.AggregateType.SUM) {
+                    Object value = StreamingPipeline.toEntity(row, rowIndex).get(fields[k]);
+                    if (!(value instanceof Number)) {
+                        String className = (value == null) ? "NULL" : value.getClass().getName();
+                        String errorMsg = String.format("第 %d 条数据 (从 0 计) 不满足聚合方法 [%s] 的要求：字段 [%s] 的值类型为 [%s]，不是数值类型",
+                                rowIndex, aggregates[k], fields[k], className);
+                        throw new DynamicSummaryException(errorMsg);
+                    }
+                    values[k] = value;
+                } else if (accessors[k] != null) {
+                    values[k] = accessors[k].getString(StreamingPipeline.toEntity(row, rowIndex));
+                }
+            }
+            return values;
+        }
+
+        /**
+         * 撤回前检查：各分类的数据条数与去重字段值的数量都不能小于撤回的数量
+         */
+        private void checkRetractable(List<RowDelta> deltas) throws DynamicSummaryException {
+            Map<GroupState, GroupState> required = new IdentityHashMap<>();
+            long invalid = 0;
+            for (RowDelta delta : deltas) {
+                if (delta.values == null) {
+                    invalid++;
+                    continue;
+                }
+                GroupState group = getGroup(delta.key, false);
+                if (group == null) {
+                    throw new DynamicSummaryException(String.format("物化统计错误：撤回的数据所属分类 [%s] 不存在", delta.key));
+                }
+                required.computeIfAbsent(group, g -> new GroupState(aggregates.length)).add(aggregates, delta.values, 1);
+            }
+            if (invalid > invalidRows) {
+                throw new DynamicSummaryException("物化统计错误：撤回的无效数据多于已追加的无效数据");
+            }
+            for (Map.Entry<GroupState, GroupState> entry : required.entrySet()) {
+                if (!entry.getKey().contains(entry.getValue())) {
+                    throw new DynamicSummaryException("物化统计错误：撤回的数据不存在，或撤回的数量多于已追加的数量");
+                }
+            }
+        }
+
+        /**
+         * 更新状态，分类中的数据全部撤回后删除该分类
+         */
+        void apply(List<RowDelta> deltas, boolean retract) {
+            if (deltas == null) {
+                return;
+            }
+            int sign = retract ? -1 : 1;
+            for (RowDelta delta : deltas) {
+                if (delta.values == null) {
+                    invalidRows += sign;
+                    if (!retract) {
+                        invalidMessage = delta.errorMessage;
+                    }
+                    continue;
+                }
+                GroupState group = getGroup(delta.key, !retract);
+                group.add(aggregates, delta.values, sign);
+                if (group.count == 0) {
+                    if (delta.key == null) {
+                        defaultGroup = null;
+                    } else {
+                        groups.remove(delta.key);
+                    }
+                }
+            }
+        }
+
+        private GroupState getGroup(String key, boolean create) {
+            if (key == null) {
+                if (defaultGroup == null && create) {
+                    defaultGroup = new GroupState(aggregates.length);
+                }
+                return defaultGroup;
+            }
+            GroupState group = groups.get(key);
+            if (group == null && create) {
+                group = new GroupState(aggregates.length);
+                groups.put(key, group);
+            }
+            return group;
+        }
+
+        /**
+         * 渲染统计单元，只重新渲染发生变化的分类
+         */
+        String render() {
+            if (error != null) {
+                throw error;
+            }
+            if (constant != null) {
+                return constant;
+            }
+            if (invalidRows > 0) {
+                throw new DynamicSummaryException(String.format("存在 %d 条无效数据，最近一条的错误信息：[%s]", invalidRows, invalidMessage));
+            }
+            if (classifier == null) {
+                GroupState group = (defaultGroup == null) ? new GroupState(aggregates.length) : defaultGroup;
+                return group.results(aggregates, accessors)[0];
+            }
+            // 与 classify 相同：缺省分类放在最后，与缺省分类 Key 值相同的分类被缺省分类替换
+            List<String> outputs = new ArrayList<>(groups.size() + 1);
+            boolean defaultRendered = false;
+            for (Map.Entry<String, GroupState> entry : groups.entrySet()) {
+                if (defaultGroup != null && ClassifyFilterFunction.DEFAULT_KEY.equals(entry.getKey())) {
+                    outputs.add(renderGroup(ClassifyFilterFunction.DEFAULT_KEY, defaultGroup));
+                    defaultRendered = true;
+                } else {
+                    outputs.add(renderGroup(entry.getKey(), entry.getValue()));
+                }
+            }
+            if (defaultGroup != null && !defaultRendered) {
+                outputs.add(renderGroup(ClassifyFilterFunction.DEFAULT_KEY, defaultGroup));
+            }
+            return StringUtils.join(outputs, separator);
+        }
+
+        private String renderGroup(String key, GroupState group) {
+            if (group.rendered == null) {
+                group.rendered = plan.renderAggregated(key, group.results(aggregates, accessors));
+            }
+            return group.rendered;
+        }
+    }
+
+    /**
+     * 单个分类的聚合状态，可以撤回
+     */
+    private static class GroupState {
+        private long count;
+        /**
+         * sumByField：按追加顺序累加的结果，与 SumByFieldFunction 的累加方式相同，只在没有撤回过数据时使用
+         */
+        private final double[] orderedSums;
+        private boolean retracted;
+        /**
+         * sumByField：整数值精确累加，其余数值单独累加
+         */
+        private final long[] intSums;
+        private final double[] doubleSums;
+        private final long[] doubleCounts;
+        /**
+         * classifiedSize：各字段值的数据条数
+         */
+        private final List<Map<String, Integer>> distinctCounts;
+        /**
+         * 渲染结果缓存，状态变化时清空
+         */
+        private String rendered;
+
+        GroupState(int size) {
+            orderedSums = new double[size];
+            intSums = new long[size];
+            doubleSums = new double[size];
+            doubleCounts = new long[size];
+            distinctCounts = new ArrayList<>(size);
+            for (int k = 0; k < size; k++) {
+                distinctCounts.add(new HashMap<>());
+            }
+        }
+
+        void add(FusedAggregation.Aggregate[] aggregates, Object[] values, int sign) {
+            count += sign;
+            rendered = null;
+            retracted |= sign < 0;
+            for (int k = 0; k < aggregates.length; k++) {
+                Object value = values[k];
+                if (aggregates[k].getType() == FusedAggregation.AggregateType.SUM) {
+                    if (sign > 0) {
+                        orderedSums[k] += ((Number) value).doubleValue();
+                    }
+                    if (isIntegral(value)) {
+                        intSums[k] += sign * ((Number) value).longValue();
+                    } else {
+                        doubleCounts[k] += sign;
+                        // 小数值全部撤回后清零，避免残留的浮点误差
+                        doubleSums[k] = (doubleCounts[k] == 0) ? 0.0 : doubleSums[k] + sign * ((Number) value).doubleValue();
+                    }
+                } else if (value != null) {
+                    Map<String, Integer> counts = distinctCounts.get(k);
+                    int n = counts.getOrDefault(value, 0) + sign;
+                    if (n == 0) {
+                        counts.remove(value);
+                    } else {
+                        counts.put((String) value, n);
+                    }
+                }
+            }
+        }
+
+        private static boolean isIntegral(Object value) {
+            return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+        }
+
+        /**
+         * 是否包含另一个聚合状态中的所有数据（数据条数与各去重字段值的数量都不小于对方）
+         */
+        boolean contains(GroupState other) {
+            if (count < other.count) {
+                return false;
+            }
+            for (int k = 0; k < distinctCounts.size(); k++) {
+                Map<String, Integer> counts = distinctCounts.get(k);
+                for (Map.Entry<String, Integer> entry : other.distinctCounts.get(k).entrySet()) {
+                    if (counts.getOrDefault(entry.getKey(), 0) < entry.getValue()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 输出各聚合方法的结果，格式与对应方法相同
+         */
+        String[] results(FusedAggregation.Aggregate[] aggregates, FieldAccessor[] accessors) {
+            String[] results = new String[aggregates.length];
+            for (int k = 0; k < aggregates.length; k++) {
+                if (aggregates[k].getType() == FusedAggregation.AggregateType.SUM) {
+                    results[k] = String.valueOf(retracted ? intSums[k] + doubleSums[k] : orderedSums[k]);
+                } else {
+                    results[k] = String.valueOf((accessors[k] == null) ? count : distinctCounts.get(k).size());
+                }
+            }
+            return results;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.grq.rezero.executor;
+
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.exception.EmptyException;
+import com.grq.rezero.exception.WrongMatchTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * <pre>
+ *     维度单元链编译器：构建维度单元链时检查类型，并连接为可复用的 CompiledPipeline；
+ *
+ *     1. 按顺序检查每个维度单元声明的输入类型（AbstractDimensionChainUnit 的类型参数 I）
+ *        能否接收上一个维度单元的输出类型（类型参数 O），第一个维度单元检查数据源类型，见 AbstractDimensionChainUnit#accepts；
+ *        例如 classify (JSONArray → JSONObject) 之后只能接 classifiedSummary 等输入为 JSONObject 的维度单元；
+ *     2. 检查最终输出：最后一个维度单元（没有维度单元时为数据源）的输出类型不能是列表；
+ *     3. 预编译各维度单元的 Aviator 表达式；
+ *     检查失败时抛出 WrongMatchTypeException，不需要执行就能发现维度单元链的类型错误；
+ * </pre>
+ *
+ * @see CompiledPipeline
+ * @see DimenStreamExecutor#compilePipeline(List, Class)
+ */
+public final class PipelineCompiler {
+    private static Logger LOG = LoggerFactory.getLogger(PipelineCompiler.class);
+
+    private PipelineCompiler() {
+    }
+
+    /**
+     * 编译维度单元链
+     *
+     * @param units      维度单元列表
+     * @param sourceType 数据源类型（JSONObject 或 JSONArray）
+     * @return 编译后的维度单元链
+     * @throws EmptyException          维度单元列表或数据源类型为 null 时抛出异常
+     * @throws WrongMatchTypeException 维度单元为 null、类型不匹配或最终输出为列表时抛出异常
+     */
+    public static CompiledPipeline compile(List<AbstractDimensionChainUnit> units, Class<?> sourceType)
+            throws EmptyException, WrongMatchTypeException {
+        if (units == null) {
+            throw new EmptyException("维度单元链编译错误：维度单元列表为 null");
+        }
+        if (sourceType == null) {
+            throw new EmptyException("维度单元链编译错误：数据源类型为 null");
+        }
+        AbstractDimensionChainUnit[] stages = units.toArray(new AbstractDimensionChainUnit[0]);
+        Class<?> upstreamType = sourceType;
+        for (int i = 0; i < stages.length; i++) {
+            AbstractDimensionChainUnit unit = stages[i];
+            if (unit == null) {
+                throw new WrongMatchTypeException(String.format("维度单元链编译错误：第 %d 个维度单元 (从 0 计) 为 null", i));
+            }
+            if (!unit.accepts(upstreamType)) {
+                String errorMsg = String.format("维度单元链类型不匹配：第 %d 个维度单元 [%s] (从 0 计) 的输入类型为 [%s]，"
+                                + "不能接收%s的输出类型 [%s]", i, StreamingPipeline.describe(unit),
+                        unit.getInputType().getSimpleName(), (i == 0) ? "数据源" : "上一个维度单元", upstreamType.getSimpleName());
+                throw new WrongMatchTypeException(errorMsg);
+            }
+            if (!unit.isCompiled()) {
+                try {
+                    unit.compileExpression();
+                } catch (RuntimeException e) {
+                    // 编译失败的单元保持未编译，执行时再次编译并按单元记录错误
+                    LOG.warn("第 {} 个维度单元 [{}] (从 0 计) 表达式预编译失败：[{}]", i, StreamingPipeline.describe(unit), e.getMessage());
+                }
+            }
+            upstreamType = unit.getOutputType();
+        }
+        if (List.class.isAssignableFrom(upstreamType)) {
+            String errorMsg = String.format("维度单元链类型不匹配：最终输出类型为 [%s]，不能转换为 String", upstreamType.getSimpleName());
+            throw new WrongMatchTypeException(errorMsg);
+        }
+        return new CompiledPipeline(stages, sourceType, upstreamType);
+    }
+}
@@ -0,0 +1,430 @@
+package com.grq.rezero.executor;
+
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.constants.FunctionNameConstants;
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.dimension.units.EntityToListChainUnit;
+import com.grq.rezero.dimension.units.ListAdvancedChainUnit;
+import com.grq.rezero.dimension.units.ListToEntityChainUnit;
+import com.grq.rezero.dimension.units.ListToStringChainUnit;
+import com.grq.rezero.dimension.units.OutputStringChainUnit;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.UnsupportedStreamingException;
+import com.grq.rezero.expression.ExpressionParser;
+import com.grq.rezero.expression.FieldAccessor;
+import com.grq.rezero.function.calculate.ClassifiedSummaryPlan;
+import com.grq.rezero.function.calculate.FusedAggregation;
+import com.grq.rezero.function.filter.ClassifyFilterFunction;
+import com.grq.rezero.function.filter.FieldEqualPredicate;
+import com.grq.rezero.summary.SummaryUnit;
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     流式统计管道：将单个统计单元编译为逐条处理数据的管道，只保留聚合状态，不保留数据列表；
+ *
+ *     支持的统计单元形式（按维度单元顺序）：
+ *     1. 开头为若干个 fieldEqual 筛选单元：逐条判断，不满足条件的数据直接丢弃；
+ *     2. 结尾为以下形式之一：
+ *        (1) OutputStringChainUnit：输出常量，不需要读取数据；
+ *        (2) sumByField / classifiedSize / join：对筛选后的数据直接聚合；
+ *        (3) classify → classifiedSummary → join：按分类字段分组，每个分类只保留聚合状态；
+ *            要求 classifiedSummary 表达式中的方法段都是对分类列表的简单聚合 (ClassifiedSummaryPlan#isStreamable)；
+ *     其他维度单元（例如 fieldSort 排序、extractor 提取等）需要完整的数据列表，编译时抛出 UnsupportedStreamingException；
+ *
+ *     管道只在单个线程中使用，每次流式统计重新编译；
+ * </pre>
+ *
+ * @see StreamingSummaryExecutor
+ */
+class StreamingPipeline implements FunctionNameConstants {
+    /**
+     * 统计单元下标
+     */
+    private final int index;
+    /**
+     * 筛选单元
+     */
+    private final FilterStage[] filters;
+    /**
+     * 结尾的聚合单元，为 null 时表示统计单元没有维度单元，输出空字符串
+     */
+    private final Terminal terminal;
+    /**
+     * 执行过程中的错误，不为 null 时不再处理后续数据
+     */
+    private RuntimeException error;
+
+    private StreamingPipeline(int index, FilterStage[] filters, Terminal terminal, RuntimeException error) {
+        this.index = index;
+        this.filters = filters;
+        this.terminal = terminal;
+        this.error = error;
+    }
+
+    /**
+     * 编译统计单元
+     *
+     * @param index       统计单元下标
+     * @param summaryUnit 统计单元
+     * @return 流式统计管道
+     * @throws UnsupportedStreamingException 统计单元中存在不支持流式执行的维度单元时抛出异常
+     * @throws DynamicSummaryException       维度单元参数错误时抛出异常，与非流式执行时相同
+     */
+    static StreamingPipeline compile(int index, SummaryUnit summaryUnit)
+            throws UnsupportedStreamingException, DynamicSummaryException {
+        List<AbstractDimensionChainUnit> units = summaryUnit.getUnits();
+        if (CollectionUtils.isEmpty(units)) {
+            return new StreamingPipeline(index, new FilterStage[0], null, null);
+        }
+        // 1. 开头的筛选单元
+        List<FilterStage> filters = new ArrayList<>();
+        int cursor = 0;
+        while (cursor < units.size() && isUnit(units.get(cursor), ListAdvancedChainUnit.class, FUNCTION_NAME_LISTADVANCED_FIELDEQUAL)) {
+            filters.add(new FilterStage(singleArg(units.get(cursor))));
+            cursor++;
+        }
+
+        // 2. 结尾的聚合单元
+        List<AbstractDimensionChainUnit> rest = units.subList(cursor, units.size());
+        Terminal terminal;
+        if (rest.size() == 1 && rest.get(0) instanceof OutputStringChainUnit) {
+            terminal = new ConstantTerminal(rest.get(0));
+        } else if (rest.size() == 1 && isAggregateUnit(rest.get(0))) {
+            terminal = new AggregateTerminal(rest.get(0));
+        } else if (rest.size() == 3
+                && isUnit(rest.get(0), ListToEntityChainUnit.class, FUNCTION_NAME_LIST2ENTITY_CLASSIFY)
+                && isUnit(rest.get(1), EntityToListChainUnit.class, FUNCTION_NAME_ENTITY2LIST_CLASSIFIED_SUMMARY)
+                && isUnit(rest.get(2), ListToStringChainUnit.class, FUNCTION_NAME_LIST2STRING_JOIN)) {
+            terminal = new GroupTerminal(rest.get(0), rest.get(1), rest.get(2));
+        } else {
+            AbstractDimensionChainUnit unit = rest.isEmpty() ? null : rest.get(0);
+            String errorMsg = String.format("第 %d 个统计单元不支持流式统计：第 %d 个维度单元 [%s] (从 0 计) 需要完整的数据列表，"
+                            + "流式统计只支持 fieldEqual 筛选之后接 sumByField / classifiedSize / join，或 classify → classifiedSummary → join",
+                    index, cursor, describe(unit));
+            throw new UnsupportedStreamingException(errorMsg);
+        }
+        return new StreamingPipeline(index, filters.toArray(new FilterStage[0]), terminal, null);
+    }
+
+    /**
+     * 创建编译失败的管道，执行结果为失败
+     *
+     * @param index 统计单元下标
+     * @param error 编译时的错误
+     * @return
+     */
+    static StreamingPipeline failed(int index, RuntimeException error) {
+        return new StreamingPipeline(index, new FilterStage[0], null, error);
+    }
+
+    /**
+     * 处理一条数据，出错时记录错误，之后的数据不再处理
+     *
+     * @param row      数据
+     * @param rowIndex 数据下标（从 0 计）
+     */
+    void accept(Object row, long rowIndex) {
+        if (error != null || terminal == null) {
+            return;
+        }
+        try {
+            for (FilterStage filter : filters) {
+                if (!filter.test(row, rowIndex)) {
+                    return;
+                }
+            }
+            terminal.accept(row, rowIndex);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+    }
+
+    /**
+     * 输出统计结果
+     *
+     * @return 统计结果
+     * @throws RuntimeException 执行过程中出错时抛出该错误
+     */
+    String finish() {
+        if (error != null) {
+            throw error;
+        }
+        return (terminal == null) ? "" : terminal.finish();
+    }
+
+    boolean isFailed() {
+        return error != null;
+    }
+
+    /**
+     * 是否需要读取数据：没有维度单元、输出常量或已经出错的管道不需要
+     *
+     * @return
+     */
+    boolean isActive() {
+        return error == null && terminal != null && terminal.needsRows();
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    static boolean isUnit(AbstractDimensionChainUnit unit, Class<?> unitClass, String functionName) {
+        return unit != null && unitClass.isInstance(unit) && functionName.equals(functionName(unit));
+    }
+
+    static boolean isAggregateUnit(AbstractDimensionChainUnit unit) {
+        String name = functionName(unit);
+        return unit instanceof ListToStringChainUnit
+                && (FUNCTION_NAME_LIST2STRING_SUMMARYBYFIELD.equals(name)
+                || FUNCTION_NAME_LIST2STRING_CLASSIFIED_SIZE.equals(name)
+                || FUNCTION_NAME_LIST2STRING_JOIN.equals(name));
+    }
+
+    /**
+     * 获取维度单元表达式中的方法名称
+     */
+    private static String functionName(AbstractDimensionChainUnit unit) {
+        String expression = (unit == null) ? null : unit.getExpression();
+        if (StringUtils.isEmpty(expression)) {
+            return null;
+        }
+        int end = expression.indexOf('(');
+        return (end > 0) ? expression.substring(0, end).trim() : expression.trim();
+    }
+
+    static String describe(AbstractDimensionChainUnit unit) {
+        return (unit == null) ? "NULL" : unit.getClass().getSimpleName() + "(" + unit.getExpression() + ")";
+    }
+
+    /**
+     * 获取维度单元唯一的 Aviator 参数，参数个数错误时抛出异常
+     */
+    static String singleArg(AbstractDimensionChainUnit unit) throws DynamicSummaryException {
+        String[] aviatorArgs = unit.getAviatorArgs();
+        if (aviatorArgs == null || aviatorArgs.length != 1) {
+            String errorMsg = String.format("%s 只接受一个 Aviator 参数，当前传入参数数量为 [%d] 个",
+                    unit.getClass().getSimpleName(), (aviatorArgs == null) ? 0 : aviatorArgs.length);
+            throw new DynamicSummaryException(errorMsg);
+        }
+        return aviatorArgs[0];
+    }
+
+    /**
+     * 将 "方法名(list,aviatorArgs)" 形式的表达式解析为聚合方法
+     */
+    static FusedAggregation parseAggregation(AbstractDimensionChainUnit unit) throws UnsupportedStreamingException {
+        String renamed = ClassifiedSummaryPlan.renameAviatorArgs(unit.getExpression(), new String[1]);
+        FusedAggregation.Aggregate aggregate = FusedAggregation.parseAggregate(renamed, 1);
+        if (aggregate == null) {
+            String errorMsg = String.format("维度单元 [%s] 对应的方法不是内置的聚合方法，不支持流式统计", describe(unit));
+            throw new UnsupportedStreamingException(errorMsg);
+        }
+        List<FusedAggregation.Aggregate> aggregates = new ArrayList<>(1);
+        aggregates.add(aggregate);
+        return new FusedAggregation(aggregates);
+    }
+
+    /**
+     * 累加一条数据，数据不满足聚合方法的要求时抛出异常
+     */
+    private static void accumulate(FusedAggregation aggregation, FusedAggregation.State state, Object row, long rowIndex)
+            throws DynamicSummaryException {
+        int failed = aggregation.accumulate(state, row);
+        if (failed >= 0) {
+            String className = (row == null) ? "NULL" : row.getClass().getName();
+            String errorMsg = String.format("第 %d 条数据 (从 0 计，类型为 [%s]) 不满足聚合方法 [%s] 的要求：字段值为空或类型错误",
+                    rowIndex, className, aggregation.getAggregate(failed));
+            throw new DynamicSummaryException(errorMsg);
+        }
+    }
+
+    /**
+     * 检查 classifiedSummary 的参数并编译执行计划，要求所有方法段都是可以融合的聚合方法
+     *
+     * @param expressions classifiedSummary 的 Aviator 参数：index[0] 为表达式，index[1...] 为待匹配的传入参数
+     * @return 执行计划
+     * @throws DynamicSummaryException       参数错误时抛出异常
+     * @throws UnsupportedStreamingException 表达式中存在聚合方法之外的方法段时抛出异常
+     */
+    static ClassifiedSummaryPlan compileSummaryPlan(String[] expressions)
+            throws DynamicSummaryException, UnsupportedStreamingException {
+        if (expressions == null || expressions.length < 2) {
+            throw new DynamicSummaryException("ClassifiedSummaryFunction 未传入参数");
+        }
+        String expressionModel = (expressions[0] == null) ? "" : expressions[0];
+        int aviatorMatchCount = ExpressionParser.matchRegexCount(expressionModel, ExpressionParser.AVIATOR_REGEX_PATTERN);
+        if (aviatorMatchCount != expressions.length - 1) {
+            String errorMsg = String.format("Aviator 方法个数 (%d) 与传入参数个数 (%d) 数量不匹配，抛出错误，具体信息：传入表达式为 [%s]",
+                    aviatorMatchCount, expressions.length - 1, expressionModel);
+            throw new DynamicSummaryException(errorMsg);
+        }
+        ClassifiedSummaryPlan plan = ClassifiedSummaryPlan.compile(expressionModel, expressions.length - 1);
+        if (!plan.isStreamable()) {
+            String errorMsg = String.format("classifiedSummary 表达式 [%s] 中存在 sumByField / classifiedSize / join(list, aviatorArgs) 之外的方法段，"
+                    + "需要完整的分类列表，不支持流式统计", expressionModel);
+            throw new UnsupportedStreamingException(errorMsg);
+        }
+        return plan;
+    }
+
+    static JSONObject toEntity(Object row, long rowIndex) throws DynamicSummaryException {
+        if (!(row instanceof JSONObject)) {
+            String className = (row == null) ? "NULL" : row.getClass().getName();
+            String errorMsg = String.format("第 %d 条数据 (从 0 计) 类型为 [%s]，不能转换为 JSONObject", rowIndex, className);
+            throw new DynamicSummaryException(errorMsg);
+        }
+        return (JSONObject) row;
+    }
+
+    /**
+     * fieldEqual 筛选
+     */
+    static class FilterStage {
+        private final FieldEqualPredicate predicate;
+
+        FilterStage(String expression) {
+            this.predicate = FieldEqualPredicate.compile(expression);
+        }
+
+        boolean test(Object row, long rowIndex) {
+            return predicate.test(toEntity(row, rowIndex));
+        }
+    }
+
+    /**
+     * 结尾的聚合单元
+     */
+    private abstract static class Terminal {
+        abstract void accept(Object row, long rowIndex);
+
+        abstract String finish();
+
+        boolean needsRows() {
+            return true;
+        }
+    }
+
+    /**
+     * OutputStringChainUnit：输出常量
+     */
+    private static class ConstantTerminal extends Terminal {
+        private final String output;
+
+        ConstantTerminal(AbstractDimensionChainUnit unit) {
+            String[] aviatorArgs = unit.getAviatorArgs();
+            if (aviatorArgs == null || aviatorArgs.length == 0) {
+                throw new DynamicSummaryException("OutputStringChainUnit 只接受一个 Aviator 参数，当前传入参数数量为 [0] 个");
+            }
+            this.output = aviatorArgs[0];
+        }
+
+        @Override
+        void accept(Object row, long rowIndex) {
+        }
+
+        @Override
+        String finish() {
+            return output;
+        }
+
+        @Override
+        boolean needsRows() {
+            return false;
+        }
+    }
+
+    /**
+     * sumByField / classifiedSize / join：直接聚合
+     */
+    private static class AggregateTerminal extends Terminal {
+        private final FusedAggregation aggregation;
+        private final FusedAggregation.State state;
+
+        AggregateTerminal(AbstractDimensionChainUnit unit) {
+            String[] aviatorValues = {singleArg(unit)};
+            this.aggregation = parseAggregation(unit);
+            this.state = aggregation.newState(aviatorValues);
+        }
+
+        @Override
+        void accept(Object row, long rowIndex) {
+            StreamingPipeline.accumulate(aggregation, state, row, rowIndex);
+        }
+
+        @Override
+        String finish() {
+            return aggregation.finish(state)[0];
+        }
+    }
+
+    /**
+     * classify → classifiedSummary → join：分组聚合
+     */
+    private static class GroupTerminal extends Terminal {
+        private final FieldAccessor classifier;
+        private final ClassifiedSummaryPlan plan;
+        private final FusedAggregation aggregation;
+        private final String[] aviatorValues;
+        private final String separator;
+        /**
+         * 各分类的聚合状态，按分类首次出现的顺序排列
+         */
+        private final Map<String, FusedAggregation.State> groups = new LinkedHashMap<>();
+        /**
+         * 分类字段为空的数据，输出时放在最后
+         */
+        private FusedAggregation.State defaultGroup;
+
+        GroupTerminal(AbstractDimensionChainUnit classifyUnit, AbstractDimensionChainUnit summaryUnit,
+                      AbstractDimensionChainUnit joinUnit) {
+            this.classifier = FieldAccessor.compile(singleArg(classifyUnit));
+            this.separator = singleArg(joinUnit);
+
+            String[] expressions = summaryUnit.getAviatorArgs();
+            this.plan = compileSummaryPlan(expressions);
+            this.aviatorValues = Arrays.copyOfRange(expressions, 1, expressions.length);
+            this.aggregation = plan.getAggregation();
+        }
+
+        @Override
+        void accept(Object row, long rowIndex) {
+            String key = classifier.getString(toEntity(row, rowIndex));
+            FusedAggregation.State state;
+            if (StringUtils.isEmpty(key)) {
+                if (defaultGroup == null) {
+                    defaultGroup = aggregation.newState(aviatorValues);
+                }
+                state = defaultGroup;
+            } else {
+                state = groups.get(key);
+                if (state == null) {
+                    state = aggregation.newState(aviatorValues);
+                    groups.put(key, state);
+                }
+            }
+            StreamingPipeline.accumulate(aggregation, state, row, rowIndex);
+        }
+
+        @Override
+        String finish() {
+            // 与 classify 相同：缺省分类放在最后
+            if (defaultGroup != null) {
+                groups.put(ClassifyFilterFunction.DEFAULT_KEY, defaultGroup);
+            }
+            List<String> outputs = new ArrayList<>(groups.size());
+            for (Map.Entry<String, FusedAggregation.State> entry : groups.entrySet()) {
+                outputs.add(plan.renderAggregated(entry.getKey(), aggregation.finish(entry.getValue())));
+            }
+            return StringUtils.join(outputs, separator);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.grq.rezero.executor;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.parser.Feature;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.EmptyException;
+import com.grq.rezero.exception.UnsupportedStreamingException;
+import com.grq.rezero.summary.SummaryUnit;
+import com.grq.rezero.summary.SummaryUnitChain;
+import org.apache.commons.collections.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * <pre>
+ *     流式统计执行器：从字符流中逐条读取数据并统计，不构建完整的 JSONArray；
+ *
+ *     SummaryExecutor 要求整个数据集以 JSONArray 的形式放在内存中，数据文件很大时在统计之前就会耗尽内存；
+ *     流式统计的执行过程如下：
+ *     1. 将各统计单元编译为流式统计管道 (StreamingPipeline)，存在需要完整列表的维度单元（例如排序）时，
+ *        在读取数据之前抛出 UnsupportedStreamingException；
+ *     2. 逐条读取数据，支持 JSON 数组与 NDJSON（每行一个 JSON 对象）两种格式，AUTO 格式根据第一个非空白字符判断；
+ *     3. 每条数据依次交给所有统计管道处理，各管道只保留聚合状态，处理完的数据即可被回收；
+ *     4. 按统计单元的原有顺序拼接结果，与 SummaryExecutor 相同：某个统计单元执行失败时，只输出该单元之前的结果；
+ *
+ *     注：
+ *     1. 小数按 Double 解析（避免 BigDecimal 的解析与累加开销），整数按 Integer / Long 解析；
+ *     2. 各统计单元在同一次读取中交替执行，执行情况中各统计单元的耗时均为整体耗时；
+ *     3. 字符流由调用方关闭；
+ * </pre>
+ *
+ * @see StreamingPipeline
+ * @see SummaryExecutor
+ */
+@Component("streamingSummaryExecutor")
+public class StreamingSummaryExecutor {
+    private static Logger LOG = LoggerFactory.getLogger(StreamingSummaryExecutor.class);
+
+    /**
+     * NDJSON 每行数据的解析选项：关闭 UseBigDecimal，小数按 Double 解析
+     */
+    private static final int NDJSON_PARSER_FEATURES = JSON.DEFAULT_PARSER_FEATURE & ~Feature.UseBigDecimal.mask;
+
+    /**
+     * 读取缓冲区大小
+     */
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * 输入格式
+     */
+    public enum InputFormat {
+        /**
+         * 根据第一个非空白字符判断：'[' 为 JSON 数组，否则为 NDJSON
+         */
+        AUTO,
+        /**
+         * JSON 数组：[{...}, {...}, ...]
+         */
+        JSON_ARRAY,
+        /**
+         * 每行一个 JSON 对象，空行被忽略
+         */
+        NDJSON
+    }
+
+    public String summary(Reader reader, SummaryUnitChain summaryUnitChain) {
+        return execute(reader, summaryUnitChain, InputFormat.AUTO).getResult();
+    }
+
+    /**
+     * 从 UTF-8 编码的字节流中读取数据并统计
+     *
+     * @param in               字节流
+     * @param summaryUnitChain 统计单元链
+     * @return 统计结果
+     */
+    public String summary(InputStream in, SummaryUnitChain summaryUnitChain) {
+        return summary(new InputStreamReader(in, StandardCharsets.UTF_8), summaryUnitChain);
+    }
+
+    /**
+     * 执行流式统计，并返回各统计单元的执行情况
+     *
+     * @param reader           字符流
+     * @param summaryUnitChain 统计单元链
+     * @param format           输入格式
+     * @return 执行结果
+     * @throws EmptyException                统计单元链为 null 时抛出异常
+     * @throws UnsupportedStreamingException 统计单元中存在不支持流式执行的维度单元时抛出异常
+     * @throws DynamicSummaryException       读取或解析数据出错时抛出异常
+     */
+    public SummaryExecution execute(Reader reader, SummaryUnitChain summaryUnitChain, InputFormat format)
+            throws EmptyException, UnsupportedStreamingException, DynamicSummaryException {
+        if (summaryUnitChain == null) {
+            throw new EmptyException("流式统计错误：统计单元链为 null");
+        }
+        SummaryExecution execution = new SummaryExecution();
+        List<SummaryUnit> summaryUnits = summaryUnitChain.getSummaryUnits();
+        if (CollectionUtils.isEmpty(summaryUnits)) {
+            LOG.warn("当前统计单元链为空，直接返回空字符串");
+            return execution;
+        }
+        long begin = System.nanoTime();
+
+        /**
+         * 1. 编译统计管道，参数错误的统计单元直接记为失败
+         */
+        StreamingPipeline[] pipelines = new StreamingPipeline[summaryUnits.size()];
+        for (int i = 0; i < pipelines.length; i++) {
+            try {
+                pipelines[i] = StreamingPipeline.compile(i, summaryUnits.get(i));
+            } catch (UnsupportedStreamingException e) {
+                LOG.error(e.getMessage());
+                throw e;
+            } catch (DynamicSummaryException e) {
+                pipelines[i] = StreamingPipeline.failed(i, e);
+            }
+        }
+
+        /**
+         * 2. 逐条读取数据，交给所有统计管道处理
+         */
+        long rowCount = readRows(reader, format, pipelines);
+
+        /**
+         * 3. 按统计单元顺序拼接结果
+         */
+        long elapsed = System.nanoTime() - begin;
+        StringBuilder builder = new StringBuilder();
+        boolean failed = false;
+        for (StreamingPipeline pipeline : pipelines) {
+            if (failed) {
+                break;
+            }
+            try {
+                builder.append(pipeline.finish());
+                execution.addUnitExecution(new SummaryExecution.UnitExecution(pipeline.getIndex(), elapsed, true, null,
+                        SummaryExecution.UnitExecution.standardErrorOf(summaryUnits.get(pipeline.getIndex()))));
+            } catch (RuntimeException e) {
+                LOG.error(e.getMessage());
+                execution.addUnitExecution(new SummaryExecution.UnitExecution(pipeline.getIndex(), elapsed, false, e.getMessage()));
+                failed = true;
+            }
+        }
+        execution.setResult(builder.toString());
+        execution.setElapsedNanos(System.nanoTime() - begin);
+        LOG.debug("流式统计完成：读取 {} 条数据，{}", rowCount, execution);
+        return execution;
+    }
+
+    /**
+     * 逐条读取数据，所有统计管道都不再需要数据时提前结束
+     *
+     * @return 读取的数据条数
+     */
+    private long readRows(Reader reader, InputFormat format, StreamingPipeline[] pipelines) throws DynamicSummaryException {
+        if (countActive(pipelines) == 0) {
+            return 0;
+        }
+        BufferedReader buffered = (reader instanceof BufferedReader)
+                ? (BufferedReader) reader : new BufferedReader(reader, bufferSize);
+        long rowIndex = 0;
+        try {
+            InputFormat actualFormat = (format == null || format == InputFormat.AUTO) ? detectFormat(buffered) : format;
+            if (actualFormat == null) {
+                return 0;
+            }
+            if (actualFormat == InputFormat.JSON_ARRAY) {
+                JSONReader jsonReader = new JSONReader(buffered);
+                jsonReader.config(Feature.UseBigDecimal, false);
+                jsonReader.startArray();
+                while (jsonReader.hasNext()) {
+                    if (!dispatch(jsonReader.readObject(), rowIndex++, pipelines)) {
+                        return rowIndex;
+                    }
+                }
+                jsonReader.endArray();
+            } else {
+                String line;
+                while ((line = buffered.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    if (!dispatch(JSON.parse(line, NDJSON_PARSER_FEATURES), rowIndex++, pipelines)) {
+                        return rowIndex;
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            String errorMsg = String.format("流式统计错误：解析第 %d 条数据 (从 0 计) 出错，具体信息：[%s]", rowIndex, e.getMessage());
+            LOG.error(errorMsg);
+            throw new DynamicSummaryException(errorMsg, e);
+        } catch (IOException e) {
+            String errorMsg = String.format("流式统计错误：读取第 %d 条数据 (从 0 计) 出错，具体信息：[%s]", rowIndex, e.getMessage());
+            LOG.error(errorMsg);
+            throw new DynamicSummaryException(errorMsg, e);
+        }
+        return rowIndex;
+    }
+
+    /**
+     * 将一条数据交给所有统计管道处理
+     *
+     * @return 是否还有统计管道需要后续数据
+     */
+    private boolean dispatch(Object row, long rowIndex, StreamingPipeline[] pipelines) {
+        boolean active = false;
+        for (StreamingPipeline pipeline : pipelines) {
+            if (pipeline.isActive()) {
+                pipeline.accept(row, rowIndex);
+                active |= pipeline.isActive();
+            }
+        }
+        return active;
+    }
+
+    private int countActive(StreamingPipeline[] pipelines) {
+        int count = 0;
+        for (StreamingPipeline pipeline : pipelines) {
+            if (pipeline.isActive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 根据第一个非空白字符判断输入格式，不消耗该字符
+     *
+     * @return 输入格式，输入为空时返回 null
+     */
+    private InputFormat detectFormat(BufferedReader reader) throws IOException {
+        while (true) {
+            reader.mark(1);
+            int c = reader.read();
+            if (c < 0) {
+                return null;
+            }
+            if (!Character.isWhitespace(c) && c != '\uFEFF') {
+                reader.reset();
+                return (c == '[') ? InputFormat.JSON_ARRAY : InputFormat.NDJSON;
+            }
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+}
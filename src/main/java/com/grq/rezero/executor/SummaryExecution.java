@@ -0,0 +1,221 @@
+package com.grq.rezero.executor;
+
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import com.grq.rezero.function.calculate.DistinctCountSpec;
+import com.grq.rezero.metrics.MetricsSnapshot;
+import com.grq.rezero.summary.SummaryUnit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     统计执行结果，由 SummaryExecutor#execute 返回；
+ *
+ *     除了统计结果字符串之外，还记录了每个统计单元的执行情况：
+ *     1. 统计单元下标（与统计单元链中的顺序相同）；
+ *     2. 执行耗时：统计单元所有维度单元的耗时之和，与其他统计单元共用的前缀维度单元也计算在内；
+ *     3. 是否执行成功，以及失败时的错误信息；
+ *     4. 近似计数 (classifiedSize 的 :approx) 的最大相对标准误差，没有近似计数时为 0；
+ *     统计单元链开启 collectMetrics 时，还返回该次执行中各维度单元的指标快照；
+ * </pre>
+ *
+ * @see SummaryExecutor#execute(com.alibaba.fastjson.JSONArray, com.grq.rezero.summary.SummaryUnitChain)
+ */
+public class SummaryExecution {
+    /**
+     * 统计结果
+     */
+    private String result = "";
+    /**
+     * 是否并行执行
+     */
+    private boolean parallel;
+    /**
+     * 总耗时（纳秒）
+     */
+    private long elapsedNanos;
+    /**
+     * 因合并相同前缀而少执行的维度单元个数
+     */
+    private int sharedUnitCount;
+    /**
+     * 各统计单元的执行情况，按统计单元顺序排列
+     */
+    private List<UnitExecution> unitExecutions = new ArrayList<>();
+    /**
+     * 本次执行的指标快照，统计单元链没有开启 collectMetrics 时为空快照
+     */
+    private MetricsSnapshot metrics = MetricsSnapshot.EMPTY;
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public int getSharedUnitCount() {
+        return sharedUnitCount;
+    }
+
+    public void setSharedUnitCount(int sharedUnitCount) {
+        this.sharedUnitCount = sharedUnitCount;
+    }
+
+    public List<UnitExecution> getUnitExecutions() {
+        return Collections.unmodifiableList(unitExecutions);
+    }
+
+    public MetricsSnapshot getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(MetricsSnapshot metrics) {
+        this.metrics = metrics;
+    }
+
+    void addUnitExecution(UnitExecution unitExecution) {
+        unitExecutions.add(unitExecution);
+    }
+
+    /**
+     * 是否所有统计单元都执行成功
+     *
+     * @return
+     */
+    public boolean isSuccess() {
+        for (UnitExecution unitExecution : unitExecutions) {
+            if (!unitExecution.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SummaryExecution{parallel=").append(parallel)
+                .append(", elapsed=").append(getElapsedMillis()).append("ms, shared=").append(sharedUnitCount)
+                .append(", units=[");
+        for (int i = 0; i < unitExecutions.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(unitExecutions.get(i));
+        }
+        return builder.append("]}").toString();
+    }
+
+    /**
+     * 单个统计单元的执行情况
+     */
+    public static class UnitExecution {
+        /**
+         * 统计单元下标
+         */
+        private final int index;
+        /**
+         * 执行耗时（纳秒）
+         */
+        private final long elapsedNanos;
+        /**
+         * 是否执行成功
+         */
+        private final boolean success;
+        /**
+         * 执行失败时的错误信息
+         */
+        private final String errorMessage;
+        /**
+         * 近似计数的最大相对标准误差，没有近似计数时为 0
+         */
+        private final double standardError;
+
+        public UnitExecution(int index, long elapsedNanos, boolean success, String errorMessage) {
+            this(index, elapsedNanos, success, errorMessage, 0);
+        }
+
+        public UnitExecution(int index, long elapsedNanos, boolean success, String errorMessage, double standardError) {
+            this.index = index;
+            this.elapsedNanos = elapsedNanos;
+            this.success = success;
+            this.errorMessage = errorMessage;
+            this.standardError = standardError;
+        }
+
+        /**
+         * 统计单元中近似计数的最大相对标准误差：维度单元的参数中带 :approx 的 classifiedSize 字段表达式
+         *
+         * @param summaryUnit 统计单元
+         * @return 最大相对标准误差，没有近似计数时为 0
+         */
+        static double standardErrorOf(SummaryUnit summaryUnit) {
+            double standardError = 0;
+            if (summaryUnit == null || summaryUnit.getUnits() == null) {
+                return standardError;
+            }
+            for (AbstractDimensionChainUnit unit : summaryUnit.getUnits()) {
+                if (unit != null) {
+                    standardError = Math.max(standardError, DistinctCountSpec.maxStandardError(unit.getAviatorArgs()));
+                }
+            }
+            return standardError;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public double getStandardError() {
+            return standardError;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + ":" + TimeUnit.NANOSECONDS.toMicros(elapsedNanos) + "us"
+                    + ((standardError > 0) ? String.format("(±%.2f%%)", standardError * 100) : "")
+                    + (success ? "" : "(failed)");
+        }
+    }
+}
@@ -1,20 +1,68 @@
 package com.grq.rezero.executor;
 
 import com.alibaba.fastjson.JSONArray;
+import com.grq.rezero.cache.SummaryResultCache;
+import com.grq.rezero.columnar.ColumnarJSONArray;
+import com.grq.rezero.columnar.IndexRegistry;
 import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
 import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.EmptyException;
+import com.grq.rezero.exception.WrongMatchTypeException;
+import com.grq.rezero.metrics.CompositeExecutionMetrics;
+import com.grq.rezero.metrics.ExecutionMetrics;
+import com.grq.rezero.metrics.HistogramExecutionMetrics;
+import com.grq.rezero.metrics.MetricsContext;
+import com.grq.rezero.metrics.NoopExecutionMetrics;
+import com.grq.rezero.metrics.SerialExecution;
+import com.grq.rezero.metrics.ThreadAllocation;
+import com.grq.rezero.summary.SummaryChainDag;
+import com.grq.rezero.summary.SummaryPlan;
 import com.grq.rezero.summary.SummaryUnit;
 import com.grq.rezero.summary.SummaryUnitChain;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * 统计执行器
+ * <pre>
+ *     统计执行器
+ *
+ *     统计单元链中的各统计单元互相独立，都以同一个数据源作为输入；
+ *     1. 串行模式（默认）：在调用线程中依次执行各统计单元；
+ *     2. 并行模式：将各统计单元提交到 executor 中并发执行，executor 为空时使用 ForkJoinPool.commonPool()；
+ *     两种模式的输出结果相同：按统计单元的原有顺序拼接结果，某个统计单元执行失败时，只输出该单元之前的结果；
+ *
+ *     执行前统计单元链被构建为执行图 (SummaryChainDag)，各统计单元相同的前缀维度单元只执行一次，
+ *     中间结果由所有下游分支共用；并行模式下，执行图中各根节点的子图并发执行；
+ *
+ *     多个数据集使用同一个统计单元链时，使用 summaryBatch 批量执行；
+ *
+ *     列式模式：执行前将数据源构建为列式 JSONArray，sumByField / fieldEqual / fieldSort / classify / classifiedSize
+ *     在数据批的列上计算，输出结果与逐行计算相同；可以通过 columnar 设置默认值，也可以在单次执行时指定；
+ *     同一次执行中各统计单元共用数据批中的列与字段索引；指定数据集标识与版本执行时，通过 indexRegistry
+ *     在多次执行之间复用同一版本数据集的数据批；
+ *
+ *     执行指标：各维度单元与每次统计的执行情况记录到 DimenStreamExecutor 的指标中（默认不记录）；
+ *     统计单元链开启 collectMetrics 时，另外为本次执行单独记录一份，快照由 SummaryExecution#getMetrics 返回；
+ *
+ *     查看执行计划：explain 输出统计单元链的执行计划树，profile 执行统计并在计划树的每个节点上记录开销，见 SummaryPlan；
+ *
+ *     结果缓存：设置 resultCache 后，summary 对相同内容的数据集与相同的统计单元链直接返回缓存的结果（默认不缓存），
+ *     见 SummaryResultCache；execute / profile 始终重新统计；
+ * </pre>
  */
 @Component("summaryExecutor")
 public class SummaryExecutor {
@@ -23,26 +71,590 @@ public class SummaryExecutor {
     @Autowired
     private DimenStreamExecutor dimenStreamExecutor;
 
+    /**
+     * 是否并行执行各统计单元
+     */
+    private boolean parallel = false;
+    /**
+     * 并行执行所使用的线程池，为空时使用 ForkJoinPool.commonPool()
+     */
+    private Executor executor;
+    /**
+     * 批量统计时同时执行的数据集数量上限，默认为 CPU 核数
+     */
+    private int batchParallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * 是否合并各统计单元相同的前缀维度单元，合并后前缀只执行一次
+     *
+     * @see SummaryChainDag
+     */
+    private boolean sharePrefix = true;
+    /**
+     * 是否默认使用列式模式执行
+     *
+     * @see ColumnarJSONArray
+     */
+    private boolean columnar = false;
+    /**
+     * 按数据集标识与版本缓存的列式数据批
+     */
+    private IndexRegistry indexRegistry = new IndexRegistry();
+    /**
+     * 统计结果缓存，为空时不缓存
+     */
+    private SummaryResultCache resultCache;
+
     public String summary(JSONArray src, SummaryUnitChain summaryUnitChain) {
-        StringBuilder builder = new StringBuilder();
+        return summary(null, src, summaryUnitChain);
+    }
+
+    /**
+     * <pre>
+     *     执行统计，设置了 resultCache 时先查找缓存：
+     *     1. 由数据集指纹与统计单元链签名计算 Key，命中时直接返回缓存的结果；
+     *     2. 未命中时执行统计，所有统计单元都执行成功时放入缓存；
+     * </pre>
+     *
+     * @param datasetId        数据集标识，用于按数据集失效缓存，可以为 null
+     * @param src              数据源
+     * @param summaryUnitChain 统计单元链
+     * @return 统计结果
+     * @see SummaryResultCache#invalidate(String)
+     */
+    public String summary(String datasetId, JSONArray src, SummaryUnitChain summaryUnitChain) {
+        SummaryResultCache cache = resultCache;
+        if (cache == null || summaryUnitChain == null) {
+            return execute(src, summaryUnitChain).getResult();
+        }
+        SummaryResultCache.Key key = SummaryResultCache.key(datasetId, src, summaryUnitChain);
+        String cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        SummaryExecution execution = execute(src, summaryUnitChain);
+        if (execution.isSuccess()) {
+            cache.put(key, execution.getResult());
+        }
+        return execution.getResult();
+    }
+
+    /**
+     * 执行统计，并返回各统计单元的执行情况
+     *
+     * @param src              数据源
+     * @param summaryUnitChain 统计单元链
+     * @return 执行结果
+     */
+    public SummaryExecution execute(JSONArray src, SummaryUnitChain summaryUnitChain) {
+        return execute(src, summaryUnitChain, columnar);
+    }
+
+    /**
+     * 执行统计，并指定本次执行是否使用列式模式
+     *
+     * @param src              数据源，已经是列式 JSONArray 时直接使用其数据批
+     * @param summaryUnitChain 统计单元链
+     * @param columnar         是否使用列式模式
+     * @return 执行结果
+     */
+    public SummaryExecution execute(JSONArray src, SummaryUnitChain summaryUnitChain, boolean columnar) {
+        return execute(src, summaryUnitChain, SummaryChainDag.build(summaryUnitChain, sharePrefix), parallel, columnar);
+    }
+
+    /**
+     * 以列式模式执行统计，同一数据集的同一版本复用已构建的列与字段索引
+     *
+     * @param datasetId        数据集标识
+     * @param version          数据集版本，数据变化时需要更新
+     * @param src              数据源
+     * @param summaryUnitChain 统计单元链
+     * @return 执行结果
+     * @see IndexRegistry
+     */
+    public SummaryExecution execute(String datasetId, long version, JSONArray src, SummaryUnitChain summaryUnitChain) {
+        return execute(indexRegistry.acquire(datasetId, version, src), summaryUnitChain, true);
+    }
+
+    private SummaryExecution execute(JSONArray src, SummaryUnitChain summaryUnitChain,
+                                     SummaryChainDag dag, boolean parallel, boolean columnar) {
+        SummaryExecution execution = new SummaryExecution();
         List<SummaryUnit> summaryUnits = summaryUnitChain.getSummaryUnits();
 
         if (CollectionUtils.isEmpty(summaryUnits)) {
             LOG.warn("当前统计单元链为空，直接返回空字符串");
-            return "";
+            return execution;
+        }
+        long begin = System.nanoTime();
+        if (columnar && src != null) {
+            src = ColumnarJSONArray.of(src);
+        }
+        HistogramExecutionMetrics requestMetrics = summaryUnitChain.isCollectMetrics() ? new HistogramExecutionMetrics() : null;
+        ExecutionMetrics metrics = CompositeExecutionMetrics.of(dimenStreamExecutor.getMetrics(), requestMetrics);
+        boolean runParallel = parallel && dag.getRoots().size() > 1;
+        UnitResult[] results = new UnitResult[summaryUnits.size()];
+        executeDag(src, dag, results, runParallel, metrics);
+
+        execution.setParallel(runParallel);
+        execution.setSharedUnitCount(dag.getSharedUnitCount());
+        try {
+            execution.setResult(joinResults(results, summaryUnits, execution));
+        } finally {
+            execution.setElapsedNanos(System.nanoTime() - begin);
+            metrics.recordSummary(execution.getElapsedNanos(), (src == null) ? 0 : src.size(), results.length,
+                    countFailures(results));
+        }
+        if (requestMetrics != null) {
+            execution.setMetrics(requestMetrics.snapshot());
+        }
+        return execution;
+    }
+
+    /**
+     * 输出统计单元链的执行计划，不执行统计
+     *
+     * @param summaryUnitChain 统计单元链
+     * @return 执行计划，按 sharePrefix 合并相同前缀
+     */
+    public SummaryPlan explain(SummaryUnitChain summaryUnitChain) {
+        return SummaryPlan.of(SummaryChainDag.build(summaryUnitChain, sharePrefix));
+    }
+
+    /**
+     * <pre>
+     *     执行统计，并在执行计划的每个节点上记录耗时、输入与输出基数、内存分配量、缓存与列式字段索引的命中情况；
+     *
+     *     1. 为了准确计算每个节点的内存分配量，所有节点在调用线程中串行执行，不使用并行模式；
+     *        维度单元内部（分类、筛选、TopN 等）超过并行阈值时也不分段并发，见 SerialExecution；
+     *        内存分配量只统计调用线程，自定义方法自行提交到其他线程执行的部分不计入；
+     *     2. 按 columnar 的设置决定是否使用列式模式，列式数据批的构建耗时计入总耗时；
+     *     3. 统计结果与 summary 相同，记录在执行计划中；执行情况不记录到 DimenStreamExecutor 的指标中；
+     * </pre>
+     *
+     * @param src              数据源
+     * @param summaryUnitChain 统计单元链
+     * @return 已记录执行开销的执行计划
+     */
+    public SummaryPlan profile(JSONArray src, SummaryUnitChain summaryUnitChain) {
+        SummaryPlan plan = explain(summaryUnitChain);
+        List<SummaryUnit> summaryUnits = summaryUnitChain.getSummaryUnits();
+        long rows = (src == null) ? 0 : src.size();
+        if (CollectionUtils.isEmpty(summaryUnits)) {
+            plan.setProfile(columnar, rows, 0, "");
+            return plan;
+        }
+        long begin = System.nanoTime();
+        JSONArray input = (columnar && src != null) ? ColumnarJSONArray.of(src) : src;
+        UnitResult[] results = new UnitResult[summaryUnits.size()];
+        boolean serial = SerialExecution.enter();
+        try {
+            dimenStreamExecutor.checkEntity(input);
+            for (SummaryPlan.Node root : plan.getRoots()) {
+                profileNode(root, input, 0, results);
+            }
+        } catch (ClassCastException e) {
+            for (SummaryPlan.Node root : plan.getRoots()) {
+                failSubtree(root.getDagNode(), e, 0, results);
+            }
+        } finally {
+            SerialExecution.exit(serial);
+        }
+        fillEmptyResults(results);
+        String result = joinResults(results, summaryUnits, new SummaryExecution());
+        plan.setProfile(columnar, rows, System.nanoTime() - begin, result);
+        return plan;
+    }
+
+    /**
+     * 执行计划节点，记录开销后递归执行子节点
+     */
+    private void profileNode(SummaryPlan.Node planNode, Object input, long elapsedBefore, UnitResult[] results) {
+        SummaryChainDag.Node node = planNode.getDagNode();
+        if (node.getTypeError() != null) {
+            failSubtree(node, new WrongMatchTypeException(node.getTypeError()), elapsedBefore, results);
+            return;
+        }
+        MetricsContext.UnitScope scope = MetricsContext.enter();
+        long allocatedBefore = ThreadAllocation.currentThreadAllocatedBytes();
+        long begin = System.nanoTime();
+        Object output = null;
+        RuntimeException error = null;
+        try {
+            output = dimenStreamExecutor.doProcessDimenChainUnit(input, node.getUnit(), node.getDepth(),
+                    NoopExecutionMetrics.INSTANCE);
+        } catch (RuntimeException e) {
+            error = e;
+        } finally {
+            MetricsContext.exit(scope);
+        }
+        long elapsed = System.nanoTime() - begin;
+        long allocatedAfter = ThreadAllocation.currentThreadAllocatedBytes();
+        long allocated = (allocatedBefore < 0 || allocatedAfter < 0) ? -1 : allocatedAfter - allocatedBefore;
+        planNode.setProfile(error == null, (error == null) ? null : error.getMessage(), elapsed,
+                DimenStreamExecutor.cardinality(input), (error == null) ? DimenStreamExecutor.cardinality(output) : 0,
+                allocated, scope.getCacheHits(), scope.getCacheMisses(), scope.getIndexHits(), scope.getIndexMisses());
+        if (error != null) {
+            failSubtree(node, error, elapsedBefore + elapsed, results);
+            return;
+        }
+
+        long total = elapsedBefore + elapsed;
+        for (Integer index : node.getSummaryUnitIndexes()) {
+            try {
+                results[index] = UnitResult.success(index, dimenStreamExecutor.toResultString(output), total);
+            } catch (RuntimeException e) {
+                results[index] = UnitResult.failure(index, e, total);
+            }
+        }
+        for (SummaryPlan.Node child : planNode.getChildren()) {
+            profileNode(child, output, total, results);
+        }
+    }
+
+    /**
+     * <pre>
+     *     批量统计：多个数据集使用同一个统计单元链；
+     *     1. 统计单元链只检查、编译一次；
+     *     2. 数据集按 batchParallelism 的并行度分发到线程池中执行，每个数据集内部的统计单元串行执行；
+     *     3. 返回结果按传入数据集的顺序排列，并统计批量执行的吞吐量；
+     *     单个数据集执行出错时只记录在该数据集的执行情况中，不影响其他数据集；
+     * </pre>
+     *
+     * @param datasets         数据集，Key 为数据集标识
+     * @param summaryUnitChain 统计单元链
+     * @return 批量统计结果
+     * @throws EmptyException 统计单元链为 null 时抛出异常
+     */
+    public BatchSummaryResult summaryBatch(Map<String, JSONArray> datasets, SummaryUnitChain summaryUnitChain)
+            throws EmptyException {
+        if (summaryUnitChain == null) {
+            throw new EmptyException("批量统计错误：统计单元链为 null");
+        }
+        long begin = System.nanoTime();
+        if (MapUtils.isEmpty(datasets)) {
+            return new BatchSummaryResult(new LinkedHashMap<>(), 0, System.nanoTime() - begin, 0);
+        }
+        prepareChain(summaryUnitChain);
+        SummaryChainDag dag = SummaryChainDag.build(summaryUnitChain, sharePrefix);
+
+        List<String> datasetIds = new ArrayList<>(datasets.keySet());
+        int size = datasetIds.size();
+        SummaryExecution[] executions = new SummaryExecution[size];
+        int workers = Math.max(1, Math.min(batchParallelism, size));
+
+        if (workers == 1) {
+            for (int i = 0; i < size; i++) {
+                executions[i] = executeDataset(datasetIds.get(i), datasets.get(datasetIds.get(i)), summaryUnitChain, dag);
+            }
+        } else {
+            // 固定数量的工作任务依次领取数据集，限制同时执行的数据集数量
+            Executor pool = (executor == null) ? ForkJoinPool.commonPool() : executor;
+            AtomicInteger cursor = new AtomicInteger();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[workers];
+            for (int w = 0; w < workers; w++) {
+                futures[w] = CompletableFuture.runAsync(() -> {
+                    int i;
+                    while ((i = cursor.getAndIncrement()) < size) {
+                        executions[i] = executeDataset(datasetIds.get(i), datasets.get(datasetIds.get(i)), summaryUnitChain, dag);
+                    }
+                }, pool);
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+
+        Map<String, SummaryExecution> results = new LinkedHashMap<>(size * 2);
+        long rowCount = 0;
+        for (int i = 0; i < size; i++) {
+            results.put(datasetIds.get(i), executions[i]);
+            JSONArray src = datasets.get(datasetIds.get(i));
+            rowCount += (src == null) ? 0 : src.size();
+        }
+        BatchSummaryResult batchResult = new BatchSummaryResult(results, rowCount, System.nanoTime() - begin, workers);
+        LOG.debug("批量统计完成：{}", batchResult);
+        return batchResult;
+    }
+
+    /**
+     * 执行单个数据集的统计，未处理的异常记录在执行情况中
+     */
+    private SummaryExecution executeDataset(String datasetId, JSONArray src,
+                                            SummaryUnitChain summaryUnitChain, SummaryChainDag dag) {
+        try {
+            return execute(src, summaryUnitChain, dag, false, columnar);
+        } catch (RuntimeException e) {
+            LOG.error("数据集 [{}] 统计出错：[{}]", datasetId, e.getMessage());
+            SummaryExecution execution = new SummaryExecution();
+            execution.addUnitExecution(new SummaryExecution.UnitExecution(-1, 0, false, e.getMessage()));
+            return execution;
+        }
+    }
+
+    /**
+     * 预先编译统计单元链中所有维度单元的 Aviator 表达式，编译失败的维度单元在执行时再编译
+     *
+     * @param summaryUnitChain 统计单元链
+     */
+    public void prepareChain(SummaryUnitChain summaryUnitChain) {
+        List<SummaryUnit> summaryUnits = summaryUnitChain.getSummaryUnits();
+        if (CollectionUtils.isEmpty(summaryUnits)) {
+            return;
         }
         for (SummaryUnit summaryUnit : summaryUnits) {
             List<AbstractDimensionChainUnit> dimenUnits = summaryUnit.getUnits();
-            if (!CollectionUtils.isEmpty(dimenUnits)) {
+            if (CollectionUtils.isEmpty(dimenUnits)) {
+                continue;
+            }
+            for (AbstractDimensionChainUnit dimenUnit : dimenUnits) {
+                if (dimenUnit == null || dimenUnit.isCompiled()) {
+                    continue;
+                }
                 try {
-                    String processResult = dimenStreamExecutor.doProcessDimenChainUnits(src, dimenUnits);
-                    builder.append(processResult);
-                } catch (ClassCastException | DynamicSummaryException e) {
-                    LOG.error(e.getMessage());
-                    return builder.toString();
+                    dimenUnit.compileExpression();
+                } catch (RuntimeException e) {
+                    // 表达式有语法错误等，保持未编译，执行时再次编译失败并记录到各数据集的统计单元
+                    LOG.warn("维度单元表达式 [{}] 预编译失败：[{}]", dimenUnit.getExpression(), e.getMessage());
                 }
             }
         }
+    }
+
+    /**
+     * <pre>
+     *     执行统计单元链的执行图：
+     *     1. 判断数据源类型，类型错误时所有统计单元都执行失败；
+     *     2. 从各根节点开始深度优先执行，每个节点只执行一次，输出作为所有子节点的输入；
+     *        构建执行图时类型检查失败的节点不执行，以该节点为起点的子图直接失败；
+     *     3. 并行模式下，各根节点的子图提交到线程池中并发执行；
+     *     没有维度单元的统计单元输出空字符串；
+     * </pre>
+     */
+    private void executeDag(JSONArray src, SummaryChainDag dag, UnitResult[] results, boolean parallel,
+                            ExecutionMetrics metrics) {
+        ClassCastException srcError = null;
+        try {
+            dimenStreamExecutor.checkEntity(src);
+        } catch (ClassCastException e) {
+            srcError = e;
+        }
+
+        if (srcError != null) {
+            for (SummaryChainDag.Node root : dag.getRoots()) {
+                failSubtree(root, srcError, 0, results);
+            }
+        } else if (parallel) {
+            Executor pool = (executor == null) ? ForkJoinPool.commonPool() : executor;
+            List<CompletableFuture<Void>> futures = new ArrayList<>(dag.getRoots().size());
+            for (SummaryChainDag.Node root : dag.getRoots()) {
+                futures.add(CompletableFuture.runAsync(() -> executeNode(root, src, 0, results, metrics), pool));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw e;
+                }
+            }
+        } else {
+            for (SummaryChainDag.Node root : dag.getRoots()) {
+                executeNode(root, src, 0, results, metrics);
+            }
+        }
+        fillEmptyResults(results);
+    }
+
+    /**
+     * 没有维度单元的统计单元输出空字符串
+     */
+    private static void fillEmptyResults(UnitResult[] results) {
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = UnitResult.success(i, "", 0);
+            }
+        }
+    }
+
+    /**
+     * 执行执行图节点，并递归执行子节点；统计单元的耗时为路径上所有节点的耗时之和
+     *
+     * @param node          执行图节点
+     * @param input         节点输入，即父节点的输出
+     * @param elapsedBefore 路径上之前节点的耗时
+     * @param results       统计单元结果
+     * @param metrics       执行指标
+     */
+    private void executeNode(SummaryChainDag.Node node, Object input, long elapsedBefore, UnitResult[] results,
+                             ExecutionMetrics metrics) {
+        if (node.getTypeError() != null) {
+            failSubtree(node, new WrongMatchTypeException(node.getTypeError()), elapsedBefore, results);
+            return;
+        }
+        long begin = System.nanoTime();
+        Object output;
+        try {
+            output = dimenStreamExecutor.doProcessDimenChainUnit(input, node.getUnit(), node.getDepth(), metrics);
+        } catch (RuntimeException e) {
+            failSubtree(node, e, elapsedBefore + System.nanoTime() - begin, results);
+            return;
+        }
+        long elapsed = elapsedBefore + System.nanoTime() - begin;
+
+        for (Integer index : node.getSummaryUnitIndexes()) {
+            try {
+                results[index] = UnitResult.success(index, dimenStreamExecutor.toResultString(output), elapsed);
+            } catch (RuntimeException e) {
+                results[index] = UnitResult.failure(index, e, elapsed);
+            }
+        }
+        for (SummaryChainDag.Node child : node.getChildren()) {
+            executeNode(child, output, elapsed, results, metrics);
+        }
+    }
+
+    /**
+     * 节点执行失败时，以该节点为起点的子图中所有统计单元都执行失败
+     */
+    private void failSubtree(SummaryChainDag.Node node, RuntimeException e, long elapsed, UnitResult[] results) {
+        for (Integer index : node.getSubtreeSummaryUnitIndexes()) {
+            results[index] = UnitResult.failure(index, e, elapsed);
+        }
+    }
+
+    private static int countFailures(UnitResult[] results) {
+        int failures = 0;
+        for (UnitResult unitResult : results) {
+            if (!unitResult.execution.isSuccess()) {
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * <pre>
+     *     按统计单元的原有顺序拼接结果：
+     *     1. 遇到执行失败的统计单元时停止拼接，只输出该单元之前的结果；
+     *     2. 未处理的异常（ClassCastException 与 DynamicSummaryException 之外的异常）直接抛出；
+     *     3. 执行成功的统计单元中有近似计数时，在执行记录中记录最大相对标准误差；
+     * </pre>
+     */
+    private String joinResults(UnitResult[] results, List<SummaryUnit> summaryUnits, SummaryExecution execution) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < results.length; i++) {
+            UnitResult unitResult = results[i];
+            if (unitResult.unexpected != null) {
+                throw unitResult.unexpected;
+            }
+            SummaryExecution.UnitExecution unitExecution = unitResult.execution;
+            if (!unitExecution.isSuccess()) {
+                execution.addUnitExecution(unitExecution);
+                LOG.error(unitExecution.getErrorMessage());
+                return builder.toString();
+            }
+            double standardError = SummaryExecution.UnitExecution.standardErrorOf(summaryUnits.get(i));
+            execution.addUnitExecution((standardError > 0) ? new SummaryExecution.UnitExecution(unitExecution.getIndex(),
+                    unitExecution.getElapsedNanos(), true, null, standardError) : unitExecution);
+            builder.append(unitResult.output);
+        }
         return builder.toString();
     }
+
+    public DimenStreamExecutor getDimenStreamExecutor() {
+        return dimenStreamExecutor;
+    }
+
+    public void setDimenStreamExecutor(DimenStreamExecutor dimenStreamExecutor) {
+        this.dimenStreamExecutor = dimenStreamExecutor;
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    public void setBatchParallelism(int batchParallelism) {
+        this.batchParallelism = batchParallelism;
+    }
+
+    public boolean isSharePrefix() {
+        return sharePrefix;
+    }
+
+    public void setSharePrefix(boolean sharePrefix) {
+        this.sharePrefix = sharePrefix;
+    }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    public void setColumnar(boolean columnar) {
+        this.columnar = columnar;
+    }
+
+    public IndexRegistry getIndexRegistry() {
+        return indexRegistry;
+    }
+
+    public void setIndexRegistry(IndexRegistry indexRegistry) {
+        this.indexRegistry = indexRegistry;
+    }
+
+    public SummaryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * 设置统计结果缓存，为 null 时不缓存
+     *
+     * @param resultCache 统计结果缓存
+     */
+    public void setResultCache(SummaryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 单个统计单元的输出与执行情况
+     */
+    private static class UnitResult {
+        private final String output;
+        private final SummaryExecution.UnitExecution execution;
+        /**
+         * 未处理的异常，拼接结果时抛出
+         */
+        private final RuntimeException unexpected;
+
+        private UnitResult(String output, SummaryExecution.UnitExecution execution, RuntimeException unexpected) {
+            this.output = output;
+            this.execution = execution;
+            this.unexpected = unexpected;
+        }
+
+        static UnitResult success(int index, String output, long elapsedNanos) {
+            return new UnitResult(output, new SummaryExecution.UnitExecution(index, elapsedNanos, true, null), null);
+        }
+
+        static UnitResult failure(int index, RuntimeException e, long elapsedNanos) {
+            boolean handled = e instanceof ClassCastException || e instanceof DynamicSummaryException;
+            return new UnitResult(null, new SummaryExecution.UnitExecution(index, elapsedNanos, false, e.getMessage()),
+                    handled ? null : e);
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package com.grq.rezero.expression;
+
+import com.googlecode.aviator.AviatorEvaluator;
+import com.googlecode.aviator.Expression;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.EmptyException;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * <pre>
+ *     Aviator 表达式编译缓存；
+ *
+ *     1. 以表达式字符串为 Key，缓存编译后的 Expression，执行时只需要绑定 env 即可；
+ *     2. 缓存有数量上限，超出上限时按 LRU 规则淘汰，避免动态表达式无限占用内存；
+ *     3. 不使用 AviatorEvaluator 内部的无界缓存；
+ * </pre>
+ *
+ * @see LruCache
+ */
+public class AviatorExpressionCache {
+    private final LruCache<String, Expression> cache;
+
+    private AviatorExpressionCache(int maxSize) {
+        this.cache = new LruCache<>("aviatorExpression", maxSize);
+    }
+
+    /**
+     * 获取编译缓存（单例模式）
+     *
+     * @return
+     */
+    public static AviatorExpressionCache getInstance() {
+        return Holder.instance;
+    }
+
+    /**
+     * 编译表达式，如果缓存中已有编译结果，则直接返回
+     *
+     * @param expression Aviator 表达式
+     * @return 编译后的表达式
+     * @throws EmptyException 传入表达式为空时抛出异常
+     */
+    public Expression compile(String expression) throws EmptyException {
+        if (StringUtils.isEmpty(expression)) {
+            throw new EmptyException("AviatorExpressionCache 编译错误：传入表达式为空");
+        }
+        return cache.get(expression, k -> AviatorEvaluator.compile(k, false));
+    }
+
+    /**
+     * 清空编译缓存；在 AviatorEvaluator 的自定义方法发生变化后调用
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    public void setMaxSize(int maxSize) {
+        cache.setMaxSize(maxSize);
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public double getHitRatio() {
+        return cache.getHitRatio();
+    }
+
+    @Override
+    public String toString() {
+        return cache.toString();
+    }
+
+    /**
+     * 单例模式的静态内部类，与 ExpressionMatchUnit.Holder 相同，利用类初始化实现懒加载与同步
+     */
+    private static class Holder {
+        private static AviatorExpressionCache instance = new AviatorExpressionCache(LruCache.DEFAULT_MAX_SIZE);
+    }
+}
@@ -3,6 +3,7 @@ package com.grq.rezero.expression;
 import com.googlecode.aviator.AviatorEvaluator;
 import com.googlecode.aviator.runtime.function.AbstractFunction;
 import com.grq.rezero.function.FunctionFactory;
+import com.grq.rezero.function.calculate.ClassifiedSummaryPlan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
@@ -63,6 +64,9 @@ public class ExpressionInitializer implements InitializingBean {
                     LOG.error(errorMsg);
                 }
             }
+            // 自定义方法变化后，之前编译的表达式可能无法找到新方法，清空编译缓存
+            AviatorExpressionCache.getInstance().clear();
+            ClassifiedSummaryPlan.getPlanCache().clear();
         }
     }
 
@@ -5,13 +5,11 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.googlecode.aviator.AviatorEvaluator;
 import com.googlecode.aviator.exception.ExpressionSyntaxErrorException;
-import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
 import com.grq.rezero.exception.EmptyException;
 import com.grq.rezero.exception.WrongMatchException;
 import com.grq.rezero.exception.WrongMatchTypeException;
-import org.apache.commons.collections.MapUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
@@ -85,6 +83,13 @@ public class ExpressionParser {
 
     public static Logger LOG = LoggerFactory.getLogger(ExpressionParser.class);
 
+    /**
+     * 是否使用参数化方式执行 #{...}# 方法单元，关闭后使用文本替换方式执行
+     *
+     * @see ParameterizedFunction
+     */
+    private static volatile boolean parameterizedFunction = true;
+
     /**
      * 传入表达式，将表达式解析后的信息存入 ExpressionInfo 中
      *
@@ -304,59 +309,18 @@ public class ExpressionParser {
     }
 
     /**
-     * 传入单条数据，根据表达式 expression 处理并返回
+     * 传入单条数据，根据表达式 expression 处理并返回；
+     * 表达式被编译为 ExpressionTemplate 并缓存，相同表达式只解析一次
      *
      * @param entity     单条数据
      * @param expression 处理表达式
      * @return 处理结果 (String)
      * @throws DynamicSummaryException 抛出处理过程中的错误异常
+     * @see ExpressionTemplate
      */
     public static String executeExpression(JSONObject entity, String expression)
             throws DynamicSummaryException {
-        // 表达式解析
-        ExpressionInfo expressionInfo = ExpressionParser.parserExpression(expression);
-        return doHandleExpression(entity, expressionInfo);
-    }
-
-    /**
-     * 处理表达式
-     * <pre>
-     *     逐个匹配单元的处理表达式匹配单元；
-     *
-     *     1. 获取表达式信息，作为处理结果的基础字符串；
-     *     2. 遍历匹配单元，根据单元的不同类型分别进行处理，将处理结果逐步替换表达式内容；
-     *     3. 将表达式最后处理结果返回；
-     * </pre>
-     *
-     * @param entity         单条数据内容
-     * @param expressionInfo 表达式信息
-     * @return 处理结果
-     * @throws DynamicSummaryException 抛出处理过程中的错误异常
-     */
-    private static String doHandleExpression(JSONObject entity,
-                                             ExpressionInfo expressionInfo) throws DynamicSummaryException {
-        List<ExpressionMatchUnit> matchUnits = expressionInfo.getMatchUnits();
-
-        // 获取表达式信息，作为处理结果的基础字符串；
-        String handleResult = expressionInfo.getExpression();
-        // 遍历所有匹配单元信息，从 entity 中获取具体值，将表达式内容替换
-        for (int i = matchUnits.size() - 1; i >= 0; i--) {
-            ExpressionMatchUnit matchUnit = matchUnits.get(i);
-            ExpressionMatchType type = matchUnit.getMatchType();
-            // 根据单元的不同类型分别进行处理，将处理结果逐步替换表达式内容
-            String expResult = null;
-            switch (type) {
-                case FIELD:
-                    expResult = doHandleFieldUnit(entity, matchUnit);
-                    break;
-                case FUNCTION:
-                    expResult = doHandleFunctionUnit(entity, matchUnit);
-                    break;
-            }
-            // 结果替换
-            handleResult = handleResult.replace(matchUnit.getContent(), expResult);
-        }
-        return handleResult;
+        return ExpressionTemplate.compile(expression).render(entity);
     }
 
     /**
@@ -414,18 +378,9 @@ public class ExpressionParser {
         }
 
         /**
-         * 2. 如果是常规字段，直接替换
+         * 2. 使用预编译的字段取值器取值：常规字段直接获取，没有获取到值时尝试使用关联字段的方法解析
          */
-        String e_k = unit.matchResult();
-        Object e_v = entity.get(e_k);
-        if (e_v != null) {
-            return e_v.toString();
-        }
-        /**
-         * 3. 如果没有从 JSONObject 中直接获取到值，则尝试使用关联字段的方法解析
-         */
-        String relationInfoResult = doHandleFieldRelationInfo(entity, unit);
-        return (relationInfoResult == null) ? "" : relationInfoResult;
+        return FieldAccessor.compile(unit.matchResult()).getString(entity);
     }
 
     /**
@@ -444,61 +399,8 @@ public class ExpressionParser {
             String message = String.format("传入匹配单元类型不为【字段类型】，匹配单元详细信息：{%s}", unitJsonString);
             throw new WrongMatchTypeException(message);
         }
-        // 提取字段单元除了括号之外的信息
-        String matchResult = unit.matchResult();
-        Matcher matcher = EXPRESSION_RELATIONINFO_REGEX_PATTERN.matcher(matchResult);
-        while (matcher.find()) {
-            // 如果匹配结果 group != 2，即没有满足 k-v 格式，则跳过
-            int groupCount = matcher.groupCount();
-            if (groupCount == 2) {
-                /**
-                 * Group1 用于获取数据源名称，然后从 JSONObject 中获取所有关联信息
-                 */
-                String dataResource = matcher.group(1);
-                String key = dataResource + "." + FunctionNameConstants.FUNCTION_NAME_ENTITYADVANCED_RELATIONINFO;
-                JSONObject relationInfo = entity.getJSONObject(key);
-                if (MapUtils.isEmpty(relationInfo)) {
-                    LOG.debug("当前数据没有关联信息，匹配单元表达式为 [{}]", unit.getContent());
-                    return "";
-                }
-                /**
-                 * Group2 用于获取具体的关联信息
-                 */
-                String relationExpression = matcher.group(2);
-                if (StringUtils.isEmpty(relationExpression)) {
-                    LOG.debug("没有关联信息的内容，直接返回空字符串");
-                    return "";
-                }
-                List<String> keys = Arrays.asList(relationExpression.split(EXPRESSION_RELATIONINFO_SPLITTER));
-                JSONObject e = new JSONObject(relationInfo);
-                String result = "";
-                for (int i = 0; i < keys.size(); i++) {
-                    String k = keys.get(i);
-                    try {
-                        if (i < keys.size() - 1) {
-                            e = e.getJSONObject(k);
-                        } else {
-                            result = e.getString(k);
-                        }
-                    } catch (NullPointerException exp) {
-                        String nullPointField = relationExpression.substring(0, relationExpression.indexOf(k) - 1);
-                        String errorMsg = String.format("关联信息获取出现空字符串，错误信息：关联信息表达式为 [%s]，在获取字段 [%s] 时抛出空指针异常", relationExpression, nullPointField);
-                        LOG.error(errorMsg);
-                        throw new DynamicSummaryException(errorMsg, exp);
-                    } catch (ClassCastException exp) {
-                        Object o = e.get(k);
-                        String errorMsg = String.format("类型转换错误，原类型为 [%s]，无法转换为 JSONObject 与 String 类型", o.getClass().getName());
-                        LOG.error(errorMsg);
-                        throw new DynamicSummaryException(errorMsg, exp);
-                    } catch (Exception exp) {
-                        exp.printStackTrace();
-                    }
-                }
-                return (result == null) ? "" : result;
-            }
-        }
-
-        return "";
+        // 使用预编译的字段取值器获取关联信息，关联信息路径只在编译时解析一次
+        return FieldAccessor.compile(unit.matchResult()).getRelationString(entity);
     }
 
     /**
@@ -545,10 +447,30 @@ public class ExpressionParser {
         for (int i = 0; i < aviatorArgs.length; i++) {
             env.put(aviatorArgs[i], aviatorValues[i]);
         }
-        Object result = AviatorEvaluator.execute(functionExpression, env);
+        // 统计表达式与数据无关，编译结果可以复用
+        Object result = AviatorExpressionCache.getInstance().compile(functionExpression).execute(env);
         return result.toString();
     }
 
+    /**
+     * 执行 Aviator 表达式方法
+     * <pre>
+     *     默认使用参数化方式执行：方法单元中的字段作为 Aviator 变量绑定，表达式只编译一次；
+     *     参数化方式关闭，或方法单元不能参数化时，使用文本替换方式执行；
+     * </pre>
+     *
+     * @param entity 单条数据信息
+     * @param unit   匹配单元
+     * @return
+     * @see ParameterizedFunction
+     */
+    public static String doExecuteFunction(JSONObject entity, ExpressionMatchUnit unit) {
+        if (parameterizedFunction) {
+            return ParameterizedFunction.compile(unit).execute(entity);
+        }
+        return doExecuteFunctionBySubstitution(entity, unit);
+    }
+
     /**
      * 执行 Aviator 表达式方法
      * <pre>
@@ -563,7 +485,7 @@ public class ExpressionParser {
      * @param unit   匹配单元
      * @return
      */
-    public static String doExecuteFunction(JSONObject entity, ExpressionMatchUnit unit) {
+    public static String doExecuteFunctionBySubstitution(JSONObject entity, ExpressionMatchUnit unit) {
         /**
          * 1. 替换所有字段信息 (${...}$)
          *  - 获取方法字段的表达式内容，以表达式内容为基础，获取方法字段内的所有字段信息；
@@ -624,4 +546,12 @@ public class ExpressionParser {
         }
         return count;
     }
+
+    public static boolean isParameterizedFunction() {
+        return parameterizedFunction;
+    }
+
+    public static void setParameterizedFunction(boolean parameterizedFunction) {
+        ExpressionParser.parameterizedFunction = parameterizedFunction;
+    }
 }
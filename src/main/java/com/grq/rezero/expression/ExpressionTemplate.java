@@ -0,0 +1,218 @@
+package com.grq.rezero.expression;
+
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.EmptyException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <pre>
+ *     预编译的表达式模板；
+ *
+ *     表达式只在编译时用正则表达式解析一次，解析结果按位置拆分为若干段：
+ *     1. 常量段：原样输出；
+ *     2. 字段段：${...}$，从单条数据中取值；
+ *     3. 方法段：#{...}#，执行 Aviator 表达式；
+ *     渲染时按顺序遍历所有段，在同一个 StringBuilder 中输出结果，不再使用正则表达式与 String.replace；
+ *
+ *     编译结果以表达式字符串为 Key 缓存，模板对象不可变，可在多线程间共享；
+ * </pre>
+ *
+ * @see ExpressionParser#executeExpression(JSONObject, String)
+ */
+public class ExpressionTemplate {
+    /**
+     * 模板编译缓存
+     */
+    private static final LruCache<String, ExpressionTemplate> TEMPLATE_CACHE = new LruCache<>("expressionTemplate");
+
+    /**
+     * 原始表达式
+     */
+    private final String expression;
+    /**
+     * 按位置排列的模板段
+     */
+    private final Segment[] segments;
+    /**
+     * 常量部分的总长度，用于预估输出长度
+     */
+    private final int literalLength;
+
+    private ExpressionTemplate(String expression, Segment[] segments, int literalLength) {
+        this.expression = expression;
+        this.segments = segments;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * 编译表达式模板，相同表达式只编译一次
+     *
+     * @param expression 表达式
+     * @return 模板
+     * @throws EmptyException 传入表达式为 null 时抛出异常
+     */
+    public static ExpressionTemplate compile(String expression) throws EmptyException {
+        if (expression == null) {
+            throw new EmptyException("ExpressionTemplate 编译错误：传入表达式为 null");
+        }
+        return TEMPLATE_CACHE.get(expression, ExpressionTemplate::doCompile);
+    }
+
+    /**
+     * <pre>
+     *     编译表达式：
+     *     1. 使用 ExpressionParser 解析所有方法单元与字段单元，方法单元内部的字段单元已被剔除；
+     *     2. 将匹配单元按起始位置排序，与其他单元重叠的单元跳过；
+     *     3. 匹配单元之间的内容作为常量段；
+     * </pre>
+     *
+     * @param expression 表达式
+     * @return 模板
+     */
+    private static ExpressionTemplate doCompile(String expression) {
+        ExpressionInfo info = ExpressionParser.parserExpression(expression);
+        List<ExpressionMatchUnit> units = new ArrayList<>(info.getMatchUnits());
+        units.sort(Comparator.comparing(ExpressionMatchUnit::getBegin));
+
+        List<Segment> segments = new ArrayList<>();
+        int literalLength = 0;
+        int cursor = 0;
+        for (ExpressionMatchUnit unit : units) {
+            if (unit.getBegin() < cursor) {
+                continue;
+            }
+            if (unit.getBegin() > cursor) {
+                segments.add(new LiteralSegment(expression.substring(cursor, unit.getBegin())));
+                literalLength += unit.getBegin() - cursor;
+            }
+            segments.add(ExpressionMatchType.FIELD.equals(unit.getMatchType())
+                    ? new FieldSegment(unit) : new FunctionSegment(unit));
+            cursor = unit.getEnd();
+        }
+        if (cursor < expression.length()) {
+            segments.add(new LiteralSegment(expression.substring(cursor)));
+            literalLength += expression.length() - cursor;
+        }
+        return new ExpressionTemplate(expression, segments.toArray(new Segment[0]), literalLength);
+    }
+
+    /**
+     * 根据单条数据渲染模板
+     *
+     * @param entity 单条数据
+     * @return 渲染结果
+     * @throws DynamicSummaryException 抛出处理过程中的错误异常
+     */
+    public String render(JSONObject entity) throws DynamicSummaryException {
+        // 只有常量的模板直接返回
+        if (segments.length == 1 && segments[0] instanceof LiteralSegment) {
+            return expression;
+        }
+        StringBuilder builder = new StringBuilder(literalLength + 16 * segments.length);
+        render(entity, builder);
+        return builder.toString();
+    }
+
+    /**
+     * 根据单条数据渲染模板，结果追加到 builder 中
+     *
+     * @param entity  单条数据
+     * @param builder 输出
+     * @throws DynamicSummaryException 抛出处理过程中的错误异常
+     */
+    public void render(JSONObject entity, StringBuilder builder) throws DynamicSummaryException {
+        for (Segment segment : segments) {
+            segment.appendTo(entity, builder);
+        }
+    }
+
+    /**
+     * 模板是否包含字段段或方法段
+     *
+     * @return
+     */
+    public boolean hasSlots() {
+        for (Segment segment : segments) {
+            if (!(segment instanceof LiteralSegment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * 获取模板编译缓存，用于观察缓存情况
+     *
+     * @return
+     */
+    public static LruCache<String, ExpressionTemplate> getTemplateCache() {
+        return TEMPLATE_CACHE;
+    }
+
+    /**
+     * 模板段
+     */
+    private abstract static class Segment {
+        abstract void appendTo(JSONObject entity, StringBuilder builder);
+    }
+
+    /**
+     * 常量段
+     */
+    private static class LiteralSegment extends Segment {
+        private final String text;
+
+        LiteralSegment(String text) {
+            this.text = text;
+        }
+
+        @Override
+        void appendTo(JSONObject entity, StringBuilder builder) {
+            builder.append(text);
+        }
+    }
+
+    /**
+     * 字段段：${...}$
+     */
+    private static class FieldSegment extends Segment {
+        private final FieldAccessor accessor;
+
+        FieldSegment(ExpressionMatchUnit unit) {
+            this.accessor = FieldAccessor.compile(unit.matchResult());
+        }
+
+        @Override
+        void appendTo(JSONObject entity, StringBuilder builder) {
+            builder.append(accessor.getString(entity));
+        }
+    }
+
+    /**
+     * 方法段：#{...}#
+     */
+    private static class FunctionSegment extends Segment {
+        private final ExpressionMatchUnit unit;
+        private final ParameterizedFunction function;
+
+        FunctionSegment(ExpressionMatchUnit unit) {
+            this.unit = unit;
+            this.function = ParameterizedFunction.compile(unit);
+        }
+
+        @Override
+        void appendTo(JSONObject entity, StringBuilder builder) {
+            builder.append(ExpressionParser.isParameterizedFunction()
+                    ? function.execute(entity) : ExpressionParser.doExecuteFunctionBySubstitution(entity, unit));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.grq.rezero.expression;
+
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.constants.FunctionNameConstants;
+import com.grq.rezero.exception.DynamicSummaryException;
+import org.apache.commons.collections.MapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.regex.Matcher;
+
+/**
+ * <pre>
+ *     预编译的字段取值器，对应字段单元 ${...}$ 中的表达式；
+ *
+ *     字段表达式在编译时解析一次：
+ *     1. 常规字段：直接作为 Key 从数据中取值；
+ *     2. 关联信息字段 (例如 student@college.location)：
+ *      - '@' 前的数据源名称被拼接为关联信息的 Key，即 "student.relationInfo"；
+ *      - '@' 后的内容按 '.' 拆分为逐层获取的 Key 数组；
+ *     取值时只按预先拆分好的路径逐层获取，不再使用正则表达式、不拼接字符串、不复制关联信息；
+ *
+ *     取值结果与 ExpressionParser#doHandleFieldUnit 相同，编译结果以字段表达式为 Key 缓存，对象不可变，可在多线程间共享；
+ * </pre>
+ *
+ * @see ExpressionParser#doHandleFieldUnit(JSONObject, ExpressionMatchUnit)
+ * @see ExpressionParser#doHandleFieldRelationInfo(JSONObject, ExpressionMatchUnit)
+ */
+public class FieldAccessor {
+    private static Logger LOG = LoggerFactory.getLogger(FieldAccessor.class);
+
+    /**
+     * 字段取值器编译缓存
+     */
+    private static final LruCache<String, FieldAccessor> ACCESSOR_CACHE = new LruCache<>("fieldAccessor");
+
+    /**
+     * 字段表达式（不包括 ${ }$ 括号）
+     */
+    private final String field;
+    /**
+     * 关联信息在数据中的 Key，为 null 表示不是关联信息字段
+     */
+    private final String relationKey;
+    /**
+     * 关联信息表达式（'@' 后的内容）
+     */
+    private final String relationExpression;
+    /**
+     * 关联信息逐层获取的 Key
+     */
+    private final String[] relationPath;
+
+    private FieldAccessor(String field, String relationKey, String relationExpression, String[] relationPath) {
+        this.field = field;
+        this.relationKey = relationKey;
+        this.relationExpression = relationExpression;
+        this.relationPath = relationPath;
+    }
+
+    /**
+     * 编译字段表达式，相同表达式只编译一次
+     *
+     * @param expression 字段表达式，可以带 ${ }$ 括号，也可以不带
+     * @return 字段取值器
+     */
+    public static FieldAccessor compile(String expression) {
+        String key = (expression == null) ? "" : expression;
+        return ACCESSOR_CACHE.get(key, FieldAccessor::doCompile);
+    }
+
+    /**
+     * 编译字段表达式
+     *
+     * @param expression 字段表达式
+     * @return 字段取值器
+     */
+    private static FieldAccessor doCompile(String expression) {
+        String field = ExpressionMatchUnit.buildFieldUnit(expression).matchResult();
+        if (field == null) {
+            field = "";
+        }
+        Matcher matcher = ExpressionParser.EXPRESSION_RELATIONINFO_REGEX_PATTERN.matcher(field);
+        if (!matcher.find()) {
+            return new FieldAccessor(field, null, null, null);
+        }
+        String relationKey = matcher.group(1) + "." + FunctionNameConstants.FUNCTION_NAME_ENTITYADVANCED_RELATIONINFO;
+        String relationExpression = matcher.group(2);
+        String[] relationPath = (relationExpression == null || relationExpression.isEmpty())
+                ? new String[0] : relationExpression.split(ExpressionParser.EXPRESSION_RELATIONINFO_SPLITTER);
+        return new FieldAccessor(field, relationKey, relationExpression, relationPath);
+    }
+
+    /**
+     * 从数据中获取字段值的字符串形式；字段不存在时返回空字符串
+     *
+     * @param entity 单条数据
+     * @return 字段值
+     * @throws DynamicSummaryException 获取关联信息出错时抛出异常
+     */
+    public String getString(JSONObject entity) throws DynamicSummaryException {
+        Object value = entity.get(field);
+        if (value != null) {
+            return value.toString();
+        }
+        return getRelationString(entity);
+    }
+
+    /**
+     * 从数据中获取字段的原始值；字段不存在时返回 null
+     *
+     * @param entity 单条数据
+     * @return 字段值
+     * @throws DynamicSummaryException 获取关联信息出错时抛出异常
+     */
+    public Object getValue(JSONObject entity) throws DynamicSummaryException {
+        Object value = entity.get(field);
+        if (value != null || relationKey == null) {
+            return value;
+        }
+        JSONObject e = walkRelationInfo(entity);
+        return (e == null) ? null : e.get(relationPath[relationPath.length - 1]);
+    }
+
+    /**
+     * 从数据的关联信息中获取字段值；不是关联信息字段，或关联信息不存在时返回空字符串
+     *
+     * @param entity 单条数据
+     * @return 关联信息字段值
+     * @throws DynamicSummaryException 获取关联信息出错时抛出异常
+     */
+    public String getRelationString(JSONObject entity) throws DynamicSummaryException {
+        if (relationKey == null) {
+            return "";
+        }
+        JSONObject e = walkRelationInfo(entity);
+        if (e == null) {
+            return "";
+        }
+        String key = relationPath[relationPath.length - 1];
+        String result;
+        try {
+            result = e.getString(key);
+        } catch (ClassCastException exp) {
+            throw castError(e, key, exp);
+        }
+        return (result == null) ? "" : result;
+    }
+
+    /**
+     * 按关联信息路径逐层获取，返回最后一层的 JSONObject；关联信息不存在或路径为空时返回 null
+     *
+     * @param entity 单条数据
+     * @return 最后一层关联信息
+     */
+    private JSONObject walkRelationInfo(JSONObject entity) {
+        JSONObject e = entity.getJSONObject(relationKey);
+        if (MapUtils.isEmpty(e)) {
+            LOG.debug("当前数据没有关联信息，字段表达式为 [{}]", field);
+            return null;
+        }
+        if (relationPath.length == 0) {
+            LOG.debug("没有关联信息的内容，直接返回空字符串");
+            return null;
+        }
+        for (int i = 0; i < relationPath.length - 1; i++) {
+            String key = relationPath[i];
+            try {
+                e = e.getJSONObject(key);
+            } catch (ClassCastException exp) {
+                throw castError(e, key, exp);
+            }
+            if (e == null) {
+                String nullPointField = String.join(".", java.util.Arrays.copyOfRange(relationPath, 0, i + 1));
+                String errorMsg = String.format("关联信息获取出现空字符串，错误信息：关联信息表达式为 [%s]，在获取字段 [%s] 时抛出空指针异常", relationExpression, nullPointField);
+                LOG.error(errorMsg);
+                throw new DynamicSummaryException(errorMsg, new NullPointerException(nullPointField));
+            }
+        }
+        return e;
+    }
+
+    private DynamicSummaryException castError(JSONObject e, String key, ClassCastException exp) {
+        Object o = e.get(key);
+        String errorMsg = String.format("类型转换错误，原类型为 [%s]，无法转换为 JSONObject 与 String 类型", o.getClass().getName());
+        LOG.error(errorMsg);
+        return new DynamicSummaryException(errorMsg, exp);
+    }
+
+    /**
+     * 是否为关联信息字段
+     *
+     * @return
+     */
+    public boolean isRelationField() {
+        return relationKey != null;
+    }
+
+    /**
+     * 字段表达式（不包括 ${ }$ 括号）
+     *
+     * @return
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * 获取字段取值器编译缓存，用于观察缓存情况
+     *
+     * @return
+     */
+    public static LruCache<String, FieldAccessor> getAccessorCache() {
+        return ACCESSOR_CACHE;
+    }
+
+    @Override
+    public String toString() {
+        return "${" + field + "}$";
+    }
+}
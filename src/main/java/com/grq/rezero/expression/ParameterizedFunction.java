@@ -0,0 +1,275 @@
+package com.grq.rezero.expression;
+
+import com.alibaba.fastjson.JSONObject;
+import com.googlecode.aviator.Expression;
+import com.googlecode.aviator.exception.ExpressionSyntaxErrorException;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.DynamicSummaryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     参数化的方法单元 #{...}#；
+ *
+ *     原有的执行方式是将 ${...}$ 字段的值直接替换进 Aviator 表达式，每个不同的字段值都会产生一个新的表达式，需要重新编译；
+ *     参数化后，方法单元中的字段被替换为 Aviator 变量，表达式只编译一次，执行时将字段值绑定到 env 中：
+ *
+ *     1. 编译：字段满足以下条件时才可以被参数化，否则整个方法单元使用原有的文本替换方式执行；
+ *      - 字段不在字符串常量 ('...' 或 "...") 中；
+ *      - 字段前后不与标识符、数字、'.' 等字符相连，即字段在文本替换后是一个独立的词法单元；
+ *     2. 执行：字段值必须是与文本替换结果相同的 Aviator 常量，即整数 (Long)、小数 (Double)、true/false；
+ *     如果某一行的字段值不满足条件，则该行回退到文本替换方式执行，保证结果与文本替换完全相同；
+ * </pre>
+ *
+ * @see ExpressionParser#doExecuteFunction(JSONObject, ExpressionMatchUnit)
+ */
+public class ParameterizedFunction {
+    private static Logger LOG = LoggerFactory.getLogger(ParameterizedFunction.class);
+
+    /**
+     * 参数化方法单元编译缓存
+     */
+    private static final LruCache<String, ParameterizedFunction> FUNCTION_CACHE = new LruCache<>("parameterizedFunction");
+
+    /**
+     * 字段参数在 Aviator 表达式中的变量名前缀
+     */
+    public static final String SLOT_VARIABLE_PREFIX = "rezeroSlot";
+
+    /**
+     * 原方法匹配单元
+     */
+    private final ExpressionMatchUnit unit;
+    /**
+     * 参数化之后的 Aviator 表达式；为 null 时表示该方法单元不能参数化
+     */
+    private final String parameterizedExpression;
+    /**
+     * 字段参数：变量名与对应的字段取值器，下标一一对应
+     */
+    private final String[] slotVariables;
+    private final FieldAccessor[] slotAccessors;
+    /**
+     * 编译结果，首次执行时编译（自定义方法需要先添加到 AviatorEvaluator 中）
+     */
+    private volatile Expression compiled;
+    /**
+     * 参数化表达式编译失败时置为 true，之后全部使用文本替换方式执行
+     */
+    private volatile boolean compileFailed;
+
+    private ParameterizedFunction(ExpressionMatchUnit unit, String parameterizedExpression,
+                                  String[] slotVariables, FieldAccessor[] slotAccessors) {
+        this.unit = unit;
+        this.parameterizedExpression = parameterizedExpression;
+        this.slotVariables = slotVariables;
+        this.slotAccessors = slotAccessors;
+    }
+
+    /**
+     * 编译方法匹配单元，相同内容只编译一次
+     *
+     * @param unit 方法匹配单元
+     * @return 参数化方法单元
+     */
+    public static ParameterizedFunction compile(ExpressionMatchUnit unit) {
+        return FUNCTION_CACHE.get(unit.getContent(), k -> doCompile(unit));
+    }
+
+    /**
+     * <pre>
+     *     编译方法匹配单元：
+     *     1. 提取方法单元中的表达式内容，并找出其中所有的字段单元；
+     *     2. 检查每个字段单元是否可以被参数化，只要有一个不能参数化，则整个方法单元不能参数化；
+     *     3. 将字段单元替换为变量名，相同字段使用同一个变量；
+     * </pre>
+     *
+     * @param unit 方法匹配单元
+     * @return 参数化方法单元
+     */
+    private static ParameterizedFunction doCompile(ExpressionMatchUnit unit) {
+        String content = unit.getContent();
+        if (content == null || !content.startsWith("#{") || !content.endsWith("}#") || content.length() <= 4) {
+            return new ParameterizedFunction(unit, null, null, null);
+        }
+        String body = content.substring(2, content.length() - 2);
+        List<ExpressionMatchUnit> fields = ExpressionParser.parseFieldsFromExpression(body);
+
+        Map<String, String> variables = new LinkedHashMap<>();
+        List<FieldAccessor> accessors = new ArrayList<>();
+        StringBuilder builder = new StringBuilder(body.length());
+        int cursor = 0;
+        for (ExpressionMatchUnit field : fields) {
+            if (!isStandaloneToken(body, field.getBegin(), field.getEnd())) {
+                return new ParameterizedFunction(unit, null, null, null);
+            }
+            String variable = variables.get(field.getContent());
+            if (variable == null) {
+                variable = SLOT_VARIABLE_PREFIX + variables.size();
+                variables.put(field.getContent(), variable);
+                accessors.add(FieldAccessor.compile(field.matchResult()));
+            }
+            builder.append(body, cursor, field.getBegin()).append(variable);
+            cursor = field.getEnd();
+        }
+        builder.append(body, cursor, body.length());
+
+        return new ParameterizedFunction(unit, builder.toString(),
+                variables.values().toArray(new String[0]), accessors.toArray(new FieldAccessor[0]));
+    }
+
+    /**
+     * 判断 [begin, end) 位置的字段在文本替换后是否是一个独立的词法单元
+     *
+     * @param body  方法单元表达式内容
+     * @param begin 字段起始位置
+     * @param end   字段结束位置
+     * @return
+     */
+    private static boolean isStandaloneToken(String body, int begin, int end) {
+        // 字段不能在字符串常量中
+        char quote = 0;
+        for (int i = 0; i < begin; i++) {
+            char c = body.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            }
+        }
+        if (quote != 0) {
+            return false;
+        }
+        // 字段前后不能与其他词法单元相连
+        if (begin > 0 && isJoinedChar(body.charAt(begin - 1))) {
+            return false;
+        }
+        return end >= body.length() || (!isJoinedChar(body.charAt(end)) && body.charAt(end) != '(');
+    }
+
+    private static boolean isJoinedChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$'
+                || c == '\'' || c == '"' || c == '#' || c == '{' || c == '}';
+    }
+
+    /**
+     * 执行方法单元
+     *
+     * @param entity 单条数据
+     * @return 执行结果
+     */
+    public String execute(JSONObject entity) {
+        Expression expression = getCompiled();
+        if (expression == null) {
+            return ExpressionParser.doExecuteFunctionBySubstitution(entity, unit);
+        }
+        Map<String, Object> env = new HashMap<>(slotVariables.length * 2);
+        for (int i = 0; i < slotVariables.length; i++) {
+            String value = slotAccessors[i].getString(entity);
+            Object literal = toLiteral(value);
+            if (literal == null) {
+                // 字段值不是常量，回退到文本替换
+                return ExpressionParser.doExecuteFunctionBySubstitution(entity, unit);
+            }
+            env.put(slotVariables[i], literal);
+        }
+        Object result = expression.execute(env);
+        return (null == result) ? "" : result.toString();
+    }
+
+    /**
+     * 是否可以参数化执行
+     *
+     * @return
+     */
+    public boolean isParameterized() {
+        return parameterizedExpression != null && !compileFailed;
+    }
+
+    public String getParameterizedExpression() {
+        return parameterizedExpression;
+    }
+
+    private Expression getCompiled() {
+        if (compiled != null || parameterizedExpression == null || compileFailed) {
+            return compiled;
+        }
+        try {
+            compiled = AviatorExpressionCache.getInstance().compile(parameterizedExpression);
+        } catch (ExpressionSyntaxErrorException | DynamicSummaryException e) {
+            LOG.debug("方法单元 [{}] 参数化编译失败，使用文本替换方式执行：[{}]", unit.getContent(), e.getMessage());
+            compileFailed = true;
+        }
+        return compiled;
+    }
+
+    /**
+     * <pre>
+     *     将字段值转换为与文本替换结果相同的 Aviator 常量：
+     *     1. 整数 (可选负号 + 数字)，且在 long 范围内：Long；
+     *     2. 小数 (可选负号 + 数字 + '.' + 数字)：Double；
+     *     3. true / false：Boolean；
+     *     其他情况返回 null；
+     * </pre>
+     *
+     * @param value 字段值
+     * @return Aviator 常量
+     */
+    static Object toLiteral(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return null;
+        }
+        if ("true".equals(value)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equals(value)) {
+            return Boolean.FALSE;
+        }
+        int i = (value.charAt(0) == '-') ? 1 : 0;
+        int digitStart = i;
+        while (i < length && isAsciiDigit(value.charAt(i))) {
+            i++;
+        }
+        if (i == digitStart) {
+            return null;
+        }
+        if (i == length) {
+            // 整数位数较少时一定在 long 范围内
+            if (length - digitStart <= 18) {
+                return Long.parseLong(value);
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (value.charAt(i) != '.') {
+            return null;
+        }
+        int fractionStart = ++i;
+        while (i < length && isAsciiDigit(value.charAt(i))) {
+            i++;
+        }
+        if (i == fractionStart || i != length) {
+            return null;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
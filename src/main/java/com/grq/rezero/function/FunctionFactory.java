@@ -9,7 +9,9 @@ import com.grq.rezero.function.filter.FieldEqualFilterFunction;
 import com.grq.rezero.function.filter.RelationFilterFunction;
 import com.grq.rezero.function.other.ListExtractFunction;
 import com.grq.rezero.function.other.RelationInfoFunction;
+import com.grq.rezero.function.other.SubListFunction;
 import com.grq.rezero.function.sort.FieldSortFunction;
+import com.grq.rezero.function.sort.TopNFunction;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -68,6 +70,9 @@ public class FunctionFactory implements FunctionNameConstants {
             case FUNCTION_NAME_LISTADVANCED_FIELDSORT:
                 function = new FieldSortFunction();
                 break;
+            case FUNCTION_NAME_LISTADVANCED_TOPN:
+                function = new TopNFunction();
+                break;
             case FUNCTION_NAME_LISTADVANCED_FIELDEQUAL:
                 function = new FieldEqualFilterFunction();
                 break;
@@ -86,6 +91,9 @@ public class FunctionFactory implements FunctionNameConstants {
             case FUNCTION_NAME_ENTITY2LIST_CLASSIFIED_SUMMARY:
                 function = new ClassifiedSummaryFunction();
                 break;
+            case FUNCTION_NAME_ENTITY2LIST_SUBLIST:
+                function = new SubListFunction();
+                break;
             default:
                 String errorMsg = String.format("传入值错误：未找到名为 [%s] 的方法", functionName);
                 throw new WrongMatchException(errorMsg);
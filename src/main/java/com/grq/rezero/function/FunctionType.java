@@ -32,6 +32,8 @@ public enum FunctionType {
     LISTADVANCED_RELATIONINFO,
     // 字段排序器
     LISTADVANCED_FIELDSORT,
+    // 前 N 条数据
+    LISTADVANCED_TOPN,
     // 列表字段提取器
     LISTADVANCED_EXTRACTOR,
 
@@ -6,19 +6,19 @@ import com.googlecode.aviator.runtime.function.AbstractFunction;
 import com.googlecode.aviator.runtime.function.FunctionUtils;
 import com.googlecode.aviator.runtime.type.AviatorDecimal;
 import com.googlecode.aviator.runtime.type.AviatorObject;
+import com.grq.rezero.columnar.ColumnarOperators;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
 import com.grq.rezero.expression.ExpressionMatchUnit;
 import com.grq.rezero.expression.ExpressionParser;
+import com.grq.rezero.expression.FieldAccessor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
 
 public class ClassifiedSizeFunction extends AbstractFunction
         implements FunctionNameConstants, FunctionVariableConstants {
@@ -37,7 +37,9 @@ public class ClassifiedSizeFunction extends AbstractFunction
      *
      * @param env  包含 list(JSONArray), aviatorArgs(String)
      * @param arg1 list (JSONArray) - 输入 JSONArray，通常该值需要在之前进行分类；
-     * @param arg2 aviatorArgs (String) - 可用于 ExpressionParser#doHandleFieldUnit 解析
+     * @param arg2 aviatorArgs (String) - 可用于 ExpressionParser#doHandleFieldUnit 解析，
+     *             可追加 ":approx[:精度]" 使用近似计数，格式见 DistinctCountSpec；
+     *             近似计数的相对标准误差只由精度决定，记录在统计单元的执行记录中
      * @return
      * @see com.grq.rezero.expression.ExpressionParser#doHandleFieldUnit(JSONObject, ExpressionMatchUnit)
      */
@@ -68,20 +70,29 @@ public class ClassifiedSizeFunction extends AbstractFunction
                     ? 0 : list.size();
             return new AviatorDecimal(num);
         }
-        // 用于统计的集合
-        Set<String> summarySet = new HashSet<>();
+        DistinctCountSpec distinctCountSpec = DistinctCountSpec.compile(expression);
+        // 列式数据直接在字典编码上去重（精确计数）；近似计数不构建字典，逐行计数，内存与基数无关
+        if (!distinctCountSpec.isApproximate()) {
+            Integer columnarSize = ColumnarOperators.classifiedSize(list, distinctCountSpec.getField());
+            if (columnarSize != null) {
+                return new AviatorDecimal(columnarSize);
+            }
+        }
+        // 用于统计的去重计数器
+        DistinctCounter counter = distinctCountSpec.newCounter();
         if (CollectionUtils.isEmpty(list)) {
             num = CollectionUtils.isEmpty(list)
                     ? 0 : list.size();
         } else {
+            FieldAccessor accessor = FieldAccessor.compile(distinctCountSpec.getField());
             for (Object o : list) {
                 JSONObject e = (JSONObject) o;
-                String field = ExpressionParser.doHandleFieldUnit(e, ExpressionMatchUnit.buildFieldUnit(expression));
-                if (field != null) {
-                    summarySet.add(field);
-                }
+                counter.add(accessor.getString(e));
+            }
+            num = counter.count();
+            if (distinctCountSpec.isApproximate()) {
+                LOG.debug("classifiedSize 近似计数 [{}]：{}，相对标准误差 {}", expression, num, distinctCountSpec.getStandardError());
             }
-            num = summarySet.size();
         }
         return new AviatorDecimal(num);
     }
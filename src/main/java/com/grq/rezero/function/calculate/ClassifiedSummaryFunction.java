@@ -9,10 +9,6 @@ import com.googlecode.aviator.runtime.type.AviatorRuntimeJavaType;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
-import com.grq.rezero.exception.WrongMatchTypeException;
-import com.grq.rezero.expression.ExpressionInfo;
-import com.grq.rezero.expression.ExpressionMatchType;
-import com.grq.rezero.expression.ExpressionMatchUnit;
 import com.grq.rezero.expression.ExpressionParser;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -20,7 +16,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -66,11 +61,11 @@ public class ClassifiedSummaryFunction extends AbstractFunction
      *     1. 获取 Aviator 参数；
      *     2. 判断传入的 expression 信息，如果参数数量为空，则抛出异常；
      *     3. 提取表达式中所有的 #{...}#，与传入的待提取字段数量进行比较；比较结果失败，则抛出异常；
-     *     4. 修改传入的表达式，并给予修改后基础上填入 env 信息；
+     *     4. 编译执行计划（相同表达式只编译一次），修改传入的表达式并解析；
      *     5. 执行统计
      *          (1) 遍历所有分类标签，对标签下的分类结果 (JSONArray) 作统计的后续准备；
-     *          (2) 替换模板中的分类标签信息；
-     *          (3) 根据传入的 AviatorArgs 与 AviatorValues，进行统计；
+     *          (2) 根据传入的 AviatorArgs 与 AviatorValues 绑定 env，执行编译后的统计表达式；
+     *          (3) 填入分类标签信息；
      *
      *     注：
      *     1. 方法传入参数 args2 类型为 String[]，且内容如下：
@@ -138,73 +133,16 @@ public class ClassifiedSummaryFunction extends AbstractFunction
         }
 
         /**
-         * 4. 修改传入的表达式，并基于修改后基础上填入 env 信息；
-         */
-        String[] aviatorValues = Arrays.copyOfRange(expressions, 1, expressions.length);
-        String[] aviatorArgs = new String[aviatorValues.length];
-
-        // 正则表达式正向匹配
-        String aviatorArgRegex = "aviatorArgs(?=[^_])";
-        String baseString = "aviatorArgs";
-        for (int i = 0; i < aviatorValues.length; i++) {
-            String arg = baseString + "_" + i;
-            expressionModel = expressionModel.replaceFirst(aviatorArgRegex, arg);
-            aviatorArgs[i] = arg;
-        }
-
-        /**
+         * 4. 编译执行计划：修改传入的表达式中的参数名称，解析表达式并编译其中的 Aviator 表达式；
          * 5. 执行统计
          * (1) 遍历所有分类标签，对标签下的分类结果 (JSONArray) 作统计的后续准备；
-         * (2) 替换模板中的分类标签信息；
-         * (3) 根据传入的 AviatorArgs 与 AviatorValues，进行统计；
+         * (2) 在 env 中绑定分类列表与 AviatorValues，执行编译后的表达式，并填入分类标签信息；
          */
+        String[] aviatorValues = Arrays.copyOfRange(expressions, 1, expressions.length);
         JSONArray result = new JSONArray();
         if (!MapUtils.isEmpty(entity)) {
-            // entity 的 keySet 为分类标签，遍历标签对应的分类结果 (JSONArray)，根据表达式进行计算；
-            for (String key : entity.keySet()) {
-                JSONArray classifiedList;
-                try {
-                    classifiedList = entity.getJSONArray(key);
-                } catch (ClassCastException e) {
-                    Object o = entity.get(key);
-                    String className = o.getClass().getName();
-                    String errorMsg = String.format("格式转换错误：分类结果应为 JSONArray 类型，当前类型为 [%s]，无法转换", className);
-                    LOG.error(errorMsg);
-                    throw new DynamicSummaryException(errorMsg, e);
-                }
-
-                // 表达式输出结果
-                String expressionOutput = expressionModel;
-                // 如果表达式中需要 Key 值内容（即表达式中包含 SUMCLASSIFIED_KEY_MOCK 字段），则替换 Key 值
-                expressionOutput = expressionOutput.replaceAll(SUMCLASSIFIED_KEY_MOCK, key);
-
-                /**
-                 * 汇总方法进行处理
-                 */
-                // 表达式解析
-                ExpressionInfo expressionInfo = ExpressionParser.parserExpression(expressionOutput);
-                List<ExpressionMatchUnit> matchUnits = expressionInfo.getMatchUnits();
-
-                // 获取表达式信息，作为处理结果的基础字符串；
-                String handleResult = expressionOutput;
-                // 遍历所有匹配单元信息，从 entity 中获取具体值，将表达式内容替换
-                for (int i = matchUnits.size() - 1; i >= 0; i--) {
-                    ExpressionMatchUnit matchUnit = matchUnits.get(i);
-                    ExpressionMatchType type = matchUnit.getMatchType();
-                    // 根据单元的不同类型分别进行处理，将处理结果逐步替换表达式内容
-                    String expResult = null;
-                    if (type.equals(ExpressionMatchType.FUNCTION)) {
-                        expResult = ExpressionParser.doSummaryFunctionUnit(classifiedList, matchUnit, aviatorArgs, aviatorValues);
-                    } else {
-                        String errorMsg = "匹配单元类型错误：必须为 FUNCTION 类型";
-                        LOG.error(errorMsg);
-                        throw new WrongMatchTypeException(errorMsg);
-                    }
-                    // 结果替换
-                    handleResult = handleResult.replace(matchUnit.getContent(), expResult);
-                }
-                result.add(handleResult);
-            }
+            ClassifiedSummaryPlan plan = ClassifiedSummaryPlan.compile(expressionModel, aviatorValues.length);
+            result = plan.execute(entity, aviatorValues);
         }
 
         return new AviatorRuntimeJavaType(result);
@@ -0,0 +1,614 @@
+package com.grq.rezero.function.calculate;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.googlecode.aviator.AviatorEvaluator;
+import com.googlecode.aviator.Expression;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.constants.FunctionVariableConstants;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.WrongMatchTypeException;
+import com.grq.rezero.expression.AviatorExpressionCache;
+import com.grq.rezero.expression.ExpressionInfo;
+import com.grq.rezero.expression.ExpressionMatchType;
+import com.grq.rezero.expression.ExpressionMatchUnit;
+import com.grq.rezero.expression.ExpressionParser;
+import com.grq.rezero.metrics.SerialExecution;
+import org.apache.commons.collections.MapUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ *     分类统计的执行计划，由 ClassifiedSummaryFunction 使用；
+ *
+ *     原有的执行方式对每个分类都要替换 Key 值、重新解析表达式、并以未编译的方式执行 Aviator 表达式；
+ *     执行计划在编译时完成以下工作，之后每个分类只需要绑定 env 并执行：
+ *     1. 参数重命名：将表达式中的 aviatorArgs 依次重命名为 aviatorArgs_0, aviatorArgs_1, ...，只扫描一次；
+ *     2. 表达式解析：按位置拆分为常量段、Key 段 (SUMCLASSIFIED_KEY_MOCK) 与方法段 (#{...}#)；
+ *     3. 方法段中的 Aviator 表达式只编译一次；方法段中作为字符串常量的 Key 值 ('_%KEY%_') 改写为变量 KEY_VARIABLE，
+ *        执行时绑定到 env，不同分类共用同一个编译结果；无法改写为变量时（Key 值不是完整的字符串常量，或 Key 值包含引号），
+ *        替换 Key 值后编译，编译结果放在单独的有界缓存中，不占用共享的 AviatorExpressionCache；
+ *
+ *     执行时每个分类创建一个 env，包括分类列表与 Aviator 参数，该分类的所有方法段共用；
+ *     如果有多个方法段是对分类列表的简单聚合 (sumByField / classifiedSize / join)，则使用融合聚合算子，只遍历一次分类列表；
+ *     分类数量达到阈值，且开启并行执行时，各分类并行计算，输出结果仍保持分类顺序；
+ *
+ *     执行计划以表达式与参数个数为 Key 缓存，对象不可变，可在多线程间共享；
+ * </pre>
+ *
+ * @see ClassifiedSummaryFunction
+ */
+public class ClassifiedSummaryPlan {
+    private static Logger LOG = LoggerFactory.getLogger(ClassifiedSummaryPlan.class);
+
+    /**
+     * 执行计划编译缓存
+     */
+    private static final LruCache<String, ClassifiedSummaryPlan> PLAN_CACHE = new LruCache<>("classifiedSummaryPlan");
+
+    /**
+     * 方法段中 Key 值无法绑定为变量时，替换 Key 值后的编译缓存
+     */
+    private static final LruCache<String, Expression> KEY_EXPRESSION_CACHE = new LruCache<>("classifiedKeyExpression", 256);
+
+    /**
+     * 方法段中 Key 值绑定的变量名称
+     */
+    public static final String KEY_VARIABLE = "_classifiedKey";
+
+    /**
+     * Aviator 参数名称，以及需要重命名的参数名称正则表达式（后面不能紧跟 '_'，即未被重命名）
+     */
+    public static final String AVIATOR_ARGS_BASE = "aviatorArgs";
+    public static final Pattern AVIATOR_ARGS_PATTERN = Pattern.compile(AVIATOR_ARGS_BASE + "(?=[^_])");
+
+    /**
+     * 是否并行计算各分类，默认关闭
+     */
+    private static volatile boolean parallelGroups = false;
+    /**
+     * 并行计算的分类数量阈值，分类数量小于阈值时串行计算
+     */
+    private static volatile int parallelThreshold = 64;
+    /**
+     * 是否使用融合聚合算子，默认开启
+     */
+    private static volatile boolean fusedAggregation = true;
+
+    /**
+     * 参数重命名之后的表达式
+     */
+    private final String expressionModel;
+    /**
+     * 重命名后的参数名称
+     */
+    private final String[] aviatorArgs;
+    /**
+     * 按位置排列的计划段
+     */
+    private final Segment[] segments;
+    /**
+     * 所有可以融合的聚合方法段组成的聚合算子
+     */
+    private final FusedAggregation aggregation;
+    /**
+     * 融合聚合算子，可以融合的聚合方法段不少于两个时与 aggregation 相同，否则为 null，表示不使用
+     */
+    private final FusedAggregation fused;
+    /**
+     * 是否所有方法段都是可以融合的聚合方法
+     */
+    private final boolean allAggregates;
+
+    private ClassifiedSummaryPlan(String expressionModel, String[] aviatorArgs, Segment[] segments,
+                                  FusedAggregation aggregation, boolean allAggregates) {
+        this.expressionModel = expressionModel;
+        this.aviatorArgs = aviatorArgs;
+        this.segments = segments;
+        this.aggregation = aggregation;
+        this.fused = (aggregation.size() >= 2) ? aggregation : null;
+        this.allAggregates = allAggregates;
+    }
+
+    /**
+     * 编译执行计划，相同表达式与参数个数只编译一次
+     *
+     * @param expression 表达式
+     * @param argCount   Aviator 参数个数
+     * @return 执行计划
+     * @throws WrongMatchTypeException 表达式中存在方法段之外的字段单元时抛出异常
+     */
+    public static ClassifiedSummaryPlan compile(String expression, int argCount) throws WrongMatchTypeException {
+        String model = (expression == null) ? "" : expression;
+        return PLAN_CACHE.get(argCount + ":" + model, k -> doCompile(model, argCount));
+    }
+
+    /**
+     * <pre>
+     *     编译执行计划：
+     *     1. 参数重命名；
+     *     2. 解析表达式，方法单元之外不能存在字段单元；
+     *     3. 方法单元之间的内容按 SUMCLASSIFIED_KEY_MOCK 拆分为常量段与 Key 段；
+     *     4. 可以融合的聚合方法段组成聚合算子，不少于两个时在执行时使用融合计算；
+     * </pre>
+     *
+     * @param expression 表达式
+     * @param argCount   Aviator 参数个数
+     * @return 执行计划
+     */
+    private static ClassifiedSummaryPlan doCompile(String expression, int argCount) {
+        String[] aviatorArgs = new String[argCount];
+        String expressionModel = renameAviatorArgs(expression, aviatorArgs);
+
+        ExpressionInfo info = ExpressionParser.parserExpression(expressionModel);
+        List<ExpressionMatchUnit> units = new ArrayList<>(info.getMatchUnits());
+        units.sort(Comparator.comparing(ExpressionMatchUnit::getBegin));
+
+        List<Segment> segments = new ArrayList<>();
+        List<FunctionSegment> aggregateSegments = new ArrayList<>();
+        List<FusedAggregation.Aggregate> aggregates = new ArrayList<>();
+        int functionCount = 0;
+        int cursor = 0;
+        for (ExpressionMatchUnit unit : units) {
+            if (!ExpressionMatchType.FUNCTION.equals(unit.getMatchType())) {
+                String errorMsg = "匹配单元类型错误：必须为 FUNCTION 类型";
+                LOG.error(errorMsg);
+                throw new WrongMatchTypeException(errorMsg);
+            }
+            if (unit.getBegin() < cursor) {
+                continue;
+            }
+            addLiteralSegments(segments, expressionModel.substring(cursor, unit.getBegin()));
+            FunctionSegment functionSegment = new FunctionSegment(unit.matchResult());
+            segments.add(functionSegment);
+            functionCount++;
+            FusedAggregation.Aggregate aggregate = functionSegment.containsKey
+                    ? null : FusedAggregation.parseAggregate(functionSegment.body, argCount);
+            if (aggregate != null) {
+                aggregateSegments.add(functionSegment);
+                aggregates.add(aggregate);
+            }
+            cursor = unit.getEnd();
+        }
+        addLiteralSegments(segments, expressionModel.substring(cursor));
+
+        for (int i = 0; i < aggregateSegments.size(); i++) {
+            aggregateSegments.get(i).fusedIndex = i;
+        }
+        boolean allAggregates = aggregateSegments.size() == functionCount;
+        return new ClassifiedSummaryPlan(expressionModel, aviatorArgs, segments.toArray(new Segment[0]),
+                new FusedAggregation(aggregates), allAggregates);
+    }
+
+    /**
+     * <pre>
+     *     将表达式中未重命名的 aviatorArgs 依次重命名为 aviatorArgs_i，i 为参数下标；
+     *     与依次执行 replaceFirst("aviatorArgs(?=[^_])", "aviatorArgs_i") 的结果相同，但只扫描一次；
+     * </pre>
+     *
+     * @param expression  表达式
+     * @param aviatorArgs 输出重命名后的参数名称，长度为参数个数
+     * @return 重命名后的表达式
+     */
+    public static String renameAviatorArgs(String expression, String[] aviatorArgs) {
+        for (int i = 0; i < aviatorArgs.length; i++) {
+            aviatorArgs[i] = AVIATOR_ARGS_BASE + "_" + i;
+        }
+        Matcher matcher = AVIATOR_ARGS_PATTERN.matcher(expression);
+        StringBuilder builder = new StringBuilder(expression.length() + 2 * aviatorArgs.length);
+        int cursor = 0;
+        int index = 0;
+        while (index < aviatorArgs.length && matcher.find()) {
+            builder.append(expression, cursor, matcher.start()).append(aviatorArgs[index++]);
+            cursor = matcher.end();
+        }
+        builder.append(expression, cursor, expression.length());
+        return builder.toString();
+    }
+
+    /**
+     * 将常量内容按 SUMCLASSIFIED_KEY_MOCK 拆分为常量段与 Key 段
+     */
+    private static void addLiteralSegments(List<Segment> segments, String text) {
+        String mock = ClassifiedSummaryFunction.SUMCLASSIFIED_KEY_MOCK;
+        int cursor = 0;
+        int index;
+        while ((index = text.indexOf(mock, cursor)) >= 0) {
+            if (index > cursor) {
+                segments.add(new LiteralSegment(text.substring(cursor, index)));
+            }
+            segments.add(KeySegment.INSTANCE);
+            cursor = index + mock.length();
+        }
+        if (cursor < text.length()) {
+            segments.add(new LiteralSegment(text.substring(cursor)));
+        }
+    }
+
+    /**
+     * <pre>
+     *     对所有分类执行统计：
+     *     1. 依次获取各分类的列表，分类结果不为 JSONArray 时抛出异常；
+     *     2. 对各分类渲染表达式，分类数量达到阈值且开启并行时并行计算；
+     *     3. 按分类顺序输出结果；
+     * </pre>
+     *
+     * @param entity        已分类的列表
+     * @param aviatorValues Aviator 参数值
+     * @return 各分类的统计结果
+     */
+    public JSONArray execute(JSONObject entity, String[] aviatorValues) {
+        if (MapUtils.isEmpty(entity)) {
+            return new JSONArray();
+        }
+        int size = entity.size();
+        String[] keys = new String[size];
+        JSONArray[] lists = new JSONArray[size];
+        int i = 0;
+        for (String key : entity.keySet()) {
+            keys[i] = key;
+            lists[i] = getClassifiedList(entity, key);
+            i++;
+        }
+
+        String[] outputs = new String[size];
+        if (parallelGroups && size >= parallelThreshold && !SerialExecution.isActive()) {
+            IntStream.range(0, size).parallel()
+                    .forEach(k -> outputs[k] = renderGroup(keys[k], lists[k], aviatorValues));
+        } else {
+            for (int k = 0; k < size; k++) {
+                outputs[k] = renderGroup(keys[k], lists[k], aviatorValues);
+            }
+        }
+        JSONArray result = new JSONArray(size);
+        for (String output : outputs) {
+            result.add(output);
+        }
+        return result;
+    }
+
+    private JSONArray getClassifiedList(JSONObject entity, String key) {
+        try {
+            return entity.getJSONArray(key);
+        } catch (ClassCastException e) {
+            Object o = entity.get(key);
+            String className = o.getClass().getName();
+            String errorMsg = String.format("格式转换错误：分类结果应为 JSONArray 类型，当前类型为 [%s]，无法转换", className);
+            LOG.error(errorMsg);
+            throw new DynamicSummaryException(errorMsg, e);
+        }
+    }
+
+    /**
+     * 对单个分类渲染表达式
+     *
+     * @param key           分类标签
+     * @param classifiedList 分类列表
+     * @param aviatorValues Aviator 参数值
+     * @return 渲染结果
+     */
+    public String renderGroup(String key, JSONArray classifiedList, String[] aviatorValues) {
+        if (!isPlainKey(key)) {
+            return renderGroupBySubstitution(key, classifiedList, aviatorValues);
+        }
+        GroupContext context = new GroupContext(key, classifiedList, aviatorValues);
+        if (fused != null && fusedAggregation) {
+            // 融合计算失败（数据不满足条件）时，各方法段逐个执行，抛出与原方法相同的异常
+            context.fusedResults = fused.compute(classifiedList, aviatorValues);
+        }
+        StringBuilder builder = new StringBuilder(expressionModel.length() + 16 * segments.length);
+        for (Segment segment : segments) {
+            segment.appendTo(context, builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * <pre>
+     *     根据聚合结果渲染单个分类，用于流式统计：
+     *     分类列表不保留在内存中，各聚合方法段的结果由调用方通过 getAggregation() 逐条累加得到；
+     *     要求所有方法段都是可以融合的聚合方法 (isStreamable)；
+     * </pre>
+     *
+     * @param key     分类标签
+     * @param results 聚合算子的计算结果
+     * @return 渲染结果
+     * @throws DynamicSummaryException 执行计划不支持按聚合结果渲染时抛出异常
+     */
+    public String renderAggregated(String key, String[] results) throws DynamicSummaryException {
+        if (!allAggregates) {
+            throw new DynamicSummaryException(String.format("表达式 [%s] 中存在聚合方法之外的方法段，不能按聚合结果渲染", expressionModel));
+        }
+        if (!isPlainKey(key)) {
+            return renderAggregatedBySubstitution(key, results);
+        }
+        GroupContext context = new GroupContext(key, null, null);
+        context.fusedResults = results;
+        StringBuilder builder = new StringBuilder(expressionModel.length() + 16 * segments.length);
+        for (Segment segment : segments) {
+            segment.appendTo(context, builder);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Key 值为空，或包含表达式括号、正则替换的特殊字符时，替换后可能改变表达式结构，使用原有的文本替换方式执行
+     */
+    private static boolean isPlainKey(String key) {
+        if (key == null || key.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '{' || c == '}' || c == '#' || c == '$' || c == '\\') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 原有的执行方式：替换 Key 值后重新解析表达式，逐个方法单元执行并替换
+     */
+    private String renderGroupBySubstitution(String key, JSONArray classifiedList, String[] aviatorValues) {
+        String expressionOutput = expressionModel.replaceAll(ClassifiedSummaryFunction.SUMCLASSIFIED_KEY_MOCK, key);
+        List<ExpressionMatchUnit> matchUnits = ExpressionParser.parserExpression(expressionOutput).getMatchUnits();
+        String handleResult = expressionOutput;
+        for (int i = matchUnits.size() - 1; i >= 0; i--) {
+            ExpressionMatchUnit matchUnit = matchUnits.get(i);
+            if (!ExpressionMatchType.FUNCTION.equals(matchUnit.getMatchType())) {
+                String errorMsg = "匹配单元类型错误：必须为 FUNCTION 类型";
+                LOG.error(errorMsg);
+                throw new WrongMatchTypeException(errorMsg);
+            }
+            String expResult = ExpressionParser.doSummaryFunctionUnit(classifiedList, matchUnit, aviatorArgs, aviatorValues);
+            handleResult = handleResult.replace(matchUnit.getContent(), expResult);
+        }
+        return handleResult;
+    }
+
+    /**
+     * <pre>
+     *     按聚合结果渲染 Key 值为空或包含特殊字符的分类，与 renderGroupBySubstitution 的输出相同：
+     *     替换 Key 值后重新解析表达式，各方法单元使用内容相同的聚合方法段的结果替换；
+     *     Key 值使替换后的表达式出现新的方法单元时，没有对应的聚合结果，抛出异常；
+     * </pre>
+     */
+    private String renderAggregatedBySubstitution(String key, String[] results) {
+        Map<String, String> aggregatedResults = new HashMap<>();
+        for (Segment segment : segments) {
+            if (segment instanceof FunctionSegment) {
+                FunctionSegment functionSegment = (FunctionSegment) segment;
+                aggregatedResults.put(functionSegment.body, results[functionSegment.fusedIndex]);
+            }
+        }
+        String expressionOutput = expressionModel.replaceAll(ClassifiedSummaryFunction.SUMCLASSIFIED_KEY_MOCK, key);
+        List<ExpressionMatchUnit> matchUnits = ExpressionParser.parserExpression(expressionOutput).getMatchUnits();
+        String handleResult = expressionOutput;
+        for (int i = matchUnits.size() - 1; i >= 0; i--) {
+            ExpressionMatchUnit matchUnit = matchUnits.get(i);
+            String expResult = ExpressionMatchType.FUNCTION.equals(matchUnit.getMatchType())
+                    ? aggregatedResults.get(matchUnit.matchResult()) : null;
+            if (expResult == null) {
+                throw new DynamicSummaryException(String.format("分类 Key 值 [%s] 替换后表达式结构改变，不能按聚合结果渲染", key));
+            }
+            handleResult = handleResult.replace(matchUnit.getContent(), expResult);
+        }
+        return handleResult;
+    }
+
+    public String getExpressionModel() {
+        return expressionModel;
+    }
+
+    public static boolean isParallelGroups() {
+        return parallelGroups;
+    }
+
+    public static void setParallelGroups(boolean parallelGroups) {
+        ClassifiedSummaryPlan.parallelGroups = parallelGroups;
+    }
+
+    public static boolean isFusedAggregation() {
+        return fusedAggregation;
+    }
+
+    public static void setFusedAggregation(boolean fusedAggregation) {
+        ClassifiedSummaryPlan.fusedAggregation = fusedAggregation;
+    }
+
+    /**
+     * 是否使用了融合聚合算子
+     *
+     * @return
+     */
+    public boolean isFused() {
+        return fused != null;
+    }
+
+    /**
+     * 是否所有方法段都是可以融合的聚合方法，此时可以逐条累加数据后按聚合结果渲染
+     *
+     * @return
+     * @see #renderAggregated(String, String[])
+     */
+    public boolean isStreamable() {
+        return allAggregates;
+    }
+
+    /**
+     * 获取所有可以融合的聚合方法段组成的聚合算子
+     *
+     * @return
+     */
+    public FusedAggregation getAggregation() {
+        return aggregation;
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int parallelThreshold) {
+        ClassifiedSummaryPlan.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * 获取执行计划编译缓存，用于观察缓存情况
+     *
+     * @return
+     */
+    public static LruCache<String, ClassifiedSummaryPlan> getPlanCache() {
+        return PLAN_CACHE;
+    }
+
+    /**
+     * 单个分类的执行上下文
+     */
+    private class GroupContext {
+        private final String key;
+        private final JSONArray classifiedList;
+        private final String[] aviatorValues;
+        /**
+         * 融合聚合算子的计算结果
+         */
+        private String[] fusedResults;
+        /**
+         * Aviator 参数，首次使用时创建
+         */
+        private Map<String, Object> env;
+
+        GroupContext(String key, JSONArray classifiedList, String[] aviatorValues) {
+            this.key = key;
+            this.classifiedList = classifiedList;
+            this.aviatorValues = aviatorValues;
+        }
+
+        Map<String, Object> getEnv() {
+            if (env == null) {
+                env = new HashMap<>(4 + aviatorArgs.length * 2);
+                env.put(FunctionVariableConstants.FUNCTION_VAR_COMMON_LIST, classifiedList);
+                env.put(KEY_VARIABLE, key);
+                for (int i = 0; i < aviatorArgs.length; i++) {
+                    env.put(aviatorArgs[i], aviatorValues[i]);
+                }
+            }
+            return env;
+        }
+    }
+
+    /**
+     * 计划段
+     */
+    private abstract static class Segment {
+        abstract void appendTo(GroupContext context, StringBuilder builder);
+    }
+
+    /**
+     * 常量段
+     */
+    private static class LiteralSegment extends Segment {
+        private final String text;
+
+        LiteralSegment(String text) {
+            this.text = text;
+        }
+
+        @Override
+        void appendTo(GroupContext context, StringBuilder builder) {
+            builder.append(text);
+        }
+    }
+
+    /**
+     * Key 段：SUMCLASSIFIED_KEY_MOCK
+     */
+    private static class KeySegment extends Segment {
+        private static final KeySegment INSTANCE = new KeySegment();
+
+        @Override
+        void appendTo(GroupContext context, StringBuilder builder) {
+            builder.append(context.key);
+        }
+    }
+
+    /**
+     * 方法段：#{...}#
+     */
+    private static class FunctionSegment extends Segment {
+        /**
+         * 方法段中的 Aviator 表达式
+         */
+        private final String body;
+        /**
+         * 表达式中是否包含 Key 值
+         */
+        private final boolean containsKey;
+        /**
+         * Key 值改写为变量 KEY_VARIABLE 后的表达式，Key 值不是完整的字符串常量时为 null
+         */
+        private final String boundBody;
+        /**
+         * 在融合聚合算子中的下标，-1 表示不参与融合
+         */
+        private int fusedIndex = -1;
+        /**
+         * 编译结果，首次执行时编译；包含 Key 值时为 boundBody 的编译结果
+         */
+        private volatile Expression compiled;
+
+        FunctionSegment(String body) {
+            this.body = body;
+            this.containsKey = body.contains(ClassifiedSummaryFunction.SUMCLASSIFIED_KEY_MOCK);
+            this.boundBody = containsKey ? bindKey(body) : null;
+        }
+
+        /**
+         * 将表达式中作为完整字符串常量的 Key 值 ('_%KEY%_' 或 "_%KEY%_") 改写为变量 KEY_VARIABLE
+         *
+         * @return 改写后的表达式，仍存在其他形式的 Key 值时返回 null
+         */
+        private static String bindKey(String body) {
+            String mock = ClassifiedSummaryFunction.SUMCLASSIFIED_KEY_MOCK;
+            String bound = body.replace('\'' + mock + '\'', KEY_VARIABLE).replace('"' + mock + '"', KEY_VARIABLE);
+            return bound.contains(mock) ? null : bound;
+        }
+
+        /**
+         * Key 值包含引号或转义字符时，替换到字符串常量中的结果与绑定变量不同，不能绑定
+         */
+        private static boolean isBindableKey(String key) {
+            return key.indexOf('\'') < 0 && key.indexOf('"') < 0 && key.indexOf('\\') < 0;
+        }
+
+        @Override
+        void appendTo(GroupContext context, StringBuilder builder) {
+            if (fusedIndex >= 0 && context.fusedResults != null) {
+                builder.append(context.fusedResults[fusedIndex]);
+                return;
+            }
+            Expression expression;
+            if (containsKey && (boundBody == null || !isBindableKey(context.key))) {
+                String keyBody = body.replace(ClassifiedSummaryFunction.SUMCLASSIFIED_KEY_MOCK, context.key);
+                expression = KEY_EXPRESSION_CACHE.get(keyBody, AviatorEvaluator::compile);
+            } else {
+                expression = compiled;
+                if (expression == null) {
+                    expression = AviatorExpressionCache.getInstance().compile(containsKey ? boundBody : body);
+                    compiled = expression;
+                }
+            }
+            builder.append(expression.execute(context.getEnv()).toString());
+        }
+    }
+}
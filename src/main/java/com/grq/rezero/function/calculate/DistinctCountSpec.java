@@ -0,0 +1,154 @@
+package com.grq.rezero.function.calculate;
+
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.DynamicSummaryException;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ *     去重计数规则：由 classifiedSize 的字段表达式编译得到；
+ *
+ *     表达式格式：字段[:approx[:精度]]
+ *     1. 字段为字段表达式，支持关联信息字段（例如 student@college.location）；
+ *     2. 不带 :approx 时精确计数，结果与原 classifiedSize 相同；
+ *     3. 带 :approx 时使用 HyperLogLog 近似计数，精度范围 [4, 18]，省略时为 defaultPrecision，
+ *        相对标准误差约为 1.04 / √(2^精度)，只由精度决定；执行记录 (SummaryExecution.UnitExecution#getStandardError)
+ *        中记录统计单元内近似计数的最大相对标准误差，也可以通过 compile(表达式).getStandardError() 获取；
+ *
+ *     列式数据的精确计数在字典编码上去重，近似计数不构建字典，逐行计数；
+ *     物化统计需要撤回数据，HyperLogLog 不支持删除，始终精确计数，近似计数的表达式在物化统计中得到精确结果；
+ * </pre>
+ *
+ * @see ClassifiedSizeFunction
+ * @see HyperLogLog
+ * @see StringHashSet
+ */
+public class DistinctCountSpec {
+    /**
+     * 近似计数选项
+     */
+    public static final String APPROXIMATE_OPTION = "approx";
+
+    private static final Pattern APPROXIMATE_PATTERN = Pattern.compile("^(.+?):" + APPROXIMATE_OPTION + "(?::(\\d+))?$");
+
+    /**
+     * 去重计数规则编译缓存
+     */
+    private static final LruCache<String, DistinctCountSpec> SPEC_CACHE = new LruCache<>("distinctCountSpec");
+
+    /**
+     * 近似计数的默认精度，相对标准误差约为 0.81%
+     */
+    private static volatile int defaultPrecision = 14;
+
+    private final String field;
+    private final boolean approximate;
+    private final int precision;
+
+    private DistinctCountSpec(String field, boolean approximate, int precision) {
+        this.field = field;
+        this.approximate = approximate;
+        this.precision = precision;
+    }
+
+    /**
+     * 编译字段表达式，相同表达式只编译一次
+     *
+     * @param expression 字段表达式，不能为空
+     * @return 去重计数规则
+     * @throws DynamicSummaryException 精度超出范围时抛出异常
+     */
+    public static DistinctCountSpec compile(String expression) throws DynamicSummaryException {
+        return SPEC_CACHE.get(expression, DistinctCountSpec::doCompile);
+    }
+
+    private static DistinctCountSpec doCompile(String expression) {
+        Matcher matcher = APPROXIMATE_PATTERN.matcher(expression);
+        if (!matcher.matches()) {
+            return new DistinctCountSpec(expression, false, 0);
+        }
+        int precision = defaultPrecision;
+        if (matcher.group(2) != null) {
+            try {
+                precision = Integer.parseInt(matcher.group(2));
+            } catch (NumberFormatException e) {
+                // 超出 int 范围的精度同样按超出范围处理
+                precision = -1;
+            }
+            if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION) {
+                throw new DynamicSummaryException(String.format("classifiedSize 表达式错误：[%s] 中的精度超出范围 [%d, %d]",
+                        expression, HyperLogLog.MIN_PRECISION, HyperLogLog.MAX_PRECISION));
+            }
+        }
+        return new DistinctCountSpec(matcher.group(1), true, precision);
+    }
+
+    /**
+     * 创建去重计数器
+     */
+    public DistinctCounter newCounter() {
+        return approximate ? new HyperLogLog(precision) : new StringHashSet();
+    }
+
+    /**
+     * 字段表达式（不包括计数选项）
+     */
+    public String getField() {
+        return field;
+    }
+
+    public boolean isApproximate() {
+        return approximate;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * 相对标准误差，精确计数时为 0
+     */
+    public double getStandardError() {
+        return approximate ? HyperLogLog.standardError(precision) : 0;
+    }
+
+    /**
+     * 多个字段表达式中近似计数的最大相对标准误差，用于在执行记录中报告误差
+     *
+     * @param expressions 字段表达式，可以包含非 classifiedSize 的参数，不匹配近似计数格式的参数忽略
+     * @return 最大相对标准误差，没有近似计数时为 0
+     */
+    public static double maxStandardError(String... expressions) {
+        double standardError = 0;
+        if (expressions == null) {
+            return standardError;
+        }
+        for (String expression : expressions) {
+            if (expression != null && APPROXIMATE_PATTERN.matcher(expression).matches()) {
+                standardError = Math.max(standardError, compile(expression).getStandardError());
+            }
+        }
+        return standardError;
+    }
+
+    public static int getDefaultPrecision() {
+        return defaultPrecision;
+    }
+
+    /**
+     * 修改近似计数的默认精度，并清空编译缓存，使已编译的省略精度的表达式使用新的默认精度
+     *
+     * @param defaultPrecision 默认精度，范围 [4, 18]
+     * @throws IllegalArgumentException 精度超出范围时抛出异常
+     */
+    public static void setDefaultPrecision(int defaultPrecision) {
+        if (defaultPrecision < HyperLogLog.MIN_PRECISION || defaultPrecision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalArgumentException(String.format("近似计数默认精度 [%d] 超出范围 [%d, %d]",
+                    defaultPrecision, HyperLogLog.MIN_PRECISION, HyperLogLog.MAX_PRECISION));
+        }
+        DistinctCountSpec.defaultPrecision = defaultPrecision;
+        SPEC_CACHE.clear();
+    }
+}
@@ -0,0 +1,52 @@
+package com.grq.rezero.function.calculate;
+
+/**
+ * <pre>
+ *     去重计数器：classifiedSize 统计字段值的去重数量；
+ *
+ *     1. StringHashSet：精确计数，只保存字段值的 64 位哈希；
+ *     2. HyperLogLog：近似计数，内存固定，与数据量无关；
+ *     值为 null 时不计数；计数器只在单个线程中使用；
+ * </pre>
+ *
+ * @see DistinctCountSpec#newCounter()
+ */
+public interface DistinctCounter {
+    /**
+     * 加入一个字段值
+     *
+     * @param value 字段值，为 null 时忽略
+     */
+    void add(String value);
+
+    /**
+     * 去重数量（近似计数时为估计值）
+     */
+    int count();
+
+    /**
+     * 相对标准误差，精确计数时为 0
+     */
+    double getStandardError();
+
+    /**
+     * 计算字符串的 64 位哈希：FNV-1a 逐字符累加后再做一次 MurmurHash3 的混合，使各二进制位分布均匀
+     *
+     * @param value 字符串
+     * @return 64 位哈希
+     */
+    static long hash64(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= value.length();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,339 @@
+package com.grq.rezero.function.calculate;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.googlecode.aviator.AviatorEvaluator;
+import com.googlecode.aviator.runtime.type.AviatorFunction;
+import com.grq.rezero.columnar.ColumnarJSONArray;
+import com.grq.rezero.columnar.ColumnarOperators;
+import com.grq.rezero.constants.FunctionNameConstants;
+import com.grq.rezero.constants.FunctionVariableConstants;
+import com.grq.rezero.expression.FieldAccessor;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ *     融合聚合算子：对同一个列表的多个聚合方法只遍历一次；
+ *
+ *     支持的聚合方法（与对应方法的结果完全相同）：
+ *     1. sumByField(list, aviatorArgs_i)：字段累加，结果为 Double；
+ *     2. classifiedSize(list, aviatorArgs_i)：字段去重计数；
+ *     3. join(list, aviatorArgs_i)：字符串连接；
+ *     方法单元的表达式必须恰好为上述形式，且 AviatorEvaluator 中注册的方法为对应的实现类，否则不参与融合；
+ *
+ *     计算过程中遇到原方法会抛出异常的数据时（例如字段值为空、不是数值类型等），返回 null，
+ *     由调用方回退到逐个方法执行，保证抛出的异常与原方法相同；
+ *
+ *     输入为列式 JSONArray 且不包含 join 时，直接在数据批的列上计算；
+ *
+ *     除了一次性计算整个列表 (compute) 之外，也可以通过聚合状态 (State) 逐条累加数据，用于流式统计；
+ * </pre>
+ *
+ * @see SumByFieldFunction
+ * @see ClassifiedSizeFunction
+ * @see JoinFunction
+ * @see ClassifiedSummaryPlan
+ */
+public class FusedAggregation implements FunctionNameConstants, FunctionVariableConstants {
+    /**
+     * 聚合方法表达式：方法名(list, aviatorArgs_i)
+     */
+    public static final Pattern AGGREGATE_PATTERN = Pattern.compile(
+            "^\\s*(\\w+)\\s*\\(\\s*" + FUNCTION_VAR_COMMON_LIST + "\\s*,\\s*"
+                    + ClassifiedSummaryPlan.AVIATOR_ARGS_BASE + "_(\\d+)\\s*\\)\\s*$");
+
+    /**
+     * 聚合方法类型
+     */
+    public enum AggregateType {
+        SUM, DISTINCT_SIZE, JOIN
+    }
+
+    /**
+     * 参与融合的聚合方法
+     */
+    private final Aggregate[] aggregates;
+
+    /**
+     * 是否包含 join，包含时不使用列式计算
+     */
+    private final boolean hasJoin;
+
+    public FusedAggregation(List<Aggregate> aggregates) {
+        this.aggregates = aggregates.toArray(new Aggregate[0]);
+        boolean join = false;
+        for (Aggregate aggregate : this.aggregates) {
+            join |= aggregate.type == AggregateType.JOIN;
+        }
+        this.hasJoin = join;
+    }
+
+    /**
+     * 解析方法单元的表达式，判断是否为可以融合的聚合方法
+     *
+     * @param body     方法单元的 Aviator 表达式（不包括 #{ }# 括号）
+     * @param argCount Aviator 参数个数
+     * @return 聚合方法，不能融合时返回 null
+     */
+    public static Aggregate parseAggregate(String body, int argCount) {
+        Matcher matcher = AGGREGATE_PATTERN.matcher(body);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String name = matcher.group(1);
+        int argIndex;
+        try {
+            argIndex = Integer.parseInt(matcher.group(2));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (argIndex >= argCount) {
+            return null;
+        }
+        AviatorFunction function = AviatorEvaluator.containsFunction(name) ? AviatorEvaluator.getFunction(name) : null;
+        if (FUNCTION_NAME_LIST2STRING_SUMMARYBYFIELD.equals(name) && function instanceof SumByFieldFunction) {
+            return new Aggregate(AggregateType.SUM, name, argIndex);
+        }
+        if (FUNCTION_NAME_LIST2STRING_CLASSIFIED_SIZE.equals(name) && function instanceof ClassifiedSizeFunction) {
+            return new Aggregate(AggregateType.DISTINCT_SIZE, name, argIndex);
+        }
+        if (FUNCTION_NAME_LIST2STRING_JOIN.equals(name) && function instanceof JoinFunction) {
+            return new Aggregate(AggregateType.JOIN, name, argIndex);
+        }
+        return null;
+    }
+
+    /**
+     * 遍历一次列表，计算所有聚合方法的结果
+     *
+     * @param list          数据列表
+     * @param aviatorValues Aviator 参数值
+     * @return 各聚合方法的结果，与构建时的顺序相同；遇到原方法会抛出异常的数据时返回 null
+     */
+    public String[] compute(JSONArray list, String[] aviatorValues) {
+        if (list instanceof ColumnarJSONArray && !hasJoin) {
+            String[] results = computeColumnar(list, aviatorValues);
+            if (results != null) {
+                return results;
+            }
+        }
+        State state = newState(aviatorValues);
+        int size = (list == null) ? 0 : list.size();
+        for (int i = 0; i < size; i++) {
+            if (accumulate(state, list.get(i)) >= 0) {
+                return null;
+            }
+        }
+        return finish(state);
+    }
+
+    /**
+     * 在列式数据的列上计算 sumByField 与 classifiedSize
+     *
+     * @return 各聚合方法的结果；不能使用列式计算时返回 null，由调用方逐行计算
+     */
+    private String[] computeColumnar(JSONArray list, String[] aviatorValues) {
+        String[] results = new String[aggregates.length];
+        for (int k = 0; k < aggregates.length; k++) {
+            String value = aviatorValues[aggregates[k].argIndex];
+            if (aggregates[k].type == AggregateType.SUM) {
+                Double sum = ColumnarOperators.sumByField(list, value);
+                if (sum == null) {
+                    return null;
+                }
+                results[k] = String.valueOf(sum.doubleValue());
+            } else if (StringUtils.isEmpty(value)) {
+                results[k] = String.valueOf(list.size());
+            } else {
+                DistinctCountSpec distinctCountSpec = DistinctCountSpec.compile(value);
+                // 近似计数不构建字典，整体逐行计算
+                if (distinctCountSpec.isApproximate()) {
+                    return null;
+                }
+                Integer size = ColumnarOperators.classifiedSize(list, distinctCountSpec.getField());
+                if (size == null) {
+                    return null;
+                }
+                results[k] = String.valueOf(size.intValue());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 创建聚合状态，用于逐条累加数据（例如流式统计）
+     *
+     * @param aviatorValues Aviator 参数值
+     * @return 聚合状态
+     */
+    public State newState(String[] aviatorValues) {
+        return new State(aggregates, aviatorValues);
+    }
+
+    /**
+     * 将一条数据累加到聚合状态中
+     *
+     * @param state 聚合状态
+     * @param obj   数据
+     * @return -1 表示累加成功；否则为不能处理该数据的聚合方法下标，此时聚合状态不再可用
+     */
+    public int accumulate(State state, Object obj) {
+        JSONObject entity = (obj instanceof JSONObject) ? (JSONObject) obj : null;
+        for (int k = 0; k < aggregates.length; k++) {
+            switch (aggregates[k].type) {
+                case SUM: {
+                    if (entity == null) {
+                        return k;
+                    }
+                    Object value = entity.get(state.fields[k]);
+                    if (value instanceof Number) {
+                        state.sums[k] += ((Number) value).doubleValue();
+                    } else {
+                        return k;
+                    }
+                    break;
+                }
+                case DISTINCT_SIZE: {
+                    if (state.accessors[k] == null) {
+                        break;
+                    }
+                    if (entity == null) {
+                        return k;
+                    }
+                    try {
+                        state.distinctCounters.get(k).add(state.accessors[k].getString(entity));
+                    } catch (RuntimeException e) {
+                        return k;
+                    }
+                    break;
+                }
+                case JOIN: {
+                    if (obj instanceof String) {
+                        state.joinLists.get(k).add((String) obj);
+                    } else if (obj instanceof Map) {
+                        Object target = ((Map) obj).get(FUNCTION_VAR_DEFAULT_TARGET_FIELD);
+                        if (target == null) {
+                            state.joinLists.get(k).add("");
+                        } else if (target instanceof String) {
+                            state.joinLists.get(k).add((String) target);
+                        } else {
+                            return k;
+                        }
+                    }
+                    break;
+                }
+                default:
+                    return k;
+            }
+        }
+        state.count++;
+        return -1;
+    }
+
+    /**
+     * 输出聚合状态中各聚合方法的结果
+     *
+     * @param state 聚合状态
+     * @return 各聚合方法的结果，与构建时的顺序相同
+     */
+    public String[] finish(State state) {
+        String[] results = new String[aggregates.length];
+        for (int k = 0; k < aggregates.length; k++) {
+            switch (aggregates[k].type) {
+                case SUM:
+                    results[k] = String.valueOf(state.sums[k]);
+                    break;
+                case DISTINCT_SIZE:
+                    results[k] = String.valueOf((state.accessors[k] == null) ? state.count : state.distinctCounters.get(k).count());
+                    break;
+                case JOIN:
+                    results[k] = (state.count == 0) ? "" : StringUtils.join(state.joinLists.get(k), state.fields[k]);
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return results;
+    }
+
+    public Aggregate getAggregate(int index) {
+        return aggregates[index];
+    }
+
+    public int size() {
+        return aggregates.length;
+    }
+
+    /**
+     * 聚合方法：方法类型与 Aviator 参数下标
+     */
+    public static class Aggregate {
+        private final AggregateType type;
+        private final String name;
+        private final int argIndex;
+
+        public Aggregate(AggregateType type, String name, int argIndex) {
+            this.type = type;
+            this.name = name;
+            this.argIndex = argIndex;
+        }
+
+        public AggregateType getType() {
+            return type;
+        }
+
+        public int getArgIndex() {
+            return argIndex;
+        }
+
+        @Override
+        public String toString() {
+            return name + "(" + FUNCTION_VAR_COMMON_LIST + ", " + ClassifiedSummaryPlan.AVIATOR_ARGS_BASE + "_" + argIndex + ")";
+        }
+    }
+
+    /**
+     * 聚合状态：各聚合方法的中间结果，只在单个线程中使用
+     */
+    public static class State {
+        private final String[] fields;
+        private final FieldAccessor[] accessors;
+        private final double[] sums;
+        private final List<DistinctCounter> distinctCounters;
+        private final List<List<String>> joinLists;
+        /**
+         * 已累加的数据条数
+         */
+        private int count;
+
+        private State(Aggregate[] aggregates, String[] aviatorValues) {
+            int n = aggregates.length;
+            fields = new String[n];
+            accessors = new FieldAccessor[n];
+            sums = new double[n];
+            distinctCounters = new ArrayList<>(n);
+            joinLists = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) {
+                String value = aviatorValues[aggregates[k].argIndex];
+                fields[k] = value;
+                DistinctCountSpec distinctCountSpec = null;
+                if (aggregates[k].type == AggregateType.DISTINCT_SIZE && StringUtils.isNotEmpty(value)) {
+                    distinctCountSpec = DistinctCountSpec.compile(value);
+                    accessors[k] = FieldAccessor.compile(distinctCountSpec.getField());
+                }
+                distinctCounters.add((distinctCountSpec == null) ? null : distinctCountSpec.newCounter());
+                joinLists.add(aggregates[k].type == AggregateType.JOIN ? new ArrayList<>() : null);
+            }
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.grq.rezero.function.calculate;
+
+/**
+ * <pre>
+ *     近似去重计数：HyperLogLog；
+ *
+ *     1. 精度 p：使用 m = 2^p 个寄存器，每个寄存器 1 字节，内存固定为 m 字节；
+ *     2. 字段值的 64 位哈希中，高 p 位选择寄存器，其余位中第一个 1 的位置记入寄存器（取最大值）；
+ *     3. 估计值使用 Ertl 的改进估计（由各寄存器值的分布计算），在数据量较小时无需切换为线性计数，
+ *        也不需要经验偏差修正表；
+ *     相对标准误差约为 1.04 / √m，例如 p = 14 时约为 0.81%，占用 16KB；
+ * </pre>
+ */
+public class HyperLogLog implements DistinctCounter {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(String.format("HyperLogLog 精度 [%d] 超出范围 [%d, %d]",
+                    precision, MIN_PRECISION, MAX_PRECISION));
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * 精度 p 对应的相对标准误差
+     */
+    public static double standardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    @Override
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        long hash = DistinctCounter.hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // 低位补 1，保证 rank 不超过 64 - p + 1
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    @Override
+    public int count() {
+        int m = registers.length;
+        int q = 64 - precision;
+        // 各寄存器值的数量
+        int[] histogram = new int[q + 2];
+        for (byte register : registers) {
+            histogram[register]++;
+        }
+        double z = m * tau(1 - (double) histogram[q + 1] / m);
+        for (int k = q; k >= 1; k--) {
+            z = 0.5 * (z + histogram[k]);
+        }
+        z += m * sigma((double) histogram[0] / m);
+        double estimate = m * m / (2 * Math.log(2) * z);
+        return (int) Math.min(Integer.MAX_VALUE, Math.round(estimate));
+    }
+
+    private static double sigma(double x) {
+        if (x == 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y = 1;
+        double z = x;
+        double previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while (z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if (x == 0 || x == 1) {
+            return 0;
+        }
+        double y = 1;
+        double z = 1 - x;
+        double previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1 - x) * (1 - x) * y;
+        } while (z != previous);
+        return z / 3;
+    }
+
+    @Override
+    public double getStandardError() {
+        return standardError(precision);
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+}
@@ -30,7 +30,7 @@ public class JoinFunction extends AbstractFunction
 
     @Override
     public String getName() {
-        return null;
+        return FUNCTION_NAME_LIST2STRING_JOIN;
     }
 
     /**
@@ -6,6 +6,7 @@ import com.googlecode.aviator.runtime.function.AbstractFunction;
 import com.googlecode.aviator.runtime.function.FunctionUtils;
 import com.googlecode.aviator.runtime.type.AviatorDouble;
 import com.googlecode.aviator.runtime.type.AviatorObject;
+import com.grq.rezero.columnar.ColumnarOperators;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
@@ -56,6 +57,11 @@ public class SumByFieldFunction extends AbstractFunction
             e.printStackTrace();
             throw new DynamicSummaryException(e.getMessage(), e);
         }
+        // 列式数据直接在数值列上累加
+        Double columnarTotal = ColumnarOperators.sumByField(list, field);
+        if (columnarTotal != null) {
+            return new AviatorDouble(columnarTotal);
+        }
         /**
          * 遍历数据列表，对待统计字段进行统计
          */
@@ -83,12 +89,8 @@ public class SumByFieldFunction extends AbstractFunction
                     if (value == null) {
                         throw new NullPointerException();
                     }
-                    if (value instanceof Integer) {
-                        int v = (int) value;
-                        total += v;
-                    } else if (value instanceof Double) {
-                        double v = (double) value;
-                        total += v;
+                    if (value instanceof Number) {
+                        total += ((Number) value).doubleValue();
                     }
                     // 其余情况，抛出异常
                     else {
@@ -1,21 +1,25 @@
 package com.grq.rezero.function.convertor;
 
-import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.grq.rezero.function.filter.PrefixNameFilter;
+import com.grq.rezero.metrics.SerialExecution;
 import org.springframework.util.CollectionUtils;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
  * 将基本的 List 转为 JSONArray，且为每个 JSONObject 的 Key 添加类型内码信息（递归）
  *
  * 当前类型内码信息使用类的 SimpleName 并转换为小写的结果；
+ * 每个元素由 BeanJsonConvertor 直接转换，不经过 JSON 字符串；列表长度不小于 parallelThreshold 时分段并发转换；
  */
 public class BaseJsonArrayConvertor {
-    // 对于传入 List 的每个元素，获取每个元素的类转换为 JSONObject，且每个 JSONObject 转换结果的 Key 添加类型内码信息；
-    private static PrefixNameFilter nameFilter = new PrefixNameFilter();
+    /**
+     * 分段并发转换的列表长度下限
+     */
+    private static volatile int parallelThreshold = 1 << 12;
 
     /**
      * 将基本的 List 转为 JSONArray，且为每个 JSONObject 的 Key 添加类型内码信息（递归）；
@@ -25,7 +29,7 @@ public class BaseJsonArrayConvertor {
      * @param list 原始列表
      * @param clazz 列表元素的 Class
      * @param <T> 泛型
-     * @return 添加类型内码信息后的 JSONArray
+     * @return 添加类型内码信息后的 JSONArray；某个元素转换出错时，只包含该元素之前的转换结果
      */
     public static <T> JSONArray convertToBaseJsonArray(List<T> list, Class<T> clazz) {
         // 方法初始判空
@@ -33,16 +37,53 @@ public class BaseJsonArrayConvertor {
             return new JSONArray();
         }
 
-        JSONArray result = new JSONArray();
-        try {
-            for (T element : list) {
-                String elementJsonString = JSON.toJSONString(element, nameFilter);
-                JSONObject entity = (JSONObject) JSON.parse(elementJsonString);
-                result.add(entity);
+        int size = list.size();
+        if (size < parallelThreshold || SerialExecution.isActive()) {
+            JSONArray result = new JSONArray(size);
+            try {
+                for (T element : list) {
+                    result.add((JSONObject) BeanJsonConvertor.convert(element));
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return result;
+        }
+
+        // 分段并发转换，出错时保留出错元素之前的结果
+        Object[] elements = list.toArray();
+        Object[] converted = new Object[size];
+        int[] failedIndex = {size};
+        Exception[] failure = new Exception[1];
+        int segments = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int segmentSize = (size + segments - 1) / segments;
+        IntStream.range(0, segments).parallel().forEach(s -> {
+            int end = Math.min(size, (s + 1) * segmentSize);
+            for (int i = s * segmentSize; i < end; i++) {
+                try {
+                    converted[i] = (JSONObject) BeanJsonConvertor.convert(elements[i]);
+                } catch (Exception e) {
+                    synchronized (failedIndex) {
+                        if (i < failedIndex[0]) {
+                            failedIndex[0] = i;
+                            failure[0] = e;
+                        }
+                    }
+                    return;
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+        });
+        if (failure[0] != null) {
+            failure[0].printStackTrace();
         }
-        return result;
+        return new JSONArray(Arrays.asList(Arrays.copyOf(converted, failedIndex[0])));
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int parallelThreshold) {
+        BaseJsonArrayConvertor.parallelThreshold = parallelThreshold;
     }
 }
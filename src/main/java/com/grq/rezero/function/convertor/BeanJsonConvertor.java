@@ -0,0 +1,317 @@
+package com.grq.rezero.function.convertor;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.annotation.JSONType;
+import com.alibaba.fastjson.serializer.JavaBeanSerializer;
+import com.alibaba.fastjson.serializer.ObjectSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.util.FieldInfo;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.function.filter.PrefixNameFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ *     直接将对象转为添加类型内码信息的 JSON 结构，不经过 JSON 字符串；
+ *
+ *     转换结果与 JSON.parse(JSON.toJSONString(value, PrefixNameFilter)) 相同：
+ *     1. JavaBean 转为 JSONObject，属性与 fastjson 序列化时相同（TypeUtils#computeGetters），
+ *        Key 为 "类 SimpleName 小写.属性名"，值为 null 的属性不输出；
+ *     2. Map 转为 JSONObject，Key 的前缀为 Map 类 SimpleName 的小写；Collection 与数组转为 JSONArray；
+ *     3. 基本值按 JSON 文本解析后的类型输出：整数在 int 范围内为 Integer，否则为 Long / BigInteger；
+ *        Float / Double 与带小数点或指数的 BigDecimal 为 BigDecimal（NaN、Infinity 为 null），Date 为毫秒数，枚举为名称，
+ *        char 为 String，byte[] 为 Base64 字符串；
+ *     其余情况（自定义序列化器、@JSONType、带格式或特性的 @JSONField、无法识别的类型、引用层级过深）
+ *     对该值回退为 JSON 字符串转换，结果不变；
+ *     同一对象被多次引用时分别转换，不输出 fastjson 的 $ref 引用；
+ *
+ *     每个类的属性取值器只构建一次：公开类的公开 getter 使用 LambdaMetafactory 生成，
+ *     其余使用 MethodHandle；不依赖 fastjson 的 ASM 开关；
+ * </pre>
+ *
+ * @see BaseJsonArrayConvertor
+ * @see PrefixNameFilter
+ */
+public class BeanJsonConvertor {
+    private static Logger LOG = LoggerFactory.getLogger(BeanJsonConvertor.class);
+
+    /**
+     * 引用层级上限，超过时视为存在循环引用，回退为 JSON 字符串转换
+     */
+    private static final int MAX_DEPTH = 64;
+
+    /**
+     * 回退为 JSON 字符串转换时使用的 NameFilter
+     */
+    private static final PrefixNameFilter NAME_FILTER = new PrefixNameFilter();
+
+    /**
+     * 各类的属性取值器
+     */
+    private static final LruCache<Class<?>, BeanAccessor> ACCESSOR_CACHE = new LruCache<>("beanAccessor");
+
+    private BeanJsonConvertor() {
+    }
+
+    /**
+     * 转换单个对象
+     *
+     * @param value 对象
+     * @return 转换结果，与 JSON.parse(JSON.toJSONString(value, PrefixNameFilter)) 相同
+     */
+    public static Object convert(Object value) {
+        try {
+            return convert(value, 0);
+        } catch (DepthExceededException e) {
+            return convertByJsonString(value);
+        }
+    }
+
+    /**
+     * 回退方式：序列化为 JSON 字符串后再解析
+     */
+    static Object convertByJsonString(Object value) {
+        return JSON.parse(JSON.toJSONString(value, NAME_FILTER));
+    }
+
+    private static Object convert(Object value, int depth) {
+        if (value == null || value instanceof String || value instanceof Integer || value instanceof Boolean) {
+            return value;
+        }
+        if (depth > MAX_DEPTH) {
+            throw new DepthExceededException();
+        }
+        if (value instanceof Long) {
+            long l = (Long) value;
+            return (l == (int) l) ? Integer.valueOf((int) l) : value;
+        }
+        if (value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return (Double.isNaN(d) || Double.isInfinite(d)) ? null : new BigDecimal(Double.toString(d));
+        }
+        if (value instanceof Float) {
+            float f = (Float) value;
+            return (Float.isNaN(f) || Float.isInfinite(f)) ? null : new BigDecimal(Float.toString(f));
+        }
+        if (value instanceof BigDecimal) {
+            // 没有小数点与指数的 BigDecimal 在 JSON 文本中为整数
+            String text = value.toString();
+            return (text.indexOf('.') >= 0 || text.indexOf('E') >= 0) ? value : convert(new BigInteger(text), depth);
+        }
+        if (value instanceof BigInteger) {
+            BigInteger i = (BigInteger) value;
+            return (i.bitLength() < 64) ? convert(i.longValue(), depth) : i;
+        }
+        if (value instanceof Character) {
+            return value.toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        Class<?> clazz = value.getClass();
+        if (clazz == Date.class) {
+            return convert(((Date) value).getTime(), depth);
+        }
+        if (clazz == byte[].class) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        if (value instanceof Map) {
+            return convertMap((Map<?, ?>) value, depth);
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            JSONArray array = new JSONArray(collection.size());
+            for (Object element : collection) {
+                array.add(convert(element, depth + 1));
+            }
+            return array;
+        }
+        if (clazz.isArray() && clazz != char[].class) {
+            int length = Array.getLength(value);
+            JSONArray array = new JSONArray(length);
+            for (int i = 0; i < length; i++) {
+                array.add(convert(Array.get(value, i), depth + 1));
+            }
+            return array;
+        }
+        BeanAccessor accessor = clazz.getName().startsWith("java.") ? null : ACCESSOR_CACHE.get(clazz, BeanAccessor::build);
+        if (accessor == null || !accessor.isSupported()) {
+            return convertByJsonString(value);
+        }
+        return accessor.convert(value, depth);
+    }
+
+    private static Object convertMap(Map<?, ?> map, int depth) {
+        String prefix = map.getClass().getSimpleName().toLowerCase();
+        JSONObject entity = new JSONObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                return convertByJsonString(map);
+            }
+            if (entry.getValue() == null) {
+                continue;
+            }
+            String key = (String) entry.getKey();
+            entity.put(key.isEmpty() ? key : PrefixNameFilter.buildFilterKey(prefix, key), convert(entry.getValue(), depth + 1));
+        }
+        return entity;
+    }
+
+    /**
+     * 单个类的属性取值器
+     */
+    private static class BeanAccessor {
+        /**
+         * 不支持直接转换的类
+         */
+        private static final BeanAccessor UNSUPPORTED = new BeanAccessor(null, null);
+
+        /**
+         * 添加类型内码信息后的 Key，按属性名排序（与 fastjson 序列化顺序相同）
+         */
+        private final String[] keys;
+        private final Function<Object, Object>[] getters;
+
+        private BeanAccessor(String[] keys, Function<Object, Object>[] getters) {
+            this.keys = keys;
+            this.getters = getters;
+        }
+
+        boolean isSupported() {
+            return keys != null;
+        }
+
+        Object convert(Object bean, int depth) {
+            JSONObject entity = new JSONObject();
+            for (int i = 0; i < keys.length; i++) {
+                Object value = getters[i].apply(bean);
+                if (value != null) {
+                    entity.put(keys[i], BeanJsonConvertor.convert(value, depth + 1));
+                }
+            }
+            return entity;
+        }
+
+        @SuppressWarnings("unchecked")
+        static BeanAccessor build(Class<?> clazz) {
+            try {
+                ObjectSerializer serializer = SerializeConfig.getGlobalInstance().getObjectWriter(clazz);
+                if (!(serializer instanceof JavaBeanSerializer) || clazz.getAnnotation(JSONType.class) != null) {
+                    return UNSUPPORTED;
+                }
+                String prefix = clazz.getSimpleName().toLowerCase();
+                List<String> keys = new ArrayList<>();
+                List<Function<Object, Object>> getters = new ArrayList<>();
+                for (FieldInfo fieldInfo : TypeUtils.computeGetters(clazz, null)) {
+                    if (fieldInfo.fieldTransient) {
+                        continue;
+                    }
+                    if (fieldInfo.serialzeFeatures != 0 || fieldInfo.format != null || fieldInfo.jsonDirect
+                            || fieldInfo.unwrapped || (fieldInfo.label != null && !fieldInfo.label.isEmpty()) || fieldInfo.fieldClass == char[].class) {
+                        return UNSUPPORTED;
+                    }
+                    keys.add(PrefixNameFilter.buildFilterKey(prefix, fieldInfo.name));
+                    getters.add(getter(clazz, fieldInfo));
+                }
+                return new BeanAccessor(keys.toArray(new String[0]), getters.toArray(new Function[0]));
+            } catch (Throwable e) {
+                LOG.warn("类 [{}] 不能直接转换，使用 JSON 字符串转换：[{}]", clazz.getName(), e.getMessage());
+                return UNSUPPORTED;
+            }
+        }
+
+        /**
+         * 构建属性取值器：公开类的公开 getter 使用 LambdaMetafactory，其余使用 MethodHandle
+         */
+        @SuppressWarnings("unchecked")
+        private static Function<Object, Object> getter(Class<?> clazz, FieldInfo fieldInfo) throws Throwable {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Method method = fieldInfo.method;
+            if (method != null && Modifier.isPublic(method.getModifiers())
+                    && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                    && isVisible(method.getDeclaringClass()) && isVisible(method.getReturnType())) {
+                MethodHandle handle = lookup.unreflect(method);
+                MethodType instantiated = MethodType.methodType(boxed(method.getReturnType()), method.getDeclaringClass());
+                return (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+                        handle, instantiated).getTarget().invokeExact();
+            }
+            fieldInfo.setAccessible();
+            MethodHandle handle = (method != null) ? lookup.unreflect(method) : lookup.unreflectGetter(fieldInfo.field);
+            MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class));
+            return bean -> {
+                try {
+                    return generic.invokeExact(bean);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        }
+
+        /**
+         * 生成的 Lambda 位于本类的类加载器中，只有本类的类加载器能找到同一个类时才能使用
+         */
+        private static boolean isVisible(Class<?> type) {
+            if (type.isPrimitive()) {
+                return true;
+            }
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            if (type.isPrimitive()) {
+                return true;
+            }
+            try {
+                return Class.forName(type.getName(), false, BeanJsonConvertor.class.getClassLoader()) == type;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+
+        private static Class<?> boxed(Class<?> type) {
+            return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+        }
+    }
+
+    /**
+     * 引用层级超过上限
+     */
+    private static class DepthExceededException extends RuntimeException {
+        DepthExceededException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * 清空属性取值器缓存，例如重新加载类之后
+     */
+    public static void clearAccessorCache() {
+        ACCESSOR_CACHE.clear();
+    }
+}
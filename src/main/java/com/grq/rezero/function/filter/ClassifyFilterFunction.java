@@ -5,12 +5,13 @@ import com.alibaba.fastjson.JSONObject;
 import com.googlecode.aviator.runtime.function.FunctionUtils;
 import com.googlecode.aviator.runtime.type.AviatorObject;
 import com.googlecode.aviator.runtime.type.AviatorRuntimeJavaType;
+import com.grq.rezero.columnar.ColumnarOperators;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
-import com.grq.rezero.expression.ExpressionMatchUnit;
-import com.grq.rezero.expression.ExpressionParser;
+import com.grq.rezero.expression.FieldAccessor;
 import com.grq.rezero.function.other.RelationInfoFunction;
+import com.grq.rezero.metrics.SerialExecution;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +30,7 @@ import java.util.Map;
  *     输出：JSONObject
  *       - key: String，分类字段；
  *       - value: JSONArray，分类结果；
+ *     列表长度不小于 PartitionedClassifier#parallelThreshold 时分段并发分类，结果与逐行分类相同；
  * </pre>
  */
 @Component("classifyFilterFunction")
@@ -87,6 +89,16 @@ public class ClassifyFilterFunction extends FilterFunction
             return new AviatorRuntimeJavaType(result);
         }
 
+        // 列式数据直接按字典编码分组
+        JSONObject columnarResult = ColumnarOperators.classify(list, classifyExpression);
+        if (columnarResult != null) {
+            return new AviatorRuntimeJavaType(columnarResult);
+        }
+        FieldAccessor accessor = FieldAccessor.compile(classifyExpression);
+        // 数据量较大时分段并发分类
+        if (list.size() >= PartitionedClassifier.getParallelThreshold() && !SerialExecution.isActive()) {
+            return new AviatorRuntimeJavaType(PartitionedClassifier.classify(list, accessor));
+        }
         // 缺省分类列表的内容，放在返回 JSONObject 的最后
         JSONArray defaultClassifiedList = new JSONArray();
         try {
@@ -96,8 +108,7 @@ public class ClassifyFilterFunction extends FilterFunction
                  * 1. 解析传入的表达式，即提取分类的 Key 值
                  * 如果解析结果为空，则使用默认的 Key 值；
                  */
-                String resultKey = ExpressionParser.doHandleFieldUnit(
-                        entity, ExpressionMatchUnit.buildFieldUnit(classifyExpression));
+                String resultKey = accessor.getString(entity);
                 if (StringUtils.isEmpty(resultKey)) {
                     defaultClassifiedList.add(entity);
                     continue;
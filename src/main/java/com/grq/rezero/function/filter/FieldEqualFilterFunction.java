@@ -1,17 +1,14 @@
 package com.grq.rezero.function.filter;
 
 import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
 import com.googlecode.aviator.runtime.function.FunctionUtils;
 import com.googlecode.aviator.runtime.type.AviatorObject;
 import com.googlecode.aviator.runtime.type.AviatorRuntimeJavaType;
+import com.grq.rezero.columnar.ColumnarOperators;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
 import com.grq.rezero.exception.EmptyException;
-import com.grq.rezero.expression.ExpressionMatchUnit;
-import com.grq.rezero.expression.ExpressionParser;
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -132,51 +129,26 @@ public class FieldEqualFilterFunction extends FilterFunction
     public AviatorObject call(Map<String, Object> env, AviatorObject arg1, AviatorObject arg2) {
         JSONArray list = null;
         String filterString = null;
-        Map<String, String> filter = new HashMap<>();
+        FieldEqualPredicate predicate = null;
 
         /**
-         * 提取 env 内的 Aviator 参数
+         * 提取 env 内的 Aviator 参数，筛选条件按表达式缓存，只解析一次
          */
         try {
             list = (JSONArray) FunctionUtils.getJavaObject(arg1, env);
             filterString = FunctionUtils.getStringValue(arg2, env);
-            filter = expressionToConditions(filterString);
+            predicate = FieldEqualPredicate.compile(filterString);
         } catch (ClassCastException e) {
             LOG.error("格式转换错误：[{}]", e.getMessage());
             throw new DynamicSummaryException(e.getMessage(), e);
         }
-        JSONArray result = new JSONArray();
-        if (!CollectionUtils.isEmpty(list)) {
-            for (Object obj : list) {
-                JSONObject entity = (JSONObject) obj;
-                if (match(entity, filter)) {
-                    result.add(entity);
-                }
-            }
+        // 列式数据直接在字典编码上筛选
+        JSONArray columnarResult = ColumnarOperators.fieldEqual(list, predicate);
+        if (columnarResult != null) {
+            return new AviatorRuntimeJavaType(columnarResult);
         }
+        JSONArray result = CollectionUtils.isEmpty(list) ? new JSONArray() : predicate.filter(list);
 
         return new AviatorRuntimeJavaType(result);
     }
-
-    private boolean match(JSONObject entity, Map<String, String> filter) {
-        if (!MapUtils.isEmpty(filter)) {
-            for (String key : filter.keySet()) {
-                // 使用表达式解析方式（支持普通取值与关联信息取值），获取数据中的值
-                String value = ExpressionParser.doHandleFieldUnit(entity, ExpressionMatchUnit.buildFieldUnit(key));
-                Object filterValue = filter.get(key);
-                // 如果筛选值与从数据中的值都为 null，属于匹配情况
-                if (value == null && filterValue == null) {
-                    return true;
-                }
-
-                List<String> valueList = (filterValue == null)
-                        ? new ArrayList<>() : Arrays.asList(filterValue.toString().split(FILTER_VALUE_SEPARATOR_REGEX));
-                // 如果筛选值与从数据中的值相等，属于匹配情况
-                if (value != null && valueList.contains(value)) {
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
 }
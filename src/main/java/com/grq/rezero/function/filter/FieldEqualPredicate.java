@@ -0,0 +1,172 @@
+package com.grq.rezero.function.filter;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.exception.EmptyException;
+import com.grq.rezero.expression.FieldAccessor;
+import com.grq.rezero.metrics.SerialExecution;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ *     预编译的字段相等筛选条件，对应 fieldEqual 的筛选表达式；
+ *
+ *     筛选表达式在编译时解析一次：
+ *     1. 由 FieldEqualFilterFunction#expressionToConditions 解析出各筛选字段与筛选值；
+ *     2. 每个筛选字段编译为 FieldAccessor，筛选值按分隔符拆分为 HashSet；
+ *     判断时各筛选字段之间为并集运算，任一字段的值在筛选值中（或值与筛选值都为 null）即满足，
+ *     不再对每条数据拆分筛选值、构建列表；
+ *
+ *     编译结果以筛选表达式为 Key 缓存，对象不可变，可在多线程间共享；
+ *     列表长度不小于 parallelThreshold 时，分段并发判断，结果保持原有顺序；
+ * </pre>
+ *
+ * @see FieldEqualFilterFunction
+ */
+public class FieldEqualPredicate {
+    /**
+     * 筛选条件编译缓存
+     */
+    private static final LruCache<String, FieldEqualPredicate> PREDICATE_CACHE = new LruCache<>("fieldEqualPredicate");
+
+    /**
+     * 分段并发筛选的列表长度下限
+     */
+    private static volatile int parallelThreshold = 1 << 16;
+
+    /**
+     * 筛选字段，与 expressionToConditions 返回结果的遍历顺序相同
+     */
+    private final String[] fields;
+    private final FieldAccessor[] accessors;
+    /**
+     * 各筛选字段的筛选值，为 null 表示筛选值为 null（字段值为 null 时满足）
+     */
+    private final Set<String>[] values;
+
+    @SuppressWarnings("unchecked")
+    private FieldEqualPredicate(Map<String, String> conditions) {
+        int size = conditions.size();
+        fields = new String[size];
+        accessors = new FieldAccessor[size];
+        values = new Set[size];
+        int k = 0;
+        for (Map.Entry<String, String> entry : conditions.entrySet()) {
+            fields[k] = entry.getKey();
+            accessors[k] = FieldAccessor.compile(entry.getKey());
+            values[k] = (entry.getValue() == null) ? null : Collections.unmodifiableSet(new HashSet<>(
+                    Arrays.asList(entry.getValue().split(FieldEqualFilterFunction.FILTER_VALUE_SEPARATOR_REGEX))));
+            k++;
+        }
+    }
+
+    /**
+     * 编译筛选表达式，相同表达式只编译一次
+     *
+     * @param expression 筛选表达式，例如 [student.class=A][student.class=B|C]
+     * @return 筛选条件
+     * @throws EmptyException 筛选表达式为空时抛出异常
+     */
+    public static FieldEqualPredicate compile(String expression) throws EmptyException {
+        if (expression == null || expression.isEmpty()) {
+            throw new EmptyException("FieldEqualPredicate # compile 错误：传入空表达式");
+        }
+        return PREDICATE_CACHE.get(expression,
+                key -> new FieldEqualPredicate(FieldEqualFilterFunction.expressionToConditions(key)));
+    }
+
+    /**
+     * 判断单条数据是否满足筛选条件
+     *
+     * @param entity 单条数据
+     * @return 是否满足
+     * @throws DynamicSummaryException 获取关联信息出错时抛出异常
+     */
+    public boolean test(JSONObject entity) throws DynamicSummaryException {
+        for (int k = 0; k < fields.length; k++) {
+            String value = accessors[k].getString(entity);
+            if (values[k] == null) {
+                if (value == null) {
+                    return true;
+                }
+            } else if (value != null && values[k].contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 筛选列表，结果保持原有顺序
+     *
+     * @param list 数据列表，元素需要为 JSONObject
+     * @return 满足筛选条件的数据
+     * @throws ClassCastException 元素不是 JSONObject 时抛出异常
+     */
+    public JSONArray filter(JSONArray list) throws ClassCastException {
+        JSONArray result = new JSONArray();
+        int size = list.size();
+        if (size < parallelThreshold || SerialExecution.isActive()) {
+            for (Object obj : list) {
+                JSONObject entity = (JSONObject) obj;
+                if (test(entity)) {
+                    result.add(entity);
+                }
+            }
+            return result;
+        }
+        // 分段并发判断，再按原有顺序收集结果
+        boolean[] matched = new boolean[size];
+        int segments = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int segmentSize = (size + segments - 1) / segments;
+        IntStream.range(0, segments).parallel().forEach(s -> {
+            int end = Math.min(size, (s + 1) * segmentSize);
+            for (int i = s * segmentSize; i < end; i++) {
+                matched[i] = test((JSONObject) list.get(i));
+            }
+        });
+        for (int i = 0; i < size; i++) {
+            if (matched[i]) {
+                result.add(list.get(i));
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public String getField(int index) {
+        return fields[index];
+    }
+
+    /**
+     * 筛选字段的筛选值
+     *
+     * @return 筛选值集合（不可修改），筛选值为 null 时返回 null
+     */
+    public Set<String> getValues(int index) {
+        return values[index];
+    }
+
+    public static LruCache<String, FieldEqualPredicate> getPredicateCache() {
+        return PREDICATE_CACHE;
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int parallelThreshold) {
+        FieldEqualPredicate.parallelThreshold = parallelThreshold;
+    }
+}
@@ -0,0 +1,233 @@
+package com.grq.rezero.function.filter;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.expression.FieldAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ *     分段并发分类：列表长度不小于 parallelThreshold 时由 ClassifyFilterFunction 使用，结果与逐行分类相同；
+ *
+ *     执行过程：
+ *     1. 将列表按下标分为若干段，各段并发提取分类值，在各自的 Map 中为分类值分配段内分组号，
+ *        并记录每条数据的段内分组号，各线程之间不共享任何可变状态；
+ *     2. 按段的顺序、段内分组第一次出现的顺序合并分组，即为各分类值在整个列表中第一次出现的顺序；
+ *        同时计算每个分类中各段数据的起始位置；
+ *     3. 各段并发将数据写入所属分类的对应位置，分类内保持原有顺序；
+ *        热点分类的数据分布在各段中，由各段同时写入，不会集中在单个线程上；
+ *     4. 分类值为空的数据放在默认分类 _NULL_ 中，置于最后；
+ *
+ *     某条数据出错时，与逐行分类相同：只保留该条之前的分类结果；
+ * </pre>
+ *
+ * @see ClassifyFilterFunction
+ */
+public class PartitionedClassifier {
+    /**
+     * 段内分组号：默认分类
+     */
+    private static final int DEFAULT_GROUP = -1;
+
+    /**
+     * 分段并发分类的列表长度下限
+     */
+    private static volatile int parallelThreshold = 1 << 16;
+
+    /**
+     * 每段的最小数据条数，避免分段过多时合并开销超过并发收益
+     */
+    private static volatile int minSegmentSize = 1 << 14;
+
+    private static Logger LOG = LoggerFactory.getLogger(PartitionedClassifier.class);
+
+    private PartitionedClassifier() {
+    }
+
+    /**
+     * 分段并发分类
+     *
+     * @param list     数据列表，元素需要为 JSONObject
+     * @param accessor 分类字段取值器
+     * @return 分类结果，分类顺序为各分类值第一次出现的顺序，默认分类置于最后
+     * @throws DynamicSummaryException 元素不是 JSONObject 时抛出异常
+     */
+    public static JSONObject classify(JSONArray list, FieldAccessor accessor) throws DynamicSummaryException {
+        int size = list.size();
+        int segmentCount = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                size / Math.max(1, minSegmentSize)));
+        int segmentSize = (size + segmentCount - 1) / segmentCount;
+        int[] groupOfRow = new int[size];
+
+        /**
+         * 1. 各段并发分组
+         */
+        Segment[] segments = IntStream.range(0, segmentCount).parallel()
+                .mapToObj(s -> Segment.scan(list, accessor, groupOfRow, s * segmentSize, Math.min(size, (s + 1) * segmentSize)))
+                .toArray(Segment[]::new);
+
+        /**
+         * 2. 按段的顺序合并分组，出错时只保留出错数据之前的段
+         */
+        Map<String, Integer> globalGroups = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        List<int[]> segmentOffsets = new ArrayList<>();
+        int[] totals = new int[16];
+        int defaultTotal = 0;
+        int[] defaultOffsets = new int[segmentCount];
+        RuntimeException failure = null;
+        int mergedCount = 0;
+        for (Segment segment : segments) {
+            int[] offsets = new int[segment.keys.size()];
+            for (int local = 0; local < offsets.length; local++) {
+                String key = segment.keys.get(local);
+                Integer global = globalGroups.get(key);
+                if (global == null) {
+                    global = keys.size();
+                    globalGroups.put(key, global);
+                    keys.add(key);
+                    if (global == totals.length) {
+                        totals = Arrays.copyOf(totals, totals.length * 2);
+                    }
+                }
+                // 复用 offsets 保存段内分组在所属分类中的起始位置，写入阶段再换算为全局分组号
+                offsets[local] = totals[global];
+                totals[global] += segment.counts[local];
+                segment.localToGlobal[local] = global;
+            }
+            segmentOffsets.add(offsets);
+            defaultOffsets[mergedCount] = defaultTotal;
+            defaultTotal += segment.defaultCount;
+            mergedCount++;
+            if (segment.failure != null) {
+                failure = segment.failure;
+                break;
+            }
+        }
+        if (failure instanceof ClassCastException) {
+            LOG.error("格式转换错误：[{}]", failure.getMessage());
+            throw new DynamicSummaryException(failure.getMessage(), failure);
+        }
+
+        /**
+         * 3. 各段并发写入所属分类
+         */
+        List<List<Object>> groups = new ArrayList<>(keys.size());
+        for (int global = 0; global < keys.size(); global++) {
+            groups.add(new ArrayList<>(Collections.nCopies(totals[global], null)));
+        }
+        List<Object> defaultGroup = new ArrayList<>(Collections.nCopies(defaultTotal, null));
+        IntStream.range(0, mergedCount).parallel().forEach(s -> {
+            Segment segment = segments[s];
+            int[] cursors = segmentOffsets.get(s);
+            int defaultCursor = defaultOffsets[s];
+            for (int row = segment.from; row < segment.end; row++) {
+                int local = groupOfRow[row];
+                if (local == DEFAULT_GROUP) {
+                    defaultGroup.set(defaultCursor++, list.get(row));
+                } else {
+                    groups.get(segment.localToGlobal[local]).set(cursors[local]++, list.get(row));
+                }
+            }
+        });
+
+        /**
+         * 4. 按第一次出现的顺序输出分类，默认分类置于最后
+         */
+        JSONObject result = new JSONObject(true);
+        for (int global = 0; global < keys.size(); global++) {
+            result.put(keys.get(global), new JSONArray(groups.get(global)));
+        }
+        if (failure != null) {
+            // 与逐行分类相同，出错时不再追加默认分类
+            failure.printStackTrace();
+            return result;
+        }
+        if (defaultTotal > 0) {
+            result.put(ClassifyFilterFunction.DEFAULT_KEY, new JSONArray(defaultGroup));
+        }
+        return result;
+    }
+
+    /**
+     * 单段的分组结果
+     */
+    private static class Segment {
+        private final int from;
+        /**
+         * 已处理数据的结束下标，出错时为出错数据的下标
+         */
+        private int end;
+        /**
+         * 段内分组的分类值，按段内第一次出现的顺序排列
+         */
+        private final List<String> keys = new ArrayList<>();
+        private int[] counts = new int[16];
+        private int[] localToGlobal;
+        private int defaultCount;
+        private RuntimeException failure;
+
+        private Segment(int from) {
+            this.from = from;
+            this.end = from;
+        }
+
+        private static Segment scan(JSONArray list, FieldAccessor accessor, int[] groupOfRow, int from, int to) {
+            Segment segment = new Segment(from);
+            Map<String, Integer> localGroups = new HashMap<>();
+            try {
+                for (int row = from; row < to; row++) {
+                    String key = accessor.getString((JSONObject) list.get(row));
+                    if (StringUtils.isEmpty(key)) {
+                        groupOfRow[row] = DEFAULT_GROUP;
+                        segment.defaultCount++;
+                    } else {
+                        Integer local = localGroups.get(key);
+                        if (local == null) {
+                            local = segment.keys.size();
+                            localGroups.put(key, local);
+                            segment.keys.add(key);
+                            if (local == segment.counts.length) {
+                                segment.counts = Arrays.copyOf(segment.counts, segment.counts.length * 2);
+                            }
+                        }
+                        groupOfRow[row] = local;
+                        segment.counts[local]++;
+                    }
+                    segment.end = row + 1;
+                }
+            } catch (RuntimeException e) {
+                segment.failure = e;
+            }
+            segment.localToGlobal = new int[segment.keys.size()];
+            return segment;
+        }
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int parallelThreshold) {
+        PartitionedClassifier.parallelThreshold = parallelThreshold;
+    }
+
+    public static int getMinSegmentSize() {
+        return minSegmentSize;
+    }
+
+    public static void setMinSegmentSize(int minSegmentSize) {
+        PartitionedClassifier.minSegmentSize = minSegmentSize;
+    }
+}
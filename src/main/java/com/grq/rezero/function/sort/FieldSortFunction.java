@@ -1,20 +1,17 @@
 package com.grq.rezero.function.sort;
 
 import com.alibaba.fastjson.JSONArray;
-import com.alibaba.fastjson.JSONObject;
 import com.googlecode.aviator.runtime.function.FunctionUtils;
 import com.googlecode.aviator.runtime.type.AviatorObject;
 import com.googlecode.aviator.runtime.type.AviatorRuntimeJavaType;
+import com.grq.rezero.columnar.ColumnarOperators;
 import com.grq.rezero.constants.FunctionNameConstants;
 import com.grq.rezero.constants.FunctionVariableConstants;
 import com.grq.rezero.exception.DynamicSummaryException;
-import com.grq.rezero.expression.ExpressionMatchUnit;
-import com.grq.rezero.expression.ExpressionParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.CollectionUtils;
 
-import java.util.Comparator;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -25,9 +22,13 @@ import java.util.regex.Pattern;
  *     从表达式解析出排序规则，对输入的 List 进行排序；
  *
  *     排序字段的要求如下：
- *     1. 字段需要存在，如果不存在，排序时返回 Integer.MAX_VALUE;
- *     2. 获取的字段值为 String 类型，且满足数字格式；如果不满足，则排序时返回 Integer.MAX_VALUE;
+ *     1. 字段需要存在，如果不存在，排在最后;
+ *     2. 获取的字段值为 String 类型，且满足数字格式；如果不满足，则排在最后;
+ *     支持多个排序字段、降序以及 long / double / string 类型，排序表达式的格式见 SortSpec；
+ *     排序结果为新的列表，不修改传入的列表（数据源可能被其他统计单元同时使用），相等的数据保持原有顺序；
  * </pre>
+ *
+ * @see SortSpec
  */
 public class FieldSortFunction extends AbstractSortFunction
         implements FunctionNameConstants, FunctionVariableConstants {
@@ -64,61 +65,20 @@ public class FieldSortFunction extends AbstractSortFunction
             throw new DynamicSummaryException(e.getMessage(), e);
         }
 
-        if (!CollectionUtils.isEmpty(list)) {
-            // 构建排序器
-            Comparator comparator = buildFieldComparator(sortString);
-            list.sort(comparator);
+        if (CollectionUtils.isEmpty(list)) {
+            return new AviatorRuntimeJavaType(list);
         }
-        return new AviatorRuntimeJavaType(list);
-    }
-
-    /**
-     * 根据传入的表达式，构建比较器
-     *
-     * @param expression 表达式
-     * @return
-     */
-    private Comparator buildFieldComparator(String expression) {
-        return (o1, o2) -> {
-            /**
-             * 1. 判空
-             */
-            if (o1 == null && o2 == null) return 0;
-            if (o1 == null) return 1;
-            if (o2 == null) return -1;
-
-            /**
-             * 2. 判断并转换类型
-             */
-            if (!(o1 instanceof JSONObject)) {
-                LOG.error("排序内容类型为 [{}]，无法解析为 JSONObject 类型", o1.getClass().getName());
-                return 1;
-            }
-            if (!(o2 instanceof JSONObject)) {
-                LOG.error("排序内容类型为 [{}]，无法解析为 JSONObject 类型", o2.getClass().getName());
-                return -1;
-            }
-
-            /**
-             * 3. 根据表达式提取值，进行比较
-             */
-            JSONObject e1 = (JSONObject) o1;
-            JSONObject e2 = (JSONObject) o2;
-            // 判断 e1, e2 中是否有表达式指定的字段，如果某个字段为空，则进行排序
-            String str1 = ExpressionParser.doHandleFieldUnit(
-                    e1, ExpressionMatchUnit.buildFieldUnit(expression));
-            String str2 = ExpressionParser.doHandleFieldUnit(
-                    e2, ExpressionMatchUnit.buildFieldUnit(expression));
-
-            if (str1 == null) return 1;
-            if (str2 == null) return -1;
-            // 判断 str1, str2 是否全为数字？如果是，解析数字并比较；如果不是，则直接排序；
-            if (!str1.matches(FIELD_SORT_REGEX)) return 1;
-            if (!str2.matches(FIELD_SORT_REGEX)) return -1;
-            Integer v1 = Integer.parseInt(str1);
-            Integer v2 = Integer.parseInt(str2);
-
-            return (v1 > v2) ? 1 : (v1.equals(v2)) ? 0 : -1;
-        };
+        SortSpec sortSpec = SortSpec.compile(sortString);
+        // 列式数据直接在字典编码列上排序
+        JSONArray columnarSorted = ColumnarOperators.fieldSort(list, sortSpec);
+        if (columnarSorted != null) {
+            return new AviatorRuntimeJavaType(columnarSorted);
+        }
+        int[] order = sortSpec.sort(list);
+        JSONArray sorted = new JSONArray(order.length);
+        for (int index : order) {
+            sorted.add(list.get(index));
+        }
+        return new AviatorRuntimeJavaType(sorted);
     }
 }
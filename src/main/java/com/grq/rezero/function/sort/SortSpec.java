@@ -0,0 +1,537 @@
+package com.grq.rezero.function.sort;
+
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.cache.LruCache;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.expression.FieldAccessor;
+import com.grq.rezero.metrics.SerialExecution;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     排序规则：由 fieldSort 的排序表达式编译得到，支持多个排序字段、降序与多种值类型；
+ *
+ *     排序表达式的格式：字段[:类型][:asc|desc], 字段[:类型][:asc|desc], ...
+ *     1. 多个排序字段以 ',' 分隔，前面的字段优先；
+ *     2. 字段为字段表达式，支持关联信息字段（例如 student@college.location）；
+ *     3. 类型（不区分大小写）：
+ *        (1) 省略：纯数字的值按数值排序（与原 fieldSort 相同），其余值视为缺失；
+ *        (2) long：按整数排序，不能解析为整数的值视为缺失；
+ *        (3) double：按浮点数排序，不能解析为浮点数的值（包括 NaN）视为缺失；
+ *        (4) string：按字符串字典序排序；
+ *     4. 顺序（不区分大小写）：asc 升序（默认），desc 降序；
+ *     空字符串（包括字段不存在）视为缺失；无论升序降序，缺失值都排在最后，不是 JSONObject 的数据排在所有数据之后；
+ *
+ *     排序过程（不修改传入的列表，相等的数据保持原有顺序）：
+ *     1. 每条数据的每个排序字段只取值一次，相同的值只解析一次，将每个不同的值转换为整数名次；
+ *        不同值的排序使用 Arrays.parallelSort，数据量较大时并行排序，要求串行执行时使用 Arrays.sort；
+ *     2. 从最后一个排序字段开始，按名次依次进行稳定的计数排序，得到数据下标的排列；
+ *     整个过程只比较基本类型，不在比较时取值、匹配正则表达式或解析数字；
+ * </pre>
+ *
+ * @see FieldSortFunction
+ */
+public class SortSpec {
+    private static Logger LOG = LoggerFactory.getLogger(SortSpec.class);
+
+    /**
+     * 排序字段分隔符
+     */
+    public static final String KEY_SEPARATOR = ",";
+    /**
+     * 排序字段选项分隔符
+     */
+    public static final String OPTION_SEPARATOR = ":";
+
+    /**
+     * 缺失值的名次，表示排在最后
+     */
+    private static final int MISSING_RANK = -1;
+
+    /**
+     * 排序规则编译缓存
+     */
+    private static final LruCache<String, SortSpec> SPEC_CACHE = new LruCache<>("sortSpec");
+
+    /**
+     * 排序值类型
+     */
+    public enum KeyType {
+        /**
+         * 纯数字的值按数值排序，与原 fieldSort 相同
+         */
+        DIGITS,
+        LONG,
+        DOUBLE,
+        STRING
+    }
+
+    /**
+     * 排序字段
+     */
+    private final SortKey[] keys;
+
+    private SortSpec(SortKey[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * 编译排序表达式，相同表达式只编译一次
+     *
+     * @param expression 排序表达式
+     * @return 排序规则
+     * @throws DynamicSummaryException 排序表达式格式错误时抛出异常
+     */
+    public static SortSpec compile(String expression) throws DynamicSummaryException {
+        if (StringUtils.isBlank(expression)) {
+            throw new DynamicSummaryException("排序表达式错误：排序表达式为空");
+        }
+        return SPEC_CACHE.get(expression, SortSpec::doCompile);
+    }
+
+    private static SortSpec doCompile(String expression) {
+        String[] keyExpressions = expression.split(KEY_SEPARATOR);
+        SortKey[] keys = new SortKey[keyExpressions.length];
+        for (int i = 0; i < keyExpressions.length; i++) {
+            String[] parts = keyExpressions[i].split(OPTION_SEPARATOR);
+            String field = parts[0].trim();
+            if (field.isEmpty()) {
+                throw new DynamicSummaryException(String.format("排序表达式错误：[%s] 中第 %d 个排序字段 (从 0 计) 为空", expression, i));
+            }
+            KeyType type = KeyType.DIGITS;
+            boolean descending = false;
+            for (int j = 1; j < parts.length; j++) {
+                String option = parts[j].trim().toLowerCase();
+                switch (option) {
+                    case "asc":
+                        descending = false;
+                        break;
+                    case "desc":
+                        descending = true;
+                        break;
+                    case "long":
+                        type = KeyType.LONG;
+                        break;
+                    case "double":
+                        type = KeyType.DOUBLE;
+                        break;
+                    case "string":
+                        type = KeyType.STRING;
+                        break;
+                    default:
+                        throw new DynamicSummaryException(String.format("排序表达式错误：[%s] 中存在无法识别的选项 [%s]", expression, parts[j]));
+                }
+            }
+            keys[i] = new SortKey(field, type, descending);
+        }
+        return new SortSpec(keys);
+    }
+
+    /**
+     * 对数据列表排序
+     *
+     * @param rows 数据列表
+     * @return 排序后的数据下标排列，不修改传入的列表
+     * @throws DynamicSummaryException 获取字段值出错时抛出异常
+     */
+    public int[] sort(List<?> rows) throws DynamicSummaryException {
+        int size = rows.size();
+        boolean[] invalid = null;
+        int[][] codes = new int[keys.length][size];
+        String[][] dictionaries = new String[keys.length][];
+        List<Map<String, Integer>> indexes = new ArrayList<>(keys.length);
+        List<List<String>> values = new ArrayList<>(keys.length);
+        for (int k = 0; k < keys.length; k++) {
+            indexes.add(new HashMap<>());
+            values.add(new ArrayList<>());
+        }
+
+        /**
+         * 1. 逐条取值，对每个排序字段的不同值编码
+         */
+        for (int i = 0; i < size; i++) {
+            Object row = rows.get(i);
+            if (!(row instanceof JSONObject)) {
+                if (invalid == null) {
+                    invalid = new boolean[size];
+                    LOG.error("排序内容类型为 [{}]，无法解析为 JSONObject 类型", (row == null) ? "NULL" : row.getClass().getName());
+                }
+                invalid[i] = true;
+                continue;
+            }
+            JSONObject entity = (JSONObject) row;
+            for (int k = 0; k < keys.length; k++) {
+                String value = keys[k].accessor.getString(entity);
+                Integer code = indexes.get(k).get(value);
+                if (code == null) {
+                    code = values.get(k).size();
+                    indexes.get(k).put(value, code);
+                    values.get(k).add(value);
+                }
+                codes[k][i] = code;
+            }
+        }
+        for (int k = 0; k < keys.length; k++) {
+            dictionaries[k] = values.get(k).toArray(new String[0]);
+        }
+        return order(size, codes, dictionaries, invalid);
+    }
+
+    /**
+     * 对已经编码的数据排序，用于列式计算
+     *
+     * @param codes        各排序字段每条数据的编码，编码为负数表示值为 null（视为缺失）
+     * @param dictionaries 各排序字段的编码对应的值
+     * @return 排序后的数据下标排列
+     */
+    public int[] sort(int[][] codes, String[][] dictionaries) {
+        return order(codes[0].length, codes, dictionaries, null);
+    }
+
+    /**
+     * 提取单条数据的排序值，用于不需要完整排序的场景（例如 topN）
+     *
+     * @param row    单条数据
+     * @param index  数据下标，排序值相等时按下标排序
+     * @param target 复用的排序值对象，为 null 时新建
+     * @return 排序值
+     * @throws DynamicSummaryException 获取字段值出错时抛出异常
+     */
+    public RowKey extract(Object row, int index, RowKey target) throws DynamicSummaryException {
+        RowKey key = (target == null) ? new RowKey(keys.length) : target;
+        key.index = index;
+        key.invalid = !(row instanceof JSONObject);
+        if (key.invalid) {
+            return key;
+        }
+        JSONObject entity = (JSONObject) row;
+        for (int k = 0; k < keys.length; k++) {
+            String value = keys[k].accessor.getString(entity);
+            switch (keys[k].type) {
+                case DOUBLE: {
+                    Double parsed = parseDouble(value);
+                    key.missing[k] = parsed == null;
+                    key.doubles[k] = (parsed == null) ? 0 : parsed;
+                    break;
+                }
+                case STRING:
+                    key.missing[k] = StringUtils.isEmpty(value);
+                    key.strings[k] = value;
+                    break;
+                default: {
+                    Long parsed = (keys[k].type == KeyType.LONG) ? parseLong(value) : parseDigits(value);
+                    key.missing[k] = parsed == null;
+                    key.longs[k] = (parsed == null) ? 0 : parsed;
+                }
+            }
+        }
+        return key;
+    }
+
+    /**
+     * 比较两条数据的排序值，结果与 sort 的排序顺序一致
+     *
+     * @return 负数表示 k1 排在 k2 之前
+     */
+    public int compare(RowKey k1, RowKey k2) {
+        if (k1.invalid != k2.invalid) {
+            return k1.invalid ? 1 : -1;
+        }
+        if (!k1.invalid) {
+            for (int k = 0; k < keys.length; k++) {
+                if (k1.missing[k] != k2.missing[k]) {
+                    return k1.missing[k] ? 1 : -1;
+                }
+                if (k1.missing[k]) {
+                    continue;
+                }
+                int result;
+                switch (keys[k].type) {
+                    case DOUBLE:
+                        result = Double.compare(k1.doubles[k], k2.doubles[k]);
+                        break;
+                    case STRING:
+                        result = k1.strings[k].compareTo(k2.strings[k]);
+                        break;
+                    default:
+                        result = Long.compare(k1.longs[k], k2.longs[k]);
+                }
+                if (result != 0) {
+                    return keys[k].descending ? -result : result;
+                }
+            }
+        }
+        return Integer.compare(k1.index, k2.index);
+    }
+
+    /**
+     * 从最后一个排序字段开始，按名次依次进行稳定的计数排序
+     */
+    private int[] order(int size, int[][] codes, String[][] dictionaries, boolean[] invalid) {
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = i;
+        }
+        int[] buffer = new int[size];
+        int[] buckets = new int[size];
+        for (int k = keys.length - 1; k >= 0; k--) {
+            int[] ranks = new int[dictionaries[k].length];
+            int distinct = rank(keys[k].type, dictionaries[k], ranks);
+            // 名次转换为桶号：降序时反转，缺失值与不是 JSONObject 的数据放在最后一个桶
+            for (int i = 0; i < size; i++) {
+                int code = codes[k][i];
+                int rank = (code < 0 || (invalid != null && invalid[i])) ? MISSING_RANK : ranks[code];
+                buckets[i] = (rank == MISSING_RANK) ? distinct : (keys[k].descending ? distinct - 1 - rank : rank);
+            }
+            countingSort(permutation, buffer, buckets, distinct + 1);
+        }
+        if (invalid != null) {
+            for (int i = 0; i < size; i++) {
+                buckets[i] = invalid[i] ? 1 : 0;
+            }
+            countingSort(permutation, buffer, buckets, 2);
+        }
+        return permutation;
+    }
+
+    /**
+     * 按桶号对排列进行稳定的计数排序
+     *
+     * @param permutation 数据下标排列，排序结果写回该数组
+     * @param buffer      临时数组
+     * @param buckets     每条数据的桶号
+     * @param bucketCount 桶数量
+     */
+    private static void countingSort(int[] permutation, int[] buffer, int[] buckets, int bucketCount) {
+        int[] offsets = new int[bucketCount + 1];
+        for (int index : permutation) {
+            offsets[buckets[index] + 1]++;
+        }
+        for (int b = 0; b < bucketCount; b++) {
+            offsets[b + 1] += offsets[b];
+        }
+        for (int index : permutation) {
+            buffer[offsets[buckets[index]]++] = index;
+        }
+        System.arraycopy(buffer, 0, permutation, 0, permutation.length);
+    }
+
+    /**
+     * 计算每个不同值的名次，相等的值名次相同
+     *
+     * @param type       排序值类型
+     * @param dictionary 不同的值
+     * @param ranks      各值的名次，缺失值为 MISSING_RANK
+     * @return 不同名次的数量
+     */
+    private static int rank(KeyType type, String[] dictionary, int[] ranks) {
+        int size = dictionary.length;
+        boolean[] missing = new boolean[size];
+        int present = 0;
+        // 要求串行执行时（见 SerialExecution）不使用并行排序
+        boolean serial = SerialExecution.isActive();
+        switch (type) {
+            case DOUBLE: {
+                double[] parsed = new double[size];
+                for (int c = 0; c < size; c++) {
+                    Double value = parseDouble(dictionary[c]);
+                    missing[c] = value == null;
+                    parsed[c] = (value == null) ? 0 : value;
+                }
+                double[] sorted = new double[size];
+                for (int c = 0; c < size; c++) {
+                    if (!missing[c]) {
+                        sorted[present++] = parsed[c];
+                    }
+                }
+                sorted = Arrays.copyOf(sorted, present);
+                if (serial) {
+                    Arrays.sort(sorted);
+                } else {
+                    Arrays.parallelSort(sorted);
+                }
+                int distinct = dedupe(sorted);
+                for (int c = 0; c < size; c++) {
+                    ranks[c] = missing[c] ? MISSING_RANK : Arrays.binarySearch(sorted, 0, distinct, parsed[c]);
+                }
+                return distinct;
+            }
+            case STRING: {
+                String[] sorted = new String[size];
+                for (int c = 0; c < size; c++) {
+                    missing[c] = StringUtils.isEmpty(dictionary[c]);
+                    if (!missing[c]) {
+                        sorted[present++] = dictionary[c];
+                    }
+                }
+                sorted = Arrays.copyOf(sorted, present);
+                if (serial) {
+                    Arrays.sort(sorted);
+                } else {
+                    Arrays.parallelSort(sorted);
+                }
+                // 字典中的值互不相同，不需要去重
+                for (int c = 0; c < size; c++) {
+                    ranks[c] = missing[c] ? MISSING_RANK : Arrays.binarySearch(sorted, dictionary[c]);
+                }
+                return present;
+            }
+            default: {
+                long[] parsed = new long[size];
+                for (int c = 0; c < size; c++) {
+                    Long value = (type == KeyType.LONG) ? parseLong(dictionary[c]) : parseDigits(dictionary[c]);
+                    missing[c] = value == null;
+                    parsed[c] = (value == null) ? 0 : value;
+                }
+                long[] sorted = new long[size];
+                for (int c = 0; c < size; c++) {
+                    if (!missing[c]) {
+                        sorted[present++] = parsed[c];
+                    }
+                }
+                sorted = Arrays.copyOf(sorted, present);
+                if (serial) {
+                    Arrays.sort(sorted);
+                } else {
+                    Arrays.parallelSort(sorted);
+                }
+                int distinct = dedupe(sorted);
+                for (int c = 0; c < size; c++) {
+                    ranks[c] = missing[c] ? MISSING_RANK : Arrays.binarySearch(sorted, 0, distinct, parsed[c]);
+                }
+                return distinct;
+            }
+        }
+    }
+
+    private static int dedupe(long[] sorted) {
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || sorted[i] != sorted[distinct - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct;
+    }
+
+    private static int dedupe(double[] sorted) {
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || Double.compare(sorted[i], sorted[distinct - 1]) != 0) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * 解析纯数字的值，超出 long 范围时视为缺失
+     */
+    private static Long parseDigits(String value) {
+        if (value == null || !FieldSortFunction.FIELD_SORT_REGEX_PATTERN.matcher(value).matches()) {
+            return null;
+        }
+        return parseLong(value);
+    }
+
+    private static Long parseLong(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Double parseDouble(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        try {
+            double result = Double.parseDouble(value.trim());
+            return Double.isNaN(result) ? null : result;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public SortKey[] getKeys() {
+        return keys.clone();
+    }
+
+    @Override
+    public String toString() {
+        return StringUtils.join(keys, KEY_SEPARATOR);
+    }
+
+    /**
+     * 单条数据的排序值
+     */
+    public static class RowKey {
+        private int index;
+        private boolean invalid;
+        private final boolean[] missing;
+        private final long[] longs;
+        private final double[] doubles;
+        private final String[] strings;
+
+        private RowKey(int keyCount) {
+            missing = new boolean[keyCount];
+            longs = new long[keyCount];
+            doubles = new double[keyCount];
+            strings = new String[keyCount];
+        }
+
+        /**
+         * 数据下标
+         */
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    /**
+     * 排序字段：字段表达式、排序值类型与顺序
+     */
+    public static class SortKey {
+        private final String field;
+        private final FieldAccessor accessor;
+        private final KeyType type;
+        private final boolean descending;
+
+        SortKey(String field, KeyType type, boolean descending) {
+            this.field = field;
+            this.accessor = FieldAccessor.compile(field);
+            this.type = type;
+            this.descending = descending;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public KeyType getType() {
+            return type;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+
+        @Override
+        public String toString() {
+            String typeOption = (type == KeyType.DIGITS) ? "" : OPTION_SEPARATOR + type.name().toLowerCase();
+            return field + typeOption + OPTION_SEPARATOR + (descending ? "desc" : "asc");
+        }
+    }
+}
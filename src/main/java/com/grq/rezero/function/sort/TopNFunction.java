@@ -0,0 +1,220 @@
+package com.grq.rezero.function.sort;
+
+import com.alibaba.fastjson.JSONArray;
+import com.googlecode.aviator.runtime.function.FunctionUtils;
+import com.googlecode.aviator.runtime.type.AviatorObject;
+import com.googlecode.aviator.runtime.type.AviatorRuntimeJavaType;
+import com.grq.rezero.constants.FunctionNameConstants;
+import com.grq.rezero.constants.FunctionVariableConstants;
+import com.grq.rezero.exception.DynamicSummaryException;
+import com.grq.rezero.metrics.SerialExecution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <pre>
+ *     前 N 条数据方法：按排序规则取排在最前的 N 条数据，结果与 fieldSort 排序后取前 N 条相同；
+ *
+ *     表达式格式：N;排序表达式，例如 "10;student.score:double:desc"，排序表达式的格式见 SortSpec；
+ *     取排在最后的 N 条数据 (bottom-N) 时，将排序表达式中的顺序反转即可；
+ *
+ *     执行过程：
+ *     1. N 不小于列表长度时，直接完整排序；
+ *     2. 否则逐条提取排序值，使用容量为 N 的堆保留当前排在最前的 N 条数据，时间复杂度 O(n log N)，额外内存 O(N)；
+ *     3. 列表长度不小于 parallelThreshold 时，将列表分段并发选出各段的前 N 条，再合并各段的结果；
+ *     排序值相等的数据按原有顺序排列，因此并发与串行的结果相同；
+ * </pre>
+ *
+ * @see SortSpec
+ * @see FieldSortFunction
+ */
+public class TopNFunction extends AbstractSortFunction
+        implements FunctionNameConstants, FunctionVariableConstants {
+    public static final String TOPN_LIST = FUNCTION_VAR_COMMON_LIST;
+    public static final String TOPN_AVIATORARGS = FUNCTION_VAR_COMMON_AVIATORARGS;
+
+    /**
+     * 数量与排序表达式之间的分隔符
+     */
+    public static final String TOPN_SEPARATOR = ";";
+
+    /**
+     * 分段并发选择的列表长度下限
+     */
+    private static volatile int parallelThreshold = 1 << 16;
+
+    private Logger LOG = LoggerFactory.getLogger(TopNFunction.class);
+
+    @Override
+    public String getName() {
+        return FUNCTION_NAME_LISTADVANCED_TOPN;
+    }
+
+    /**
+     * 按排序规则取排在最前的 N 条数据
+     *
+     * @param env  包含 list(JSONArray), aviatorArgs(String)
+     * @param arg1 list (JSONArray) - 输入 JSONArray
+     * @param arg2 aviatorArgs (String) - N;排序表达式
+     * @return 前 N 条数据 (JSONArray)，按排序顺序排列，不修改传入的列表
+     */
+    @Override
+    public AviatorObject call(Map<String, Object> env, AviatorObject arg1, AviatorObject arg2) {
+        JSONArray list = null;
+        String expression = null;
+
+        try {
+            list = (JSONArray) FunctionUtils.getJavaObject(arg1, env);
+            expression = FunctionUtils.getStringValue(arg2, env);
+        } catch (ClassCastException e) {
+            LOG.error("格式转换错误：[{}]", e.getMessage());
+            throw new DynamicSummaryException(e.getMessage());
+        } catch (Exception e) {
+            LOG.error("未处理错误：[{}]", e.getMessage());
+            e.printStackTrace();
+            throw new DynamicSummaryException(e.getMessage(), e);
+        }
+
+        int separator = (expression == null) ? -1 : expression.indexOf(TOPN_SEPARATOR);
+        if (separator < 0) {
+            String errorMsg = String.format("topN 表达式错误：[%s] 不满足 \"N%s排序表达式\" 的格式", expression, TOPN_SEPARATOR);
+            LOG.error(errorMsg);
+            throw new DynamicSummaryException(errorMsg);
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(expression.substring(0, separator).trim());
+        } catch (NumberFormatException e) {
+            String errorMsg = String.format("topN 表达式错误：[%s] 中的数量不是整数", expression);
+            LOG.error(errorMsg);
+            throw new DynamicSummaryException(errorMsg, e);
+        }
+        if (limit < 0) {
+            String errorMsg = String.format("topN 表达式错误：[%s] 中的数量不能为负数", expression);
+            LOG.error(errorMsg);
+            throw new DynamicSummaryException(errorMsg);
+        }
+        SortSpec sortSpec = SortSpec.compile(expression.substring(separator + 1));
+
+        if (CollectionUtils.isEmpty(list)) {
+            return new AviatorRuntimeJavaType(list);
+        }
+        int[] order = select(list, sortSpec, limit);
+        JSONArray result = new JSONArray(order.length);
+        for (int index : order) {
+            result.add(list.get(index));
+        }
+        return new AviatorRuntimeJavaType(result);
+    }
+
+    /**
+     * 选出排在最前的 limit 条数据
+     *
+     * @param rows     数据列表
+     * @param sortSpec 排序规则
+     * @param limit    数量
+     * @return 所选数据的下标，按排序顺序排列
+     */
+    public static int[] select(List<?> rows, SortSpec sortSpec, int limit) {
+        int size = rows.size();
+        if (limit >= size) {
+            return sortSpec.sort(rows);
+        }
+        if (limit == 0) {
+            return new int[0];
+        }
+        SortSpec.RowKey[] selected;
+        if (size < parallelThreshold || SerialExecution.isActive()) {
+            selected = selectRange(rows, sortSpec, limit, 0, size);
+        } else {
+            // 分段并发选择，各段的结果合并后再选一次
+            int segments = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), size / Math.max(limit, 1024)));
+            int segmentSize = (size + segments - 1) / segments;
+            SortSpec.RowKey[] candidates = IntStream.range(0, segments).parallel()
+                    .mapToObj(s -> selectRange(rows, sortSpec, limit, s * segmentSize, Math.min(size, (s + 1) * segmentSize)))
+                    .flatMap(Arrays::stream)
+                    .toArray(SortSpec.RowKey[]::new);
+            Arrays.sort(candidates, sortSpec::compare);
+            selected = Arrays.copyOf(candidates, Math.min(limit, candidates.length));
+        }
+        int[] order = new int[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            order[i] = selected[i].getIndex();
+        }
+        return order;
+    }
+
+    /**
+     * 使用容量为 limit 的堆，选出 [from, to) 范围内排在最前的数据，堆顶为已选数据中排在最后的一条
+     *
+     * @return 所选数据的排序值，按排序顺序排列
+     */
+    private static SortSpec.RowKey[] selectRange(List<?> rows, SortSpec sortSpec, int limit, int from, int to) {
+        SortSpec.RowKey[] heap = new SortSpec.RowKey[Math.min(limit, to - from)];
+        int heapSize = 0;
+        SortSpec.RowKey scratch = null;
+        for (int i = from; i < to; i++) {
+            scratch = sortSpec.extract(rows.get(i), i, scratch);
+            if (heapSize < heap.length) {
+                heap[heapSize] = scratch;
+                siftUp(heap, heapSize++, sortSpec);
+                scratch = null;
+            } else if (sortSpec.compare(scratch, heap[0]) < 0) {
+                // 替换堆顶，被替换的对象用于下一条数据
+                SortSpec.RowKey replaced = heap[0];
+                heap[0] = scratch;
+                siftDown(heap, heapSize, sortSpec);
+                scratch = replaced;
+            }
+        }
+        SortSpec.RowKey[] result = Arrays.copyOf(heap, heapSize);
+        Arrays.sort(result, sortSpec::compare);
+        return result;
+    }
+
+    private static void siftUp(SortSpec.RowKey[] heap, int index, SortSpec sortSpec) {
+        SortSpec.RowKey key = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (sortSpec.compare(key, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = key;
+    }
+
+    private static void siftDown(SortSpec.RowKey[] heap, int size, SortSpec sortSpec) {
+        SortSpec.RowKey key = heap[0];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && sortSpec.compare(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (sortSpec.compare(key, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = key;
+    }
+
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public static void setParallelThreshold(int parallelThreshold) {
+        TopNFunction.parallelThreshold = parallelThreshold;
+    }
+}
@@ -0,0 +1,52 @@
+package com.grq.rezero.metrics;
+
+/**
+ * <pre>
+ *     同时记录到两个指标实现中，例如全局指标与单次请求的指标；
+ *     快照取自第二个实现（单次请求的指标）；
+ * </pre>
+ */
+public final class CompositeExecutionMetrics implements ExecutionMetrics {
+    private final ExecutionMetrics first;
+    private final ExecutionMetrics second;
+
+    private CompositeExecutionMetrics(ExecutionMetrics first, ExecutionMetrics second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * 组合两个指标实现，其中一个为 null 或不记录指标时直接返回另一个
+     *
+     * @param first  第一个实现
+     * @param second 第二个实现，快照取自该实现
+     * @return 组合后的实现，两个都为 null 时返回 NoopExecutionMetrics
+     */
+    public static ExecutionMetrics of(ExecutionMetrics first, ExecutionMetrics second) {
+        if (second == null || !second.isEnabled()) {
+            return (first == null) ? NoopExecutionMetrics.INSTANCE : first;
+        }
+        if (first == null || !first.isEnabled()) {
+            return second;
+        }
+        return new CompositeExecutionMetrics(first, second);
+    }
+
+    @Override
+    public void recordUnit(String unitType, String functionName, long elapsedNanos, long inputSize, long outputSize,
+                           boolean success, int cacheHits, int cacheMisses) {
+        first.recordUnit(unitType, functionName, elapsedNanos, inputSize, outputSize, success, cacheHits, cacheMisses);
+        second.recordUnit(unitType, functionName, elapsedNanos, inputSize, outputSize, success, cacheHits, cacheMisses);
+    }
+
+    @Override
+    public void recordSummary(long elapsedNanos, long rows, int summaryUnits, int failedUnits) {
+        first.recordSummary(elapsedNanos, rows, summaryUnits, failedUnits);
+        second.recordSummary(elapsedNanos, rows, summaryUnits, failedUnits);
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        return second.snapshot();
+    }
+}
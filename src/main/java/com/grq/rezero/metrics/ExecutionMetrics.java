@@ -0,0 +1,61 @@
+package com.grq.rezero.metrics;
+
+/**
+ * <pre>
+ *     执行指标接口：记录维度单元与统计单元链的执行情况；
+ *
+ *     1. 维度单元按 [单元类型, 方法名] 分别记录：耗时、输入与输出的基数、是否出错、执行期间的缓存命中与未命中次数；
+ *        - 单元类型为维度单元的类名（例如 ListToEntityChainUnit），方法名为表达式中的 Aviator 方法名（例如 classify）；
+ *        - 基数：JSONArray 为数据条数，JSONObject 为分组数，其余非空输出为 1，null 为 0；
+ *     2. 统计单元链按次记录：总耗时、数据源条数、统计单元数量与执行失败的统计单元数量；
+ *     实现类会被多个线程同时调用，需要保证线程安全；
+ *
+ *     默认实现为 NoopExecutionMetrics（不记录），内存直方图实现为 HistogramExecutionMetrics；
+ * </pre>
+ *
+ * @see NoopExecutionMetrics
+ * @see HistogramExecutionMetrics
+ * @see com.grq.rezero.executor.DimenStreamExecutor#setMetrics(ExecutionMetrics)
+ */
+public interface ExecutionMetrics {
+    /**
+     * 是否记录指标；返回 false 时执行器不计算基数，也不统计缓存命中
+     *
+     * @return
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * 记录单个维度单元的一次执行
+     *
+     * @param unitType     单元类型
+     * @param functionName 方法名，没有 Aviator 方法时为 "-"
+     * @param elapsedNanos 耗时（纳秒）
+     * @param inputSize    输入基数
+     * @param outputSize   输出基数，执行出错时为 0
+     * @param success      是否执行成功
+     * @param cacheHits    执行期间的缓存命中次数
+     * @param cacheMisses  执行期间的缓存未命中次数
+     */
+    void recordUnit(String unitType, String functionName, long elapsedNanos, long inputSize, long outputSize,
+                    boolean success, int cacheHits, int cacheMisses);
+
+    /**
+     * 记录统计单元链的一次执行
+     *
+     * @param elapsedNanos    总耗时（纳秒）
+     * @param rows            数据源条数
+     * @param summaryUnits    统计单元数量
+     * @param failedUnits     执行失败的统计单元数量
+     */
+    void recordSummary(long elapsedNanos, long rows, int summaryUnits, int failedUnits);
+
+    /**
+     * 获取当前已记录指标的快照
+     *
+     * @return 快照，不记录指标时返回空快照
+     */
+    MetricsSnapshot snapshot();
+}
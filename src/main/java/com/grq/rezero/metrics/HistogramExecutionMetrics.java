@@ -0,0 +1,93 @@
+package com.grq.rezero.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ *     内存直方图指标：按 [单元类型, 方法名] 记录耗时、输入与输出基数的分布，以及出错次数、缓存命中与未命中次数；
+ *
+ *     1. 可以作为执行器的全局指标，记录所有请求；
+ *     2. 统计单元链开启 collectMetrics 时，每次请求使用一个新实例，执行结果中返回该次请求的快照；
+ *     每个 [单元类型, 方法名] 的内存固定（3 个直方图），与记录次数无关；
+ * </pre>
+ *
+ * @see LongHistogram
+ * @see com.grq.rezero.summary.SummaryUnitChain#setCollectMetrics(boolean)
+ */
+public class HistogramExecutionMetrics implements ExecutionMetrics {
+    private final ConcurrentMap<String, UnitStats> units = new ConcurrentHashMap<>();
+
+    private final LongHistogram summaryLatency = new LongHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder summaryUnits = new LongAdder();
+    private final LongAdder failedSummaryUnits = new LongAdder();
+
+    @Override
+    public void recordUnit(String unitType, String functionName, long elapsedNanos, long inputSize, long outputSize,
+                           boolean success, int cacheHits, int cacheMisses) {
+        UnitStats stats = units.get(unitType + '#' + functionName);
+        if (stats == null) {
+            stats = units.computeIfAbsent(unitType + '#' + functionName, key -> new UnitStats(unitType, functionName));
+        }
+        stats.latency.record(elapsedNanos);
+        stats.inputSize.record(inputSize);
+        if (success) {
+            stats.outputSize.record(outputSize);
+        } else {
+            stats.errorCount.increment();
+        }
+        if (cacheHits > 0) {
+            stats.cacheHits.add(cacheHits);
+        }
+        if (cacheMisses > 0) {
+            stats.cacheMisses.add(cacheMisses);
+        }
+    }
+
+    @Override
+    public void recordSummary(long elapsedNanos, long rows, int summaryUnits, int failedUnits) {
+        summaryLatency.record(elapsedNanos);
+        this.rows.add(rows);
+        this.summaryUnits.add(summaryUnits);
+        this.failedSummaryUnits.add(failedUnits);
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        List<MetricsSnapshot.UnitMetrics> unitMetrics = new ArrayList<>(units.size());
+        for (UnitStats stats : units.values()) {
+            unitMetrics.add(new MetricsSnapshot.UnitMetrics(stats.unitType, stats.functionName,
+                    stats.errorCount.sum(), stats.cacheHits.sum(), stats.cacheMisses.sum(),
+                    stats.latency.snapshot(), stats.inputSize.snapshot(), stats.outputSize.snapshot()));
+        }
+        unitMetrics.sort(Comparator.comparing(MetricsSnapshot.UnitMetrics::getUnitType)
+                .thenComparing(MetricsSnapshot.UnitMetrics::getFunctionName));
+        MetricsSnapshot.HistogramSnapshot latency = summaryLatency.snapshot();
+        return new MetricsSnapshot(unitMetrics, latency.getCount(), rows.sum(), summaryUnits.sum(),
+                failedSummaryUnits.sum(), latency);
+    }
+
+    /**
+     * 单个 [单元类型, 方法名] 的累计指标
+     */
+    private static class UnitStats {
+        private final String unitType;
+        private final String functionName;
+        private final LongHistogram latency = new LongHistogram();
+        private final LongHistogram inputSize = new LongHistogram();
+        private final LongHistogram outputSize = new LongHistogram();
+        private final LongAdder errorCount = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LongAdder cacheMisses = new LongAdder();
+
+        UnitStats(String unitType, String functionName) {
+            this.unitType = unitType;
+            this.functionName = functionName;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.grq.rezero.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ *     非负整数的直方图，用于记录耗时与基数；
+ *
+ *     1. 小于 8 的值各占一个桶，其余值按二进制最高位分段，每段再等分为 8 个桶，相对误差不超过 12.5%；
+ *     2. 桶数固定（488 个），内存与记录次数无关；
+ *     3. 记录只做原子累加，可在多线程环境下使用；分位数取所在桶的上界（不超过最大值）；
+ * </pre>
+ */
+public class LongHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * 记录一个值，负数按 0 记录
+     *
+     * @param value 值
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(value));
+        sum.add(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+        count.incrementAndGet();
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * 获取快照；与并发的记录之间不保证一致
+     *
+     * @return 快照
+     */
+    public MetricsSnapshot.HistogramSnapshot snapshot() {
+        long total = count.get();
+        if (total == 0) {
+            return MetricsSnapshot.HistogramSnapshot.EMPTY;
+        }
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        long maxValue = max.get();
+        return new MetricsSnapshot.HistogramSnapshot(total, sum.sum(), min.get(), maxValue,
+                quantile(counts, total, 0.5, maxValue), quantile(counts, total, 0.9, maxValue),
+                quantile(counts, total, 0.99, maxValue));
+    }
+
+    private static long quantile(long[] counts, long total, double q, long maxValue) {
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+}
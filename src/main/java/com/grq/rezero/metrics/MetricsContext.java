@@ -0,0 +1,110 @@
+package com.grq.rezero.metrics;
+
+/**
+ * <pre>
+ *     当前线程正在执行的维度单元，用于把缓存访问记在该维度单元上；
+ *
+ *     1. 执行器在记录指标时，执行维度单元前调用 enter，执行后调用 exit；
+ *     2. LruCache 每次读取时调用 recordCacheAccess，当前线程没有正在执行的维度单元时不记录；
+ *     3. 列式数据批每次获取列或字段索引时调用 recordIndexAccess，已构建时为命中；
+ *     维度单元内部提交到其他线程执行的部分（例如并行分组）中的缓存访问不计入；
+ * </pre>
+ *
+ * @see com.grq.rezero.cache.LruCache#get(Object)
+ */
+public final class MetricsContext {
+    private static final ThreadLocal<UnitScope> CURRENT = new ThreadLocal<>();
+
+    private MetricsContext() {
+    }
+
+    /**
+     * 开始记录一个维度单元的缓存访问，可以嵌套
+     *
+     * @return 当前维度单元的记录范围，执行后传给 exit
+     */
+    public static UnitScope enter() {
+        UnitScope scope = new UnitScope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * 结束记录，恢复外层维度单元的记录范围
+     *
+     * @param scope enter 返回的记录范围
+     */
+    public static void exit(UnitScope scope) {
+        if (scope.parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(scope.parent);
+        }
+    }
+
+    /**
+     * 记录一次缓存访问
+     *
+     * @param hit 是否命中
+     */
+    public static void recordCacheAccess(boolean hit) {
+        UnitScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        if (hit) {
+            scope.cacheHits++;
+        } else {
+            scope.cacheMisses++;
+        }
+    }
+
+    /**
+     * 记录一次列式数据批的列或字段索引访问
+     *
+     * @param hit 是否已构建
+     * @see com.grq.rezero.columnar.ColumnarBatch
+     */
+    public static void recordIndexAccess(boolean hit) {
+        UnitScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        if (hit) {
+            scope.indexHits++;
+        } else {
+            scope.indexMisses++;
+        }
+    }
+
+    /**
+     * 单个维度单元执行期间的缓存与列式索引访问次数，只在执行线程中读写
+     */
+    public static final class UnitScope {
+        private final UnitScope parent;
+        private int cacheHits;
+        private int cacheMisses;
+        private int indexHits;
+        private int indexMisses;
+
+        private UnitScope(UnitScope parent) {
+            this.parent = parent;
+        }
+
+        public int getCacheHits() {
+            return cacheHits;
+        }
+
+        public int getCacheMisses() {
+            return cacheMisses;
+        }
+
+        public int getIndexHits() {
+            return indexHits;
+        }
+
+        public int getIndexMisses() {
+            return indexMisses;
+        }
+    }
+}
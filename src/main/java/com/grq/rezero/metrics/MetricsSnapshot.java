@@ -0,0 +1,263 @@
+package com.grq.rezero.metrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     执行指标快照：
+ *     1. 各维度单元的指标，按单元类型与方法名排序；
+ *     2. 统计单元链的执行次数、数据源总条数、统计单元数量与失败数量、耗时分布；
+ * </pre>
+ *
+ * @see ExecutionMetrics#snapshot()
+ */
+public class MetricsSnapshot {
+    public static final MetricsSnapshot EMPTY = new MetricsSnapshot(Collections.emptyList(), 0, 0, 0, 0,
+            HistogramSnapshot.EMPTY);
+
+    private final List<UnitMetrics> units;
+    /**
+     * 统计单元链执行次数
+     */
+    private final long summaryCount;
+    /**
+     * 数据源总条数
+     */
+    private final long rows;
+    /**
+     * 统计单元总数
+     */
+    private final long summaryUnits;
+    /**
+     * 执行失败的统计单元总数
+     */
+    private final long failedSummaryUnits;
+    /**
+     * 统计单元链的耗时分布（纳秒）
+     */
+    private final HistogramSnapshot summaryLatency;
+
+    public MetricsSnapshot(List<UnitMetrics> units, long summaryCount, long rows, long summaryUnits,
+                           long failedSummaryUnits, HistogramSnapshot summaryLatency) {
+        this.units = Collections.unmodifiableList(units);
+        this.summaryCount = summaryCount;
+        this.rows = rows;
+        this.summaryUnits = summaryUnits;
+        this.failedSummaryUnits = failedSummaryUnits;
+        this.summaryLatency = summaryLatency;
+    }
+
+    public List<UnitMetrics> getUnits() {
+        return units;
+    }
+
+    /**
+     * 获取单个维度单元的指标
+     *
+     * @param unitType     单元类型
+     * @param functionName 方法名
+     * @return 指标，没有记录时返回 null
+     */
+    public UnitMetrics getUnit(String unitType, String functionName) {
+        for (UnitMetrics unit : units) {
+            if (unit.unitType.equals(unitType) && unit.functionName.equals(functionName)) {
+                return unit;
+            }
+        }
+        return null;
+    }
+
+    public long getSummaryCount() {
+        return summaryCount;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getSummaryUnits() {
+        return summaryUnits;
+    }
+
+    public long getFailedSummaryUnits() {
+        return failedSummaryUnits;
+    }
+
+    public HistogramSnapshot getSummaryLatency() {
+        return summaryLatency;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("MetricsSnapshot{summaries=").append(summaryCount)
+                .append(", rows=").append(rows)
+                .append(", units=").append(summaryUnits)
+                .append(", failed=").append(failedSummaryUnits)
+                .append(", latency=").append(summaryLatency.toDurationString()).append('}');
+        for (UnitMetrics unit : units) {
+            builder.append("\n  ").append(unit);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 单个 [单元类型, 方法名] 的指标
+     */
+    public static class UnitMetrics {
+        private final String unitType;
+        private final String functionName;
+        private final long errorCount;
+        private final long cacheHits;
+        private final long cacheMisses;
+        /**
+         * 耗时分布（纳秒）
+         */
+        private final HistogramSnapshot latency;
+        private final HistogramSnapshot inputSize;
+        private final HistogramSnapshot outputSize;
+
+        public UnitMetrics(String unitType, String functionName, long errorCount, long cacheHits, long cacheMisses,
+                           HistogramSnapshot latency, HistogramSnapshot inputSize, HistogramSnapshot outputSize) {
+            this.unitType = unitType;
+            this.functionName = functionName;
+            this.errorCount = errorCount;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.latency = latency;
+            this.inputSize = inputSize;
+            this.outputSize = outputSize;
+        }
+
+        public String getUnitType() {
+            return unitType;
+        }
+
+        public String getFunctionName() {
+            return functionName;
+        }
+
+        /**
+         * 执行次数
+         */
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        /**
+         * 缓存命中率，没有缓存访问时返回 0
+         */
+        public double getCacheHitRatio() {
+            long total = cacheHits + cacheMisses;
+            return (total == 0) ? 0.0 : (double) cacheHits / total;
+        }
+
+        public HistogramSnapshot getLatency() {
+            return latency;
+        }
+
+        public HistogramSnapshot getInputSize() {
+            return inputSize;
+        }
+
+        public HistogramSnapshot getOutputSize() {
+            return outputSize;
+        }
+
+        @Override
+        public String toString() {
+            return unitType + "/" + functionName + ": count=" + getCount() + ", errors=" + errorCount
+                    + ", latency=" + latency.toDurationString()
+                    + ", input=" + inputSize + ", output=" + outputSize
+                    + ", cache=" + cacheHits + "/" + (cacheHits + cacheMisses);
+        }
+    }
+
+    /**
+     * 直方图快照，分位数为近似值
+     *
+     * @see LongHistogram
+     */
+    public static class HistogramSnapshot {
+        public static final HistogramSnapshot EMPTY = new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0);
+
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+
+        public HistogramSnapshot(long count, long sum, long min, long max, long p50, long p90, long p99) {
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMin() {
+            return min;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return (count == 0) ? 0.0 : (double) sum / count;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        /**
+         * 按耗时（纳秒）格式化，单位为微秒
+         */
+        String toDurationString() {
+            return String.format("[mean=%dus, p50=%dus, p90=%dus, p99=%dus, max=%dus]",
+                    TimeUnit.NANOSECONDS.toMicros((long) getMean()), TimeUnit.NANOSECONDS.toMicros(p50),
+                    TimeUnit.NANOSECONDS.toMicros(p90), TimeUnit.NANOSECONDS.toMicros(p99),
+                    TimeUnit.NANOSECONDS.toMicros(max));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[mean=%.1f, p50=%d, p99=%d, max=%d]", getMean(), p50, p99, max);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.grq.rezero.metrics;
+
+/**
+ * 不记录任何指标，执行器的默认实现
+ */
+public final class NoopExecutionMetrics implements ExecutionMetrics {
+    public static final NoopExecutionMetrics INSTANCE = new NoopExecutionMetrics();
+
+    private NoopExecutionMetrics() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public void recordUnit(String unitType, String functionName, long elapsedNanos, long inputSize, long outputSize,
+                           boolean success, int cacheHits, int cacheMisses) {
+    }
+
+    @Override
+    public void recordSummary(long elapsedNanos, long rows, int summaryUnits, int failedUnits) {
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        return MetricsSnapshot.EMPTY;
+    }
+}
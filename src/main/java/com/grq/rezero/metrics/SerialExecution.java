@@ -0,0 +1,48 @@
+package com.grq.rezero.metrics;
+
+/**
+ * <pre>
+ *     当前线程是否要求串行执行，用于 SummaryExecutor#profile 准确计算内存分配量；
+ *
+ *     1. 内存分配量只统计调用线程（见 ThreadAllocation），维度单元内部分段并发时其他线程的分配不计入；
+ *     2. 分类、筛选、排序、TopN、列表转换与分类统计在决定是否分段并发前调用 isActive，要求串行时不论列表长度都在当前线程执行；
+ *     3. 只影响当前线程的本次调用，不修改各方法的全局并行阈值，其他线程的统计不受影响；
+ * </pre>
+ *
+ * @see ThreadAllocation
+ */
+public final class SerialExecution {
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    private SerialExecution() {
+    }
+
+    /**
+     * 开始要求当前线程串行执行，可以嵌套
+     *
+     * @return 开始前是否已要求串行执行，执行后传给 exit
+     */
+    public static boolean enter() {
+        boolean previous = isActive();
+        ACTIVE.set(Boolean.TRUE);
+        return previous;
+    }
+
+    /**
+     * 结束要求串行执行，恢复开始前的状态
+     *
+     * @param previous enter 的返回值
+     */
+    public static void exit(boolean previous) {
+        if (!previous) {
+            ACTIVE.remove();
+        }
+    }
+
+    /**
+     * 当前线程是否要求串行执行
+     */
+    public static boolean isActive() {
+        return ACTIVE.get() != null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.grq.rezero.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * <pre>
+ *     当前线程已分配的内存字节数，用于计算一段代码的内存分配量；
+ *     依赖 HotSpot 的 com.sun.management.ThreadMXBean，不支持或未开启时返回 -1；
+ * </pre>
+ */
+public final class ThreadAllocation {
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = lookup();
+
+    private ThreadAllocation() {
+    }
+
+    private static com.sun.management.ThreadMXBean lookup() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        return sunBean.isThreadAllocatedMemorySupported() ? sunBean : null;
+    }
+
+    /**
+     * 当前线程已分配的内存字节数（累计值）
+     *
+     * @return 字节数，不支持时返回 -1
+     */
+    public static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN == null || !THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
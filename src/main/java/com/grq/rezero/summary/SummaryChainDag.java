@@ -0,0 +1,279 @@
+package com.grq.rezero.summary;
+
+import com.alibaba.fastjson.JSONArray;
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+import org.apache.commons.collections.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ *     统计单元链的执行图：将各统计单元中相同的前缀维度单元合并；
+ *
+ *     统计单元链中的多个统计单元经常以相同的维度单元开头，例如相同的 fieldEqual 筛选之后接相同的 classify 分类；
+ *     执行图按维度单元签名 (AbstractDimensionChainUnit#getSignature) 构建前缀树：
+ *     1. 每个节点对应一个维度单元，节点的子节点为其后续的维度单元；
+ *     2. 从根节点开始，签名相同的前缀维度单元合并为同一个节点，每次统计只执行一次，中间结果由所有下游分支共用；
+ *     3. 每个统计单元对应一条从根节点出发的路径，路径的最后一个节点记录该统计单元的下标；
+ *
+ *     例如：
+ *         统计单元 0: fieldEqual(A) → classify(x) → classifiedSummary(...) → join
+ *         统计单元 1: fieldEqual(A) → classify(x) → classifiedSize
+ *         统计单元 2: fieldEqual(A) → sumByField(y)
+ *     构建的执行图为：
+ *         fieldEqual(A) ─┬─ classify(x) ─┬─ classifiedSummary(...) ─ join [0]
+ *                        │               └─ classifiedSize [1]
+ *                        └─ sumByField(y) [2]
+ *
+ *     构建时检查类型：每个节点的输入类型需要能接收父节点的输出类型（根节点为数据源 JSONArray），
+ *     不匹配的节点记录错误信息 (Node#getTypeError)，执行时以该节点为起点的子图直接失败，不再执行维度单元；
+ *
+ *     注：共用的中间结果会被多个下游维度单元读取，因此各方法不能修改传入的数据；
+ * </pre>
+ *
+ * @see AbstractDimensionChainUnit#getSignature()
+ */
+public class SummaryChainDag {
+    /**
+     * 根节点下的第一层节点
+     */
+    private final List<Node> roots;
+    /**
+     * 统计单元个数
+     */
+    private final int summaryUnitCount;
+    /**
+     * 维度单元总数（合并前）
+     */
+    private final int dimensionUnitCount;
+    /**
+     * 执行图节点数（合并后）
+     */
+    private final int nodeCount;
+
+    private SummaryChainDag(List<Node> roots, int summaryUnitCount, int dimensionUnitCount, int nodeCount) {
+        this.roots = roots;
+        this.summaryUnitCount = summaryUnitCount;
+        this.dimensionUnitCount = dimensionUnitCount;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * 根据统计单元链构建执行图，合并相同前缀
+     *
+     * @param summaryUnitChain 统计单元链
+     * @return 执行图
+     */
+    public static SummaryChainDag build(SummaryUnitChain summaryUnitChain) {
+        return build(summaryUnitChain, true);
+    }
+
+    /**
+     * 根据统计单元链构建执行图
+     *
+     * @param summaryUnitChain 统计单元链
+     * @param mergePrefix      是否合并相同前缀；为 false 时每个统计单元为一条独立路径
+     * @return 执行图
+     */
+    public static SummaryChainDag build(SummaryUnitChain summaryUnitChain, boolean mergePrefix) {
+        List<SummaryUnit> summaryUnits = summaryUnitChain.getSummaryUnits();
+        List<Node> roots = new ArrayList<>();
+        if (CollectionUtils.isEmpty(summaryUnits)) {
+            return new SummaryChainDag(roots, 0, 0, 0);
+        }
+        // 以签名为 Key 的子节点索引，只在构建时使用
+        Map<Node, Map<String, Node>> childIndex = new LinkedHashMap<>();
+        Map<String, Node> rootIndex = new LinkedHashMap<>();
+        int dimensionUnitCount = 0;
+        int nodeCount = 0;
+
+        for (int i = 0; i < summaryUnits.size(); i++) {
+            List<AbstractDimensionChainUnit> dimenUnits = summaryUnits.get(i).getUnits();
+            if (CollectionUtils.isEmpty(dimenUnits)) {
+                continue;
+            }
+            Node parent = null;
+            for (int depth = 0; depth < dimenUnits.size(); depth++) {
+                AbstractDimensionChainUnit unit = dimenUnits.get(depth);
+                String signature = (unit == null) ? null : unit.getSignature();
+                dimensionUnitCount++;
+
+                Map<String, Node> index = (parent == null) ? rootIndex : childIndex.computeIfAbsent(parent, k -> new LinkedHashMap<>());
+                Node node = (mergePrefix && signature != null) ? index.get(signature) : null;
+                if (node == null) {
+                    Class<?> upstreamType = (parent == null) ? JSONArray.class
+                            : (parent.unit == null) ? Object.class : parent.unit.getOutputType();
+                    node = new Node(unit, signature, depth, typeError(unit, upstreamType, depth));
+                    nodeCount++;
+                    if (signature != null) {
+                        index.putIfAbsent(signature, node);
+                    }
+                    if (parent == null) {
+                        roots.add(node);
+                    } else {
+                        parent.children.add(node);
+                    }
+                }
+                parent = node;
+            }
+            parent.summaryUnitIndexes.add(i);
+        }
+        return new SummaryChainDag(roots, summaryUnits.size(), dimensionUnitCount, nodeCount);
+    }
+
+    /**
+     * 检查维度单元能否接收上游的输出类型
+     *
+     * @return 错误信息，能接收或维度单元为 null 时返回 null
+     */
+    private static String typeError(AbstractDimensionChainUnit unit, Class<?> upstreamType, int depth) {
+        if (unit == null || unit.accepts(upstreamType)) {
+            return null;
+        }
+        return String.format("第 %d 个维度单元 [%s(%s)] (从 0 计) 类型不匹配：输入类型为 [%s]，上一个维度单元的输出类型为 [%s]",
+                depth, unit.getClass().getSimpleName(), unit.getExpression(),
+                unit.getInputType().getSimpleName(), upstreamType.getSimpleName());
+    }
+
+    public List<Node> getRoots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    public int getSummaryUnitCount() {
+        return summaryUnitCount;
+    }
+
+    public int getDimensionUnitCount() {
+        return dimensionUnitCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * 因合并前缀而减少执行的维度单元个数
+     *
+     * @return
+     */
+    public int getSharedUnitCount() {
+        return dimensionUnitCount - nodeCount;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SummaryChainDag{summaryUnits=").append(summaryUnitCount)
+                .append(", dimensionUnits=").append(dimensionUnitCount)
+                .append(", nodes=").append(nodeCount).append("}");
+        for (Node root : roots) {
+            root.appendTo(builder, 1);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 执行图节点
+     */
+    public static class Node {
+        /**
+         * 维度单元
+         */
+        private final AbstractDimensionChainUnit unit;
+        /**
+         * 维度单元签名
+         */
+        private final String signature;
+        /**
+         * 维度单元在统计单元中的下标（从 0 计）
+         */
+        private final int depth;
+        /**
+         * 类型检查的错误信息，类型匹配时为 null
+         */
+        private final String typeError;
+        /**
+         * 后续维度单元
+         */
+        private final List<Node> children = new ArrayList<>(2);
+        /**
+         * 以该节点结束的统计单元下标
+         */
+        private final List<Integer> summaryUnitIndexes = new ArrayList<>(1);
+
+        Node(AbstractDimensionChainUnit unit, String signature, int depth, String typeError) {
+            this.unit = unit;
+            this.signature = signature;
+            this.depth = depth;
+            this.typeError = typeError;
+        }
+
+        public AbstractDimensionChainUnit getUnit() {
+            return unit;
+        }
+
+        public String getSignature() {
+            return signature;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * 类型检查的错误信息：维度单元的输入类型不能接收父节点的输出类型时不为 null
+         *
+         * @return
+         */
+        public String getTypeError() {
+            return typeError;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        public List<Integer> getSummaryUnitIndexes() {
+            return Collections.unmodifiableList(summaryUnitIndexes);
+        }
+
+        /**
+         * 获取以该节点为起点的子图中，所有统计单元的下标
+         *
+         * @return
+         */
+        public List<Integer> getSubtreeSummaryUnitIndexes() {
+            List<Integer> indexes = new ArrayList<>();
+            collectSummaryUnitIndexes(indexes);
+            return indexes;
+        }
+
+        private void collectSummaryUnitIndexes(List<Integer> indexes) {
+            indexes.addAll(summaryUnitIndexes);
+            for (Node child : children) {
+                child.collectSummaryUnitIndexes(indexes);
+            }
+        }
+
+        private void appendTo(StringBuilder builder, int level) {
+            builder.append('\n');
+            for (int i = 0; i < level; i++) {
+                builder.append("  ");
+            }
+            builder.append((unit == null) ? "NULL" : unit.getClass().getSimpleName());
+            if (unit != null && unit.getExpression() != null) {
+                builder.append('(').append(unit.getExpression()).append(')');
+            }
+            if (!summaryUnitIndexes.isEmpty()) {
+                builder.append(' ').append(summaryUnitIndexes);
+            }
+            for (Node child : children) {
+                child.appendTo(builder, level + 1);
+            }
+        }
+    }
+}
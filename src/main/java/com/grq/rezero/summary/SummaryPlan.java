@@ -0,0 +1,498 @@
+package com.grq.rezero.summary;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ *     统计单元链的执行计划：由执行图 (SummaryChainDag) 生成，用于查看统计单元链的结构与各步骤的开销；
+ *
+ *     1. EXPLAIN（SummaryExecutor#explain）：不执行，只输出计划树，每个节点包括：
+ *        维度单元类型、Aviator 表达式与参数、输入与输出维度（二维 JSONArray / 一维 JSONObject / 零维 String）、
+ *        输入维度是否与上一个节点的输出维度匹配、表达式是否已预编译、以该节点结束的统计单元下标；
+ *     2. PROFILE（SummaryExecutor#profile）：执行计划，并在每个节点上记录：
+ *        耗时（只包括该节点）、输入与输出的基数、内存分配量（调用线程，执行期间维度单元内部不分段并发）、缓存命中与未命中次数（表达式编译、字段取值器等 LruCache）、
+ *        列式字段索引命中与未命中次数、执行失败时的错误信息；没有执行的节点（上游失败）标记为未执行；
+ *     输出格式：toString 为纯文本计划树，toJSON / toJSONString 为 JSON；
+ *
+ *     例如：
+ *         SummaryPlan{summaryUnits=2, dimensionUnits=4, nodes=3, profiled=true, elapsed=12ms, rows=3000}
+ *           ListAdvancedChainUnit fieldEqual(list,aviatorArgs) ["[student.class=A]"] 二维 → 二维 | 0.8ms, rows 3000 → 590, alloc 21KB, cache 1/1, index 0/0
+ *             ListToEntityChainUnit classify(list,aviatorArgs) ["student.class"] 二维 → 一维 [0] | 0.6ms, rows 590 → 1, alloc 48KB, cache 1/1, index 0/0
+ *             ListToStringChainUnit sumByField(list,aviatorArgs) ["student.score"] 二维 → 零维 [1] | 0.1ms, rows 590 → 1, alloc 1KB, cache 0/0, index 0/0
+ * </pre>
+ *
+ * @see SummaryChainDag
+ * @see com.grq.rezero.executor.SummaryExecutor#explain(SummaryUnitChain)
+ * @see com.grq.rezero.executor.SummaryExecutor#profile(JSONArray, SummaryUnitChain)
+ */
+public class SummaryPlan {
+    private final List<Node> roots;
+    private final int summaryUnitCount;
+    private final int dimensionUnitCount;
+    private final int nodeCount;
+
+    /**
+     * 是否已执行（PROFILE）
+     */
+    private boolean profiled;
+    /**
+     * 是否以列式模式执行
+     */
+    private boolean columnar;
+    /**
+     * 数据源条数
+     */
+    private long rows;
+    /**
+     * 总耗时（纳秒）
+     */
+    private long elapsedNanos;
+    /**
+     * 统计结果
+     */
+    private String result;
+
+    private SummaryPlan(List<Node> roots, int summaryUnitCount, int dimensionUnitCount, int nodeCount) {
+        this.roots = roots;
+        this.summaryUnitCount = summaryUnitCount;
+        this.dimensionUnitCount = dimensionUnitCount;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * 由执行图生成执行计划
+     *
+     * @param dag 执行图
+     * @return 执行计划
+     */
+    public static SummaryPlan of(SummaryChainDag dag) {
+        List<Node> roots = new ArrayList<>(dag.getRoots().size());
+        for (SummaryChainDag.Node root : dag.getRoots()) {
+            roots.add(new Node(root));
+        }
+        return new SummaryPlan(roots, dag.getSummaryUnitCount(), dag.getDimensionUnitCount(), dag.getNodeCount());
+    }
+
+    /**
+     * 记录执行结果
+     *
+     * @param columnar     是否以列式模式执行
+     * @param rows         数据源条数
+     * @param elapsedNanos 总耗时（纳秒）
+     * @param result       统计结果
+     */
+    public void setProfile(boolean columnar, long rows, long elapsedNanos, String result) {
+        this.profiled = true;
+        this.columnar = columnar;
+        this.rows = rows;
+        this.elapsedNanos = elapsedNanos;
+        this.result = result;
+    }
+
+    public List<Node> getRoots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    public int getSummaryUnitCount() {
+        return summaryUnitCount;
+    }
+
+    public int getDimensionUnitCount() {
+        return dimensionUnitCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public boolean isProfiled() {
+        return profiled;
+    }
+
+    public boolean isColumnar() {
+        return columnar;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * 所有节点的输入维度是否都与上一个节点的输出维度匹配
+     *
+     * @return
+     */
+    public boolean isTypeMatched() {
+        for (Node root : roots) {
+            if (!root.isSubtreeTypeMatched()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 转换为 JSON
+     *
+     * @return
+     */
+    public JSONObject toJSON() {
+        JSONObject json = new JSONObject(true);
+        json.put("summaryUnits", summaryUnitCount);
+        json.put("dimensionUnits", dimensionUnitCount);
+        json.put("nodes", nodeCount);
+        json.put("typeMatched", isTypeMatched());
+        json.put("profiled", profiled);
+        if (profiled) {
+            json.put("columnar", columnar);
+            json.put("rows", rows);
+            json.put("elapsedNanos", elapsedNanos);
+            json.put("result", result);
+        }
+        JSONArray nodes = new JSONArray(roots.size());
+        for (Node root : roots) {
+            nodes.add(root.toJSON(profiled));
+        }
+        json.put("roots", nodes);
+        return json;
+    }
+
+    public String toJSONString() {
+        return JSON.toJSONString(toJSON());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("SummaryPlan{summaryUnits=").append(summaryUnitCount)
+                .append(", dimensionUnits=").append(dimensionUnitCount)
+                .append(", nodes=").append(nodeCount)
+                .append(", profiled=").append(profiled);
+        if (profiled) {
+            builder.append(", columnar=").append(columnar)
+                    .append(", elapsed=").append(formatNanos(elapsedNanos))
+                    .append(", rows=").append(rows);
+        }
+        builder.append('}');
+        for (Node root : roots) {
+            root.appendTo(builder, 1, profiled);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 类型对应的维度名称
+     */
+    static String dimensionOf(Class<?> type) {
+        if (JSONArray.class.isAssignableFrom(type)) {
+            return "二维";
+        }
+        if (JSONObject.class.isAssignableFrom(type)) {
+            return "一维";
+        }
+        if (String.class.isAssignableFrom(type)) {
+            return "零维";
+        }
+        return "任意";
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(1)) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+        }
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 0) {
+            return "-";
+        }
+        if (bytes < 1024) {
+            return bytes + "B";
+        }
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024) + "KB";
+        }
+        return String.format("%.1fMB", bytes / (1024.0 * 1024));
+    }
+
+    /**
+     * 执行计划节点，对应执行图中的一个节点
+     */
+    public static class Node {
+        private final SummaryChainDag.Node dagNode;
+        private final String unitType;
+        private final String expression;
+        private final String[] aviatorArgs;
+        private final Class<?> inputType;
+        private final Class<?> outputType;
+        /**
+         * 输入类型是否能接收上一个节点的输出（第一个节点为数据源 JSONArray），见 SummaryChainDag.Node#getTypeError
+         */
+        private final boolean typeMatched;
+        private final boolean compiled;
+        private final List<Node> children;
+
+        /**
+         * PROFILE 结果
+         */
+        private boolean executed;
+        private boolean success;
+        private String errorMessage;
+        private long elapsedNanos;
+        private long rowsIn;
+        private long rowsOut;
+        private long allocatedBytes = -1;
+        private int cacheHits;
+        private int cacheMisses;
+        private int indexHits;
+        private int indexMisses;
+
+        Node(SummaryChainDag.Node dagNode) {
+            this.dagNode = dagNode;
+            AbstractDimensionChainUnit unit = dagNode.getUnit();
+            if (unit == null) {
+                this.unitType = "NULL";
+                this.expression = null;
+                this.aviatorArgs = null;
+                this.inputType = Object.class;
+                this.outputType = Object.class;
+                this.typeMatched = false;
+                this.compiled = false;
+            } else {
+                this.unitType = unit.getClass().getSimpleName();
+                this.expression = unit.getExpression();
+                this.aviatorArgs = unit.getAviatorArgs();
+                this.inputType = unit.getInputType();
+                this.outputType = unit.getOutputType();
+                this.typeMatched = dagNode.getTypeError() == null;
+                this.compiled = unit.isCompiled();
+            }
+            this.children = new ArrayList<>(dagNode.getChildren().size());
+            for (SummaryChainDag.Node child : dagNode.getChildren()) {
+                children.add(new Node(child));
+            }
+        }
+
+        /**
+         * 记录执行结果
+         *
+         * @param success        是否执行成功
+         * @param errorMessage   错误信息
+         * @param elapsedNanos   耗时（纳秒）
+         * @param rowsIn         输入基数
+         * @param rowsOut        输出基数
+         * @param allocatedBytes 调用线程的内存分配量，不支持时为 -1
+         * @param cacheHits      缓存命中次数
+         * @param cacheMisses    缓存未命中次数
+         * @param indexHits      列式字段索引命中次数
+         * @param indexMisses    列式字段索引未命中次数
+         */
+        public void setProfile(boolean success, String errorMessage, long elapsedNanos, long rowsIn, long rowsOut,
+                               long allocatedBytes, int cacheHits, int cacheMisses, int indexHits, int indexMisses) {
+            this.executed = true;
+            this.success = success;
+            this.errorMessage = errorMessage;
+            this.elapsedNanos = elapsedNanos;
+            this.rowsIn = rowsIn;
+            this.rowsOut = rowsOut;
+            this.allocatedBytes = allocatedBytes;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+            this.indexHits = indexHits;
+            this.indexMisses = indexMisses;
+        }
+
+        public SummaryChainDag.Node getDagNode() {
+            return dagNode;
+        }
+
+        public String getUnitType() {
+            return unitType;
+        }
+
+        public String getExpression() {
+            return expression;
+        }
+
+        public String[] getAviatorArgs() {
+            return aviatorArgs;
+        }
+
+        public Class<?> getInputType() {
+            return inputType;
+        }
+
+        public Class<?> getOutputType() {
+            return outputType;
+        }
+
+        public String getInputDimension() {
+            return dimensionOf(inputType);
+        }
+
+        public String getOutputDimension() {
+            return dimensionOf(outputType);
+        }
+
+        public boolean isTypeMatched() {
+            return typeMatched;
+        }
+
+        public boolean isCompiled() {
+            return compiled;
+        }
+
+        public List<Node> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        public boolean isExecuted() {
+            return executed;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long getRowsIn() {
+            return rowsIn;
+        }
+
+        public long getRowsOut() {
+            return rowsOut;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public int getCacheHits() {
+            return cacheHits;
+        }
+
+        public int getCacheMisses() {
+            return cacheMisses;
+        }
+
+        public int getIndexHits() {
+            return indexHits;
+        }
+
+        public int getIndexMisses() {
+            return indexMisses;
+        }
+
+        private boolean isSubtreeTypeMatched() {
+            if (!typeMatched) {
+                return false;
+            }
+            for (Node child : children) {
+                if (!child.isSubtreeTypeMatched()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private JSONObject toJSON(boolean profiled) {
+            JSONObject json = new JSONObject(true);
+            json.put("unitType", unitType);
+            json.put("expression", expression);
+            json.put("aviatorArgs", aviatorArgs);
+            json.put("input", inputType.getSimpleName());
+            json.put("output", outputType.getSimpleName());
+            json.put("inputDimension", getInputDimension());
+            json.put("outputDimension", getOutputDimension());
+            json.put("typeMatched", typeMatched);
+            json.put("compiled", compiled);
+            json.put("summaryUnits", dagNode.getSummaryUnitIndexes());
+            if (profiled) {
+                JSONObject profile = new JSONObject(true);
+                profile.put("executed", executed);
+                if (executed) {
+                    profile.put("success", success);
+                    profile.put("errorMessage", errorMessage);
+                    profile.put("elapsedNanos", elapsedNanos);
+                    profile.put("rowsIn", rowsIn);
+                    profile.put("rowsOut", rowsOut);
+                    profile.put("allocatedBytes", allocatedBytes);
+                    profile.put("cacheHits", cacheHits);
+                    profile.put("cacheMisses", cacheMisses);
+                    profile.put("indexHits", indexHits);
+                    profile.put("indexMisses", indexMisses);
+                }
+                json.put("profile", profile);
+            }
+            JSONArray nodes = new JSONArray(children.size());
+            for (Node child : children) {
+                nodes.add(child.toJSON(profiled));
+            }
+            json.put("children", nodes);
+            return json;
+        }
+
+        private void appendTo(StringBuilder builder, int level, boolean profiled) {
+            builder.append('\n');
+            for (int i = 0; i < level; i++) {
+                builder.append("  ");
+            }
+            builder.append(unitType);
+            if (expression != null) {
+                builder.append(' ').append(expression);
+            }
+            if (aviatorArgs != null && aviatorArgs.length > 0) {
+                builder.append(' ').append(JSON.toJSONString(aviatorArgs));
+            }
+            builder.append(' ').append(getInputDimension()).append(" → ").append(getOutputDimension());
+            if (!typeMatched) {
+                builder.append(" (输入维度不匹配)");
+            }
+            if (!dagNode.getSummaryUnitIndexes().isEmpty()) {
+                builder.append(' ').append(dagNode.getSummaryUnitIndexes());
+            }
+            if (profiled) {
+                builder.append(" | ");
+                if (!executed) {
+                    builder.append("未执行");
+                } else {
+                    builder.append(formatNanos(elapsedNanos))
+                            .append(", rows ").append(rowsIn).append(" → ").append(rowsOut)
+                            .append(", alloc ").append(formatBytes(allocatedBytes))
+                            .append(", cache ").append(cacheHits).append('/').append(cacheHits + cacheMisses)
+                            .append(", index ").append(indexHits).append('/').append(indexHits + indexMisses);
+                    if (!success) {
+                        builder.append(", 失败：").append(errorMessage);
+                    }
+                }
+            }
+            for (Node child : children) {
+                child.appendTo(builder, level + 1, profiled);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.grq.rezero.summary;
 
+import com.grq.rezero.dimension.units.AbstractDimensionChainUnit;
+
 import java.util.List;
 
 /**
@@ -7,6 +9,12 @@ import java.util.List;
  */
 public class SummaryUnitChain {
     private List<SummaryUnit> summaryUnits;
+    /**
+     * 是否收集每次执行的指标，开启后 SummaryExecution#getMetrics 返回该次执行的指标快照
+     *
+     * @see com.grq.rezero.metrics.HistogramExecutionMetrics
+     */
+    private boolean collectMetrics = false;
 
     public List<SummaryUnit> getSummaryUnits() {
         return summaryUnits;
@@ -15,4 +23,41 @@ public class SummaryUnitChain {
     public void setSummaryUnits(List<SummaryUnit> summaryUnits) {
         this.summaryUnits = summaryUnits;
     }
+
+    /**
+     * <pre>
+     *     统计单元链签名：按顺序由各统计单元中各维度单元的签名组成；
+     *     签名相同的统计单元链，对相同数据集的统计结果相同；collectMetrics 不影响结果，不计入签名；
+     * </pre>
+     *
+     * @return 签名
+     * @see AbstractDimensionChainUnit#getSignature()
+     */
+    public String getSignature() {
+        if (summaryUnits == null) {
+            return "#";
+        }
+        StringBuilder builder = new StringBuilder(128);
+        builder.append(summaryUnits.size());
+        for (SummaryUnit summaryUnit : summaryUnits) {
+            List<AbstractDimensionChainUnit> units = (summaryUnit == null) ? null : summaryUnit.getUnits();
+            if (units == null) {
+                builder.append("\n#");
+                continue;
+            }
+            builder.append("\n").append(units.size());
+            for (AbstractDimensionChainUnit unit : units) {
+                builder.append("\n").append((unit == null) ? "-" : unit.getSignature());
+            }
+        }
+        return builder.toString();
+    }
+
+    public boolean isCollectMetrics() {
+        return collectMetrics;
+    }
+
+    public void setCollectMetrics(boolean collectMetrics) {
+        this.collectMetrics = collectMetrics;
+    }
 }